@@ -0,0 +1,89 @@
+package com.github.ntsee.sheetchef.benchmarks;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.github.ntsee.sheetchef.BoxIndex;
+import com.github.ntsee.sheetchef.BoxStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BoxIndexBenchmark {
+
+    private static final int SPACING = 10;
+    private static final int VIEW_WIDTH = 800;
+    private static final int VIEW_HEIGHT = 600;
+
+    @Param({"10000", "160000"})
+    public int boxCount;
+
+    private List<Rectangle> boxes;
+    private BoxStore store;
+    private BoxIndex index;
+    private int extent;
+
+    @Setup
+    public void setup() {
+        int columns = (int)Math.ceil(Math.sqrt(this.boxCount));
+        this.boxes = new ArrayList<>();
+        for (int i=0; i<this.boxCount; i++) {
+            this.boxes.add(new Rectangle(i % columns * SPACING, i / columns * SPACING, SPACING - 2, SPACING - 2));
+        }
+
+        this.store = BoxStore.of(this.boxes);
+        this.index = BoxIndex.of(this.store);
+        this.extent = columns * SPACING;
+    }
+
+    @Benchmark
+    public BoxIndex build() {
+        return BoxIndex.of(BoxStore.of(this.boxes));
+    }
+
+    @Benchmark
+    public int find() {
+        return this.index.find(this.extent / 2f + 3, this.extent / 2f + 3);
+    }
+
+    @Benchmark
+    public int findLinear() {
+        for (int i=0; i<this.store.size(); i++) {
+            if (this.store.contains(i, this.extent / 2f + 3, this.extent / 2f + 3)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    @Benchmark
+    public int queryView() {
+        int[] count = new int[1];
+        this.index.query(this.extent / 4f, this.extent / 4f, VIEW_WIDTH, VIEW_HEIGHT, box -> count[0]++);
+        return count[0];
+    }
+
+    @Benchmark
+    public int queryViewLinear() {
+        int count = 0;
+        for (Rectangle box : this.boxes) {
+            if (box.x < this.extent / 4f + VIEW_WIDTH && box.x + box.width > this.extent / 4f
+                    && box.y < this.extent / 4f + VIEW_HEIGHT && box.y + box.height > this.extent / 4f) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
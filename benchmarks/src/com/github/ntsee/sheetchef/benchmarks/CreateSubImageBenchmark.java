@@ -0,0 +1,87 @@
+package com.github.ntsee.sheetchef.benchmarks;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.github.ntsee.sheetchef.ExportFormat;
+import com.github.ntsee.sheetchef.FrameExtractor;
+import com.github.ntsee.sheetchef.PixelBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CreateSubImageBenchmark {
+
+    private static final int SHEET_SIZE = 2048;
+
+    @Param({"32", "256", "1024"})
+    public int frameSize;
+
+    private Pixmap pixmap;
+    private PixelBuffer pixels;
+    private Rectangle box;
+
+    @Setup
+    public void setup() {
+        GdxNativesLoader.load();
+        this.pixmap = new Pixmap(SHEET_SIZE, SHEET_SIZE, Pixmap.Format.RGBA8888);
+        ByteBuffer bytes = this.pixmap.getPixels();
+        Random random = new Random(SHEET_SIZE);
+        for (int i=0; i<SHEET_SIZE * SHEET_SIZE; i++) {
+            bytes.putInt(i * 4, random.nextInt());
+        }
+
+        this.pixels = PixelBuffer.of(this.pixmap);
+        int offset = (SHEET_SIZE - this.frameSize) / 2;
+        this.box = new Rectangle(offset, offset, this.frameSize, this.frameSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.pixmap.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage perPixel() {
+        BufferedImage image = new BufferedImage((int)this.box.width, (int)this.box.height, BufferedImage.TYPE_INT_RGB);
+        for (int y=0; y<this.box.height; y++) {
+            for(int x=0; x<this.box.width; x++) {
+                int i = (int)this.box.x + x;
+                int j = (int)this.box.y + y;
+                int pixel = this.pixmap.getPixel(i, j) >> 8;
+                image.setRGB(x, y, pixel);
+            }
+        }
+
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage bulkIntRgb() {
+        return FrameExtractor.extract(this.pixels, this.box, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Benchmark
+    public BufferedImage bulkPng() {
+        return FrameExtractor.extract(this.pixels, this.box, ExportFormat.PNG.getImageType());
+    }
+
+    @Benchmark
+    public BufferedImage bulkBmp() {
+        return FrameExtractor.extract(this.pixels, this.box, ExportFormat.BMP.getImageType());
+    }
+}
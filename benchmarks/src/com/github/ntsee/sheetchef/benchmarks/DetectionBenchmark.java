@@ -0,0 +1,87 @@
+package com.github.ntsee.sheetchef.benchmarks;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.github.ntsee.sheetchef.BackgroundKey;
+import com.github.ntsee.sheetchef.ComponentDetector;
+import com.github.ntsee.sheetchef.ForegroundMask;
+import com.github.ntsee.sheetchef.PixelBuffer;
+import com.github.ntsee.sheetchef.SyntheticSheet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DetectionBenchmark {
+
+    @Param({"1024", "4096"})
+    public int sheetSize;
+
+    @Param({"0.1", "0.5", "0.9"})
+    public float density;
+
+    @Param({"ffffffff", "00000000"})
+    public String background;
+
+    private PixelBuffer pixels;
+    private int backgroundColor;
+    private ComponentDetector sequential;
+    private ComponentDetector parallel;
+    private BackgroundKey exactKey;
+    private BackgroundKey toleranceKey;
+    private BackgroundKey alphaKey;
+
+    @Setup
+    public void setup() {
+        this.backgroundColor = SyntheticSheet.parseColor(this.background);
+        this.pixels = SyntheticSheet.create(this.sheetSize, this.density, this.backgroundColor, this.sheetSize);
+        this.sequential = new ComponentDetector();
+        this.sequential.setPool(null);
+        this.parallel = new ComponentDetector();
+        this.parallel.setPool(ForkJoinPool.commonPool());
+        this.exactKey = BackgroundKey.exact(this.backgroundColor);
+        this.toleranceKey = BackgroundKey.tolerance(this.backgroundColor, 8);
+        this.alphaKey = BackgroundKey.alpha(0);
+    }
+
+    @Benchmark
+    public List<Rectangle> sequential() {
+        return this.sequential.detect(this.pixels, this.backgroundColor);
+    }
+
+    @Benchmark
+    public List<Rectangle> parallel() {
+        return this.parallel.detect(this.pixels, this.backgroundColor);
+    }
+
+    @Benchmark
+    public List<Rectangle> streaming() throws IOException {
+        return this.sequential.detect(SyntheticSheet.rows(this.pixels), this.backgroundColor);
+    }
+
+    @Benchmark
+    public ForegroundMask mask() {
+        return ForegroundMask.of(this.pixels, this.exactKey);
+    }
+
+    @Benchmark
+    public List<Rectangle> tolerance() {
+        return this.sequential.detect(this.pixels, this.toleranceKey);
+    }
+
+    @Benchmark
+    public List<Rectangle> alpha() {
+        return this.sequential.detect(this.pixels, this.alphaKey);
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.ntsee.sheetchef.benchmarks;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.github.ntsee.sheetchef.AtlasExporter;
+import com.github.ntsee.sheetchef.ComponentDetector;
+import com.github.ntsee.sheetchef.ExportFormat;
+import com.github.ntsee.sheetchef.FrameEncoder;
+import com.github.ntsee.sheetchef.FrameExporter;
+import com.github.ntsee.sheetchef.FrameExtractor;
+import com.github.ntsee.sheetchef.PixelBuffer;
+import com.github.ntsee.sheetchef.PngEncoder;
+import com.github.ntsee.sheetchef.ProgressMonitor;
+import com.github.ntsee.sheetchef.SyntheticSheet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExportBenchmark {
+
+    private static final int BACKGROUND = 0xFFFFFFFF;
+
+    @Param({"1024", "2048"})
+    public int sheetSize;
+
+    @Param({"0.5"})
+    public float density;
+
+    @Param({"JPEG", "PNG", "GIF", "BMP", "WBMP", "ATLAS"})
+    public ExportFormat format;
+
+    private PixelBuffer pixels;
+    private List<Rectangle> boxes;
+    private PngEncoder pngEncoder;
+
+    @Setup
+    public void setup() {
+        this.pixels = SyntheticSheet.create(this.sheetSize, this.density, BACKGROUND, this.sheetSize);
+        this.boxes = new ComponentDetector().detect(this.pixels, BACKGROUND);
+        this.pngEncoder = new PngEncoder();
+    }
+
+    @Benchmark
+    public void extract(Blackhole blackhole) {
+        for (Rectangle box : this.boxes) {
+            blackhole.consume(FrameExtractor.extract(this.pixels, box, this.format.getImageType()));
+        }
+    }
+
+    @Benchmark
+    public long export() throws IOException {
+        AtomicLong bytes = new AtomicLong();
+        FrameExporter exporter = new FrameExporter(Runtime.getRuntime().availableProcessors());
+        if (this.format.isAtlas()) {
+            new AtlasExporter().export(this.pixels, this.boxes, "sheet", exporter,
+                    (fileName, data) -> bytes.addAndGet(data.length), ProgressMonitor.NONE);
+        } else {
+            exporter.export(this.boxes.size(), index -> {
+                Rectangle box = this.boxes.get(index);
+                if (this.format == ExportFormat.PNG) {
+                    bytes.addAndGet(this.pngEncoder.encode(this.pixels, box).length);
+                } else {
+                    BufferedImage frame = FrameExtractor.extract(this.pixels, box, this.format.getImageType());
+                    bytes.addAndGet(FrameEncoder.encode(frame, this.format).length);
+                }
+            });
+        }
+
+        return bytes.get();
+    }
+}
@@ -0,0 +1,68 @@
+package com.github.ntsee.sheetchef.benchmarks;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.github.ntsee.sheetchef.BackgroundKey;
+import com.github.ntsee.sheetchef.ForegroundMask;
+import com.github.ntsee.sheetchef.GridDetector;
+import com.github.ntsee.sheetchef.GridSpec;
+import com.github.ntsee.sheetchef.PixelBuffer;
+import com.github.ntsee.sheetchef.ProgressMonitor;
+import com.github.ntsee.sheetchef.SummedAreaTable;
+import com.github.ntsee.sheetchef.SyntheticSheet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GridBenchmark {
+
+    @Param({"4096"})
+    public int sheetSize;
+
+    @Param({"0.1", "0.9"})
+    public float density;
+
+    @Param({"8", "64"})
+    public int cellSize;
+
+    private ForegroundMask mask;
+    private GridDetector full;
+    private GridDetector trimmed;
+
+    @Setup
+    public void setup() {
+        int background = SyntheticSheet.parseColor("ffffffff");
+        PixelBuffer pixels = SyntheticSheet.create(this.sheetSize, this.density, background, this.sheetSize);
+        this.mask = ForegroundMask.of(pixels, BackgroundKey.exact(background));
+        this.full = new GridDetector();
+        this.full.setSpec(new GridSpec(this.cellSize, this.cellSize));
+        this.trimmed = new GridDetector();
+        this.trimmed.setSpec(new GridSpec(this.cellSize, this.cellSize));
+        this.trimmed.setTrim(true);
+    }
+
+    @Benchmark
+    public SummedAreaTable table() {
+        return SummedAreaTable.of(this.mask);
+    }
+
+    @Benchmark
+    public List<Rectangle> cells() {
+        return this.full.detect(this.mask, ProgressMonitor.NONE);
+    }
+
+    @Benchmark
+    public List<Rectangle> trimmed() {
+        return this.trimmed.detect(this.mask, ProgressMonitor.NONE);
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.ntsee.sheetchef.benchmarks;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.github.ntsee.sheetchef.ComponentDetector;
+import com.github.ntsee.sheetchef.ExportFormat;
+import com.github.ntsee.sheetchef.FrameEncoder;
+import com.github.ntsee.sheetchef.FrameExtractor;
+import com.github.ntsee.sheetchef.PixelBuffer;
+import com.github.ntsee.sheetchef.PngEncoder;
+import com.github.ntsee.sheetchef.SheetPalette;
+import com.github.ntsee.sheetchef.SyntheticSheet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PngEncoderBenchmark {
+
+    private static final int BACKGROUND = 0xFFFFFFFF;
+
+    @Param({"1024", "4096"})
+    public int sheetSize;
+
+    @Param({"1", "4", "9"})
+    public int level;
+
+    @Param({"NONE", "UP", "ADAPTIVE"})
+    public PngEncoder.Filter filter;
+
+    private PixelBuffer pixels;
+    private Rectangle sheet;
+    private List<Rectangle> boxes;
+    private PngEncoder encoder;
+    private SheetPalette palette;
+
+    @Setup
+    public void setup() {
+        this.pixels = SyntheticSheet.create(this.sheetSize, 0.5f, BACKGROUND, this.sheetSize);
+        this.sheet = new Rectangle(0, 0, this.sheetSize, this.sheetSize);
+        this.boxes = new ComponentDetector().detect(this.pixels, BACKGROUND);
+        this.encoder = new PngEncoder(this.level, this.filter);
+        this.palette = SheetPalette.of(this.pixels, this.boxes);
+    }
+
+    @Benchmark
+    public int encodeSheet() throws IOException {
+        return this.encoder.encode(this.pixels, this.sheet).length;
+    }
+
+    @Benchmark
+    public long encodeFrames() throws IOException {
+        long bytes = 0;
+        for (Rectangle box : this.boxes) {
+            bytes += this.encoder.encode(this.pixels, box).length;
+        }
+
+        return bytes;
+    }
+
+    @Benchmark
+    public long encodeIndexedFrames() throws IOException {
+        long bytes = 0;
+        for (int i=0; i<this.boxes.size(); i++) {
+            Rectangle box = this.boxes.get(i);
+            int colors = this.palette.getColorCount(i);
+            bytes += (colors > 0 ? this.encoder.encode(this.pixels, box, this.palette, colors)
+                    : this.encoder.encode(this.pixels, box)).length;
+        }
+
+        return bytes;
+    }
+
+    @Benchmark
+    public SheetPalette palette() {
+        return SheetPalette.of(this.pixels, this.boxes);
+    }
+
+    @Benchmark
+    public int imageIoSheet() throws IOException {
+        BufferedImage image = FrameExtractor.extract(this.pixels, this.sheet, BufferedImage.TYPE_INT_ARGB);
+        return FrameEncoder.encode(image, ExportFormat.PNG).length;
+    }
+
+    @Benchmark
+    public long imageIoFrames() throws IOException {
+        long bytes = 0;
+        for (Rectangle box : this.boxes) {
+            BufferedImage frame = FrameExtractor.extract(this.pixels, box, BufferedImage.TYPE_INT_ARGB);
+            bytes += FrameEncoder.encode(frame, ExportFormat.PNG).length;
+        }
+
+        return bytes;
+    }
+}
@@ -0,0 +1,350 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.graphics.Color;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class CliLauncher {
+
+    private static final Pattern GRID_PATTERN = Pattern.compile(
+            "(\\d+)x(\\d+)(?:\\+(\\d+)\\+(\\d+))?(?:,(\\d+)x(\\d+))?");
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: sheet-chef-cli [options] <file or directory>...",
+            "",
+            "Options:",
+            "  -b, --background <hex>      background color as RRGGBB or RRGGBBAA (default ffffffff)",
+            "  -T, --tolerance <0-255>     treat colors within this per-channel distance of the background",
+            "                              as background (default 0)",
+            "  -A, --alpha <0-255>         treat pixels with alpha at or below this as background instead",
+            "                              of matching a color, for transparent sheets",
+            "  -f, --format <format>       export format: JPEG, PNG, GIF, BMP, WBMP, ATLAS (default BMP)",
+            "  -o, --output <directory>    output directory, one subfolder per sheet (default output)",
+            "  -a, --archive <ZIP|TAR>     write each sheet into one archive instead of a subfolder",
+            "  -s, --sheets <n>            sheets decoded and detected concurrently (default 2)",
+            "  -t, --threads <n>           frame extract/encode/write threads (default: cores)",
+            "  -g, --grid <WxH[+X+Y][,SXxSY]>",
+            "                              slice a fixed grid of WxH cells offset by X,Y and spaced by SX,SY",
+            "                              instead of detecting frames; empty cells are skipped",
+            "      --trim                  with --grid, trim each cell to its non-background pixels",
+            "  -c, --connectivity <4|8>    pixel connectivity of a frame (default 8)",
+            "  -m, --min-area <pixels>     ignore frames with fewer pixels (default 1)",
+            "  -z, --png-level <0-9>       PNG deflate level, 1 fastest to 9 smallest (default " + PngEncoder.DEFAULT_LEVEL + ")",
+            "  -F, --png-filter <filter>   PNG row filter: NONE, SUB, UP, AVERAGE, PAETH or ADAPTIVE (default "
+                    + PngEncoder.DEFAULT_FILTER + ")",
+            "  -d, --dedup                 write identical frames once and map them in " + FrameDeduplicator.MAPPING_FILE_NAME,
+            "  -p, --palette               write PNG and GIF frames as 8-bit indexed images sharing one",
+            "                              palette per sheet; frames whose colors do not fit stay full color",
+            "  -S, --streaming             decode PNG sheets row by row; memory scales with sheet width",
+            "                              (not used with ATLAS, --dedup or --palette)",
+            "  -w, --watch                 keep running and re-slice changed sheets, skipping unchanged frames",
+            "  -l, --listen <[host:]port>  serve POST /boxes (JSON) and POST /frames (ZIP) over HTTP instead",
+            "                              of slicing files; query parameters override the options above",
+            "                              and --sheets sets the number of concurrent requests",
+            "  -Q, --queue <n>             with --listen, requests allowed to wait before answering 503",
+            "                              (default " + SliceServer.DEFAULT_QUEUE + ")",
+            "  -q, --quiet                 only print the summary",
+            "  -h, --help                  show this message");
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.exit(run(args, System.out, System.err));
+    }
+
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        BatchSlicer slicer = new BatchSlicer();
+        File outputDirectory = new File("output");
+        List<File> inputs = new ArrayList<>();
+        int pngLevel = PngEncoder.DEFAULT_LEVEL;
+        PngEncoder.Filter pngFilter = PngEncoder.DEFAULT_FILTER;
+        int tolerance = 0;
+        int alphaThreshold = -1;
+        boolean quiet = false;
+        boolean watch = false;
+        InetSocketAddress listen = null;
+        int queue = SliceServer.DEFAULT_QUEUE;
+        try {
+            for (int i=0; i<args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "-b":
+                    case "--background":
+                        slicer.setBackgroundColor(parseColor(value(args, ++i, arg)));
+                        break;
+                    case "-T":
+                    case "--tolerance":
+                        tolerance = Integer.parseInt(value(args, ++i, arg));
+                        break;
+                    case "-A":
+                    case "--alpha":
+                        alphaThreshold = BackgroundKey.alpha(Integer.parseInt(value(args, ++i, arg))).getThreshold();
+                        break;
+                    case "-f":
+                    case "--format":
+                        slicer.setExportFormat(ExportFormat.valueOf(value(args, ++i, arg).toUpperCase(Locale.ROOT)));
+                        break;
+                    case "-o":
+                    case "--output":
+                        outputDirectory = new File(value(args, ++i, arg));
+                        break;
+                    case "-a":
+                    case "--archive":
+                        slicer.setExportTarget(ExportTarget.valueOf(value(args, ++i, arg).toUpperCase(Locale.ROOT)));
+                        break;
+                    case "-s":
+                    case "--sheets":
+                        slicer.setSheetThreads(Integer.parseInt(value(args, ++i, arg)));
+                        break;
+                    case "-t":
+                    case "--threads":
+                        slicer.setFrameThreads(Integer.parseInt(value(args, ++i, arg)));
+                        break;
+                    case "-g":
+                    case "--grid":
+                        slicer.setDetectionMode(DetectionMode.GRID);
+                        slicer.getGridDetector().setSpec(parseGrid(value(args, ++i, arg)));
+                        break;
+                    case "--trim":
+                        slicer.getGridDetector().setTrim(true);
+                        break;
+                    case "-c":
+                    case "--connectivity":
+                        slicer.getDetector().setConnectivity(parseConnectivity(value(args, ++i, arg)));
+                        break;
+                    case "-m":
+                    case "--min-area":
+                        slicer.getDetector().setMinArea(Integer.parseInt(value(args, ++i, arg)));
+                        break;
+                    case "-z":
+                    case "--png-level":
+                        pngLevel = Integer.parseInt(value(args, ++i, arg));
+                        break;
+                    case "-F":
+                    case "--png-filter":
+                        pngFilter = PngEncoder.Filter.valueOf(value(args, ++i, arg).toUpperCase(Locale.ROOT));
+                        break;
+                    case "-d":
+                    case "--dedup":
+                        slicer.setDeduplicate(true);
+                        break;
+                    case "-p":
+                    case "--palette":
+                        slicer.setIndexed(true);
+                        break;
+                    case "-S":
+                    case "--streaming":
+                        slicer.setStreaming(true);
+                        break;
+                    case "-w":
+                    case "--watch":
+                        watch = true;
+                        break;
+                    case "-l":
+                    case "--listen":
+                        listen = parseAddress(value(args, ++i, arg));
+                        break;
+                    case "-Q":
+                    case "--queue":
+                        queue = Integer.parseInt(value(args, ++i, arg));
+                        break;
+                    case "-q":
+                    case "--quiet":
+                        quiet = true;
+                        break;
+                    case "-h":
+                    case "--help":
+                        out.println(USAGE);
+                        return 0;
+                    default:
+                        if (arg.startsWith("-")) {
+                            throw new IllegalArgumentException("unknown option " + arg);
+                        }
+
+                        inputs.add(new File(arg));
+                        break;
+                }
+            }
+
+            if (inputs.isEmpty() && listen == null) {
+                throw new IllegalArgumentException("no input files");
+            }
+
+            slicer.setPngEncoder(new PngEncoder(pngLevel, pngFilter));
+            slicer.setBackgroundKey(alphaThreshold >= 0 ? BackgroundKey.alpha(alphaThreshold)
+                    : BackgroundKey.tolerance(slicer.getBackgroundColor(), tolerance));
+        } catch (IllegalArgumentException e) {
+            err.println("sheet-chef-cli: " + e.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+
+        if (listen != null) {
+            return serve(slicer, listen, queue, out, err);
+        }
+
+        try {
+            Map<File, File> targets = BatchSlicer.planOutputDirectories(BatchSlicer.collectSheets(inputs),
+                    outputDirectory);
+            if (!quiet) {
+                slicer.setListener(new ConsoleListener(out, err));
+            }
+
+            slicer.setIncremental(watch);
+            int status = report(slicer.slice(targets), out, err);
+            if (watch) {
+                out.println("Watching for changes, press Ctrl+C to stop");
+                watch(slicer, inputs, outputDirectory, targets, out, err);
+            }
+
+            return status;
+        } catch (IOException e) {
+            err.println("sheet-chef-cli: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static int report(BatchResult result, PrintStream out, PrintStream err) {
+        out.println(result);
+        for (Map.Entry<File, IOException> failure : result.getFailures().entrySet()) {
+            err.println("failed: " + failure.getKey() + " - " + failure.getValue().getMessage());
+        }
+
+        return result.getFailures().isEmpty() ? 0 : 1;
+    }
+
+    private static void watch(BatchSlicer slicer, List<File> inputs, File outputDirectory, Map<File, File> planned,
+                              PrintStream out, PrintStream err) throws IOException {
+        try (SheetWatcher watcher = new SheetWatcher(inputs, changed -> {
+            Set<File> files = new HashSet<>();
+            for (File file : changed) {
+                files.add(file.getAbsoluteFile());
+            }
+
+            try {
+                planned.putAll(BatchSlicer.planOutputDirectories(BatchSlicer.collectSheets(inputs), outputDirectory,
+                        planned));
+                Map<File, File> targets = new LinkedHashMap<>();
+                for (Map.Entry<File, File> target : planned.entrySet()) {
+                    if (files.contains(target.getKey().getAbsoluteFile())) {
+                        targets.put(target.getKey(), target.getValue());
+                    }
+                }
+
+                report(slicer.slice(targets), out, err);
+            } catch (IOException e) {
+                err.println("sheet-chef-cli: " + e.getMessage());
+            }
+        })) {
+            watcher.run();
+        }
+    }
+
+    private static int serve(BatchSlicer slicer, InetSocketAddress address, int queue, PrintStream out,
+                             PrintStream err) {
+        try (SliceServer server = new SliceServer(address, slicer, slicer.getSheetThreads(), queue)) {
+            server.start();
+            InetSocketAddress bound = server.getAddress();
+            out.printf("Listening on http://%s:%d, press Ctrl+C to stop%n", bound.getHostString(), bound.getPort());
+            Thread.currentThread().join();
+            return 0;
+        } catch (IOException | IllegalArgumentException e) {
+            err.println("sheet-chef-cli: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("missing value for " + option);
+        }
+
+        return args[index];
+    }
+
+    static Color parseColor(String hex) {
+        String value = hex.startsWith("#") ? hex.substring(1) : hex;
+        if (!value.matches("[0-9a-fA-F]{6}([0-9a-fA-F]{2})?")) {
+            throw new IllegalArgumentException("invalid color " + hex);
+        }
+
+        return Color.valueOf(value);
+    }
+
+    static GridSpec parseGrid(String value) {
+        Matcher matcher = GRID_PATTERN.matcher(value);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("invalid grid " + value);
+        }
+
+        return new GridSpec(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)),
+                parseGroup(matcher, 3), parseGroup(matcher, 4), parseGroup(matcher, 5), parseGroup(matcher, 6));
+    }
+
+    private static int parseGroup(Matcher matcher, int group) {
+        return matcher.group(group) == null ? 0 : Integer.parseInt(matcher.group(group));
+    }
+
+    static InetSocketAddress parseAddress(String value) {
+        int separator = value.lastIndexOf(':');
+        String host = separator < 0 ? null : value.substring(0, separator);
+        int port = Integer.parseInt(value.substring(separator + 1));
+        if (port < 0 || port > 0xFFFF) {
+            throw new IllegalArgumentException("invalid port " + port);
+        }
+
+        return host == null ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port)
+                : new InetSocketAddress(host, port);
+    }
+
+    static Connectivity parseConnectivity(String value) {
+        switch (value) {
+            case "4":
+                return Connectivity.FOUR;
+            case "8":
+                return Connectivity.EIGHT;
+            default:
+                throw new IllegalArgumentException("connectivity must be 4 or 8");
+        }
+    }
+
+    private static class ConsoleListener implements BatchSlicer.Listener {
+
+        private final PrintStream out;
+        private final PrintStream err;
+
+        ConsoleListener(PrintStream out, PrintStream err) {
+            this.out = out;
+            this.err = err;
+        }
+
+        @Override
+        public void onSheetStarted(File sheet) {
+
+        }
+
+        @Override
+        public void onSheetFinished(File sheet, int frames) {
+            this.out.printf("%s: %d frames%n", sheet, frames);
+        }
+
+        @Override
+        public void onSheetFailed(File sheet, IOException e) {
+            this.err.printf("%s: %s%n", sheet, e.getMessage());
+        }
+    }
+}
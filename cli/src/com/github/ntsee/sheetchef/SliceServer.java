@@ -0,0 +1,434 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SliceServer implements Closeable {
+
+    public static final int DEFAULT_QUEUE = 16;
+
+    private static final int MAX_BODY_BYTES = 256 * 1024 * 1024;
+    private static final long MAX_PIXELS = 64L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int RETRY_AFTER_SECONDS = 1;
+    private static final byte[] PNG_SIGNATURE = {(byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private final HttpServer server;
+    private final BatchSlicer defaults;
+    private final ExecutorService requestPool;
+    private final ExecutorService framePool;
+    private final Semaphore admitted;
+    private final Semaphore running;
+    private final BlockingQueue<Buffers> buffers;
+    private final int workers;
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public SliceServer(InetSocketAddress address, BatchSlicer defaults, int workers, int queue) throws IOException {
+        if (workers < 1) {
+            throw new IllegalArgumentException("workers must be positive: " + workers);
+        }
+
+        if (queue < 0) {
+            throw new IllegalArgumentException("queue must not be negative: " + queue);
+        }
+
+        this.defaults = defaults;
+        this.workers = workers;
+        this.admitted = new Semaphore(workers + queue);
+        this.running = new Semaphore(workers);
+        this.buffers = new ArrayBlockingQueue<>(workers);
+        for (int i=0; i<workers; i++) {
+            this.buffers.add(new Buffers());
+        }
+
+        this.requestPool = Executors.newCachedThreadPool(new WorkerThreadFactory("sheetchef-http-"));
+        this.framePool = Executors.newFixedThreadPool(defaults.getFrameThreads(),
+                new WorkerThreadFactory("sheetchef-frame-"));
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(this.requestPool);
+        this.server.createContext("/boxes", exchange -> this.handle(exchange, false));
+        this.server.createContext("/frames", exchange -> this.handle(exchange, true));
+        this.server.createContext("/status", this::handleStatus);
+    }
+
+    public void start() {
+        this.server.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        return this.server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.requestPool.shutdownNow();
+        this.framePool.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange, boolean frames) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendError(exchange, 405, "use POST with the sheet as the request body");
+            exchange.close();
+            return;
+        }
+
+        if (!this.admitted.tryAcquire()) {
+            this.rejected.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+            sendError(exchange, 503, "queue is full");
+            exchange.close();
+            return;
+        }
+
+        try {
+            this.slice(exchange, frames);
+        } finally {
+            this.admitted.release();
+        }
+
+        exchange.close();
+    }
+
+    private void slice(HttpExchange exchange, boolean frames) throws IOException {
+        Map<String, String> params;
+        BatchSlicer slicer;
+        try {
+            params = parseQuery(exchange.getRequestURI().getRawQuery());
+            slicer = this.createSlicer(params);
+        } catch (IllegalArgumentException e) {
+            this.failed.incrementAndGet();
+            sendError(exchange, 400, e.getMessage());
+            return;
+        }
+
+        Buffers buffers;
+        try {
+            this.running.acquire();
+            buffers = this.buffers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "server is shutting down");
+            return;
+        }
+
+        boolean responded = false;
+        try {
+            PixelBuffer pixels = buffers.decode(exchange.getRequestBody());
+            List<Rectangle> boxes = slicer.detect(pixels);
+            responded = true;
+            if (frames) {
+                this.sendFrames(exchange, slicer, pixels, boxes, params.getOrDefault("name", "sheet"));
+            } else {
+                sendBoxes(exchange, pixels, boxes);
+            }
+
+            this.served.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            this.failed.incrementAndGet();
+            if (responded) {
+                throw e instanceof IOException ? (IOException)e : new IOException("Export failed", e);
+            }
+
+            sendError(exchange, e instanceof IllegalArgumentException ? 400 : 500, String.valueOf(e.getMessage()));
+        } finally {
+            this.buffers.add(buffers);
+            this.running.release();
+        }
+    }
+
+    private BatchSlicer createSlicer(Map<String, String> params) {
+        BatchSlicer slicer = new BatchSlicer();
+        slicer.getDetector().setConnectivity(this.defaults.getDetector().getConnectivity());
+        slicer.getDetector().setMinArea(this.defaults.getDetector().getMinArea());
+        slicer.setDetectionMode(this.defaults.getDetectionMode());
+        slicer.getGridDetector().setSpec(this.defaults.getGridDetector().getSpec());
+        slicer.getGridDetector().setTrim(this.defaults.getGridDetector().isTrim());
+        slicer.setExportFormat(this.defaults.getExportFormat());
+        slicer.setFrameThreads(this.defaults.getFrameThreads());
+        slicer.setDeduplicate(this.defaults.isDeduplicate());
+        slicer.setIndexed(this.defaults.isIndexed());
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            String value = param.getValue();
+            switch (param.getKey()) {
+                case "background":
+                case "tolerance":
+                case "alpha":
+                case "png-level":
+                case "png-filter":
+                    break;
+                case "name":
+                    if (!value.matches("[\\w.-]+")) {
+                        throw new IllegalArgumentException("invalid name " + value);
+                    }
+
+                    break;
+                case "format":
+                    slicer.setExportFormat(ExportFormat.valueOf(value.toUpperCase(Locale.ROOT)));
+                    break;
+                case "grid":
+                    slicer.setDetectionMode(DetectionMode.GRID);
+                    slicer.getGridDetector().setSpec(CliLauncher.parseGrid(value));
+                    break;
+                case "trim":
+                    slicer.getGridDetector().setTrim(parseFlag(param.getKey(), value));
+                    break;
+                case "connectivity":
+                    slicer.getDetector().setConnectivity(CliLauncher.parseConnectivity(value));
+                    break;
+                case "min-area":
+                    slicer.getDetector().setMinArea(Integer.parseInt(value));
+                    break;
+                case "dedup":
+                    slicer.setDeduplicate(parseFlag(param.getKey(), value));
+                    break;
+                case "palette":
+                    slicer.setIndexed(parseFlag(param.getKey(), value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown parameter " + param.getKey());
+            }
+        }
+
+        BackgroundKey key = this.defaults.getBackgroundKey();
+        int color = params.containsKey("background")
+                ? Color.rgba8888(CliLauncher.parseColor(params.get("background"))) : key.getColor();
+        if (params.containsKey("alpha")) {
+            key = BackgroundKey.alpha(Integer.parseInt(params.get("alpha")));
+        } else if (params.containsKey("tolerance")) {
+            key = BackgroundKey.tolerance(color, Integer.parseInt(params.get("tolerance")));
+        } else if (params.containsKey("background")) {
+            key = BackgroundKey.exact(color);
+        }
+
+        slicer.setBackgroundKey(key);
+        PngEncoder pngEncoder = this.defaults.getPngEncoder();
+        if (params.containsKey("png-level") || params.containsKey("png-filter")) {
+            pngEncoder = new PngEncoder(params.containsKey("png-level")
+                    ? Integer.parseInt(params.get("png-level")) : pngEncoder.getLevel(),
+                    params.containsKey("png-filter")
+                            ? PngEncoder.Filter.valueOf(params.get("png-filter").toUpperCase(Locale.ROOT))
+                            : pngEncoder.getFilter());
+        }
+
+        slicer.setPngEncoder(pngEncoder);
+        return slicer;
+    }
+
+    private void sendFrames(HttpExchange exchange, BatchSlicer slicer, PixelBuffer pixels, List<Rectangle> boxes,
+                            String name) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/zip");
+        exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"" + name + ".zip\"");
+        exchange.getResponseHeaders().set("X-Frame-Count", String.valueOf(boxes.size()));
+        exchange.sendResponseHeaders(200, 0);
+        ExportWriter writer = new ZipArchiveWriter(new BufferedOutputStream(exchange.getResponseBody(), BUFFER_SIZE));
+        slicer.export(pixels, boxes, name, writer, this.framePool);
+        writer.close();
+    }
+
+    private static void sendBoxes(HttpExchange exchange, PixelBuffer pixels, List<Rectangle> boxes)
+            throws IOException {
+        StringWriter output = new StringWriter();
+        JsonWriter json = new JsonWriter(output);
+        json.setOutputType(JsonWriter.OutputType.json);
+        json.object();
+        json.set("width", pixels.getWidth());
+        json.set("height", pixels.getHeight());
+        json.array("frames");
+        for (Rectangle box : boxes) {
+            json.object();
+            json.set("x", (int)box.x);
+            json.set("y", (int)box.y);
+            json.set("width", (int)box.width);
+            json.set("height", (int)box.height);
+            json.pop();
+        }
+
+        json.pop();
+        json.pop();
+        json.close();
+        sendJson(exchange, 200, output.toString());
+    }
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        try {
+            StringWriter output = new StringWriter();
+            JsonWriter json = new JsonWriter(output);
+            json.setOutputType(JsonWriter.OutputType.json);
+            json.object();
+            json.set("workers", this.workers);
+            json.set("running", this.workers - this.running.availablePermits());
+            json.set("queued", this.running.getQueueLength());
+            json.set("served", this.served.get());
+            json.set("failed", this.failed.get());
+            json.set("rejected", this.rejected.get());
+            json.pop();
+            json.close();
+            sendJson(exchange, 200, output.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringWriter output = new StringWriter();
+        JsonWriter json = new JsonWriter(output);
+        json.setOutputType(JsonWriter.OutputType.json);
+        json.object();
+        json.set("error", message);
+        json.pop();
+        json.close();
+        sendJson(exchange, status, output.toString());
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    static Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+
+        try {
+            for (String pair : query.split("&")) {
+                if (pair.isEmpty()) {
+                    continue;
+                }
+
+                int separator = pair.indexOf('=');
+                String key = URLDecoder.decode(separator < 0 ? pair : pair.substring(0, separator), "UTF-8");
+                String value = separator < 0 ? "" : URLDecoder.decode(pair.substring(separator + 1), "UTF-8");
+                params.put(key, value);
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return params;
+    }
+
+    private static boolean parseFlag(String key, String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "":
+            case "true":
+            case "1":
+                return true;
+            case "false":
+            case "0":
+                return false;
+            default:
+                throw new IllegalArgumentException("invalid value for " + key + ": " + value);
+        }
+    }
+
+    private static class Buffers {
+
+        private byte[] body = new byte[BUFFER_SIZE];
+        private ByteBuffer pixels = ByteBuffer.allocate(0);
+
+        PixelBuffer decode(InputStream input) throws IOException {
+            int length = this.read(input);
+            if (isPng(this.body, length)) {
+                try (PngRowReader reader = new PngRowReader(new ByteArrayInputStream(this.body, 0, length))) {
+                    if (!reader.isInterlaced()) {
+                        return PixelBuffer.of(reader, this.getPixels(reader.getWidth(), reader.getHeight()));
+                    }
+                }
+            }
+
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(this.body, 0, length));
+            if (image == null) {
+                throw new IllegalArgumentException("could not decode image");
+            }
+
+            return PixelBuffer.of(image, this.getPixels(image.getWidth(), image.getHeight()));
+        }
+
+        private int read(InputStream input) throws IOException {
+            int length = 0;
+            int read;
+            while ((read = input.read(this.body, length, this.body.length - length)) >= 0) {
+                length += read;
+                if (length == this.body.length) {
+                    if (length >= MAX_BODY_BYTES) {
+                        throw new IllegalArgumentException("sheet is larger than " + MAX_BODY_BYTES + " bytes");
+                    }
+
+                    byte[] body = new byte[Math.min(MAX_BODY_BYTES, length * 2)];
+                    System.arraycopy(this.body, 0, body, 0, length);
+                    this.body = body;
+                }
+            }
+
+            if (length == 0) {
+                throw new IllegalArgumentException("empty request body");
+            }
+
+            return length;
+        }
+
+        private ByteBuffer getPixels(int width, int height) {
+            long pixels = (long)width * height;
+            if (pixels > MAX_PIXELS) {
+                throw new IllegalArgumentException("sheet is larger than " + MAX_PIXELS + " pixels");
+            }
+
+            if (this.pixels.capacity() < pixels * 4) {
+                this.pixels = ByteBuffer.allocate((int)pixels * 4);
+            }
+
+            return this.pixels;
+        }
+
+        private static boolean isPng(byte[] bytes, int length) {
+            if (length < PNG_SIGNATURE.length) {
+                return false;
+            }
+
+            for (int i=0; i<PNG_SIGNATURE.length; i++) {
+                if (bytes[i] != PNG_SIGNATURE[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+}
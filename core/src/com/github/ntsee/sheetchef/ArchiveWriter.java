@@ -0,0 +1,154 @@
+package com.github.ntsee.sheetchef;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+public abstract class ArchiveWriter extends ExportWriter {
+
+    public static final int DEFAULT_MAX_PENDING = 64;
+
+    protected final OutputStream output;
+    private final SortedMap<Integer, Entry> pending = new TreeMap<>();
+    private final int maxPending;
+    private File file;
+    private int nextSequence;
+    private boolean closed;
+
+    protected ArchiveWriter(OutputStream output) {
+        this(output, DEFAULT_MAX_PENDING);
+    }
+
+    protected ArchiveWriter(OutputStream output, int maxPending) {
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("maxPending must be positive: " + maxPending);
+        }
+
+        this.output = output;
+        this.maxPending = maxPending;
+    }
+
+    @Override
+    public synchronized void write(String name, byte[] data, boolean compress) throws IOException {
+        this.checkOpen();
+        this.writeEntry(name, data, compress);
+    }
+
+    @Override
+    public synchronized void write(int sequence, String name, byte[] data, boolean compress) throws IOException {
+        this.enqueue(sequence, new Entry(name, data, compress));
+    }
+
+    @Override
+    public synchronized void skip(int sequence) throws IOException {
+        this.enqueue(sequence, null);
+    }
+
+    ArchiveWriter deleteOnAbort(File file) {
+        this.file = file;
+        return this;
+    }
+
+    public synchronized int getPendingCount() {
+        return this.pending.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+
+        this.closed = true;
+        try {
+            for (Entry entry : this.pending.values()) {
+                if (entry != null) {
+                    this.writeEntry(entry.name, entry.data, entry.compress);
+                }
+            }
+
+            this.pending.clear();
+            this.notifyAll();
+            this.finish();
+        } finally {
+            this.output.close();
+        }
+    }
+
+    @Override
+    public synchronized void abort(Exception cause) {
+        if (this.closed) {
+            return;
+        }
+
+        this.closed = true;
+        this.pending.clear();
+        this.notifyAll();
+        try {
+            this.output.close();
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+
+        if (this.file != null && this.file.exists() && !this.file.delete()) {
+            cause.addSuppressed(new IOException("Could not delete partial archive " + this.file));
+        }
+    }
+
+    protected abstract void writeEntry(String name, byte[] data, boolean compress) throws IOException;
+
+    protected abstract void finish() throws IOException;
+
+    private void enqueue(int sequence, Entry entry) throws IOException {
+        this.checkOpen();
+        if (sequence < this.nextSequence || this.pending.containsKey(sequence)) {
+            throw new IllegalArgumentException("Sequence already written: " + sequence);
+        }
+
+        try {
+            while (sequence != this.nextSequence && this.pending.size() >= this.maxPending) {
+                this.wait();
+                this.checkOpen();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for frame " + this.nextSequence);
+        }
+
+        this.pending.put(sequence, entry);
+        boolean advanced = false;
+        while (!this.pending.isEmpty() && this.pending.firstKey() == this.nextSequence) {
+            Entry next = this.pending.remove(this.nextSequence++);
+            advanced = true;
+            if (next != null) {
+                this.writeEntry(next.name, next.data, next.compress);
+            }
+        }
+
+        if (advanced) {
+            this.notifyAll();
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (this.closed) {
+            throw new IOException("Archive is closed");
+        }
+    }
+
+    private static class Entry {
+
+        private final String name;
+        private final byte[] data;
+        private final boolean compress;
+
+        Entry(String name, byte[] data, boolean compress) {
+            this.name = name;
+            this.data = data;
+            this.compress = compress;
+        }
+    }
+}
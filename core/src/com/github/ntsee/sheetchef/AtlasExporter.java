@@ -0,0 +1,115 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class AtlasExporter {
+
+    private static final String PAGE_EXTENSION = ".png";
+    private static final String INDEX_EXTENSION = ".atlas";
+
+    private final AtlasPacker packer;
+    private PngEncoder pngEncoder = new PngEncoder();
+    private SliceMetrics metrics = new SliceMetrics();
+
+    public AtlasExporter() {
+        this(new AtlasPacker());
+    }
+
+    public AtlasExporter(AtlasPacker packer) {
+        this.packer = packer;
+    }
+
+    public AtlasPacker getPacker() {
+        return this.packer;
+    }
+
+    public void setPngEncoder(PngEncoder pngEncoder) {
+        this.pngEncoder = pngEncoder;
+    }
+
+    public PngEncoder getPngEncoder() {
+        return this.pngEncoder;
+    }
+
+    public void setMetrics(SliceMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public SliceMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    public void export(PixelBuffer pixels, List<Rectangle> boxes, String name, FrameExporter exporter,
+                       FileWriter writer, ProgressMonitor monitor) throws IOException {
+        this.export(pixels, boxes, null, name, exporter, writer, monitor);
+    }
+
+    public void export(PixelBuffer pixels, List<Rectangle> boxes, int[] originals, String name,
+                       FrameExporter exporter, FileWriter writer, ProgressMonitor monitor) throws IOException {
+        List<AtlasPacker.Page> pages = this.packer.pack(boxes, originals);
+        PngEncoder pngEncoder = this.pngEncoder;
+        SliceMetrics metrics = this.metrics;
+        exporter.export(pages.size(), index -> {
+            long start = metrics.start();
+            BufferedImage image = render(pixels, boxes, pages.get(index));
+            metrics.record(SliceMetrics.Phase.EXTRACT, start);
+            start = metrics.start();
+            byte[] bytes = pngEncoder.encode(image);
+            metrics.record(SliceMetrics.Phase.ENCODE, start);
+
+            writer.write(getPageFileName(name, index), bytes);
+        }, monitor);
+
+        writer.write(name + INDEX_EXTENSION, createIndex(name, pages).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BufferedImage render(PixelBuffer pixels, List<Rectangle> boxes, AtlasPacker.Page page) {
+        BufferedImage image = new BufferedImage(page.getWidth(), page.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        for (AtlasPacker.Region region : page.getRegions()) {
+            Rectangle box = boxes.get(region.getIndex());
+            FrameExtractor.copy(pixels, (int)box.x, (int)box.y, region.getWidth(), region.getHeight(), image,
+                    region.getX(), region.getY());
+        }
+
+        return image;
+    }
+
+    public static String createIndex(String name, List<AtlasPacker.Page> pages) {
+        StringBuilder index = new StringBuilder();
+        for (int i=0; i<pages.size(); i++) {
+            AtlasPacker.Page page = pages.get(i);
+            index.append('\n').append(getPageFileName(name, i)).append('\n');
+            index.append("size: ").append(page.getWidth()).append(", ").append(page.getHeight()).append('\n');
+            index.append("format: RGBA8888\n");
+            index.append("filter: Nearest, Nearest\n");
+            index.append("repeat: none\n");
+            for (AtlasPacker.Region region : page.getRegions()) {
+                index.append(name).append('\n');
+                index.append("  rotate: false\n");
+                index.append("  xy: ").append(region.getX()).append(", ").append(region.getY()).append('\n');
+                index.append("  size: ").append(region.getWidth()).append(", ").append(region.getHeight())
+                        .append('\n');
+                index.append("  orig: ").append(region.getWidth()).append(", ").append(region.getHeight())
+                        .append('\n');
+                index.append("  offset: 0, 0\n");
+                index.append("  index: ").append(region.getIndex()).append('\n');
+            }
+        }
+
+        return index.toString();
+    }
+
+    public static String getPageFileName(String name, int page) {
+        return page == 0 ? name + PAGE_EXTENSION : name + (page + 1) + PAGE_EXTENSION;
+    }
+
+    public interface FileWriter {
+
+        void write(String fileName, byte[] bytes) throws IOException;
+    }
+}
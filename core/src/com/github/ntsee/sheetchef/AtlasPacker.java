@@ -0,0 +1,208 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class AtlasPacker {
+
+    public static final int DEFAULT_MAX_PAGE_SIZE = 2048;
+    public static final int DEFAULT_PADDING = 2;
+
+    private final int maxPageSize;
+    private final int padding;
+
+    public AtlasPacker() {
+        this(DEFAULT_MAX_PAGE_SIZE, DEFAULT_PADDING);
+    }
+
+    public AtlasPacker(int maxPageSize, int padding) {
+        if (!MathUtils.isPowerOfTwo(maxPageSize)) {
+            throw new IllegalArgumentException("maxPageSize must be a power of two: " + maxPageSize);
+        }
+
+        if (padding < 0) {
+            throw new IllegalArgumentException("padding must not be negative: " + padding);
+        }
+
+        this.maxPageSize = maxPageSize;
+        this.padding = padding;
+    }
+
+    public int getMaxPageSize() {
+        return this.maxPageSize;
+    }
+
+    public int getPadding() {
+        return this.padding;
+    }
+
+    public List<Page> pack(List<Rectangle> boxes) {
+        return this.pack(boxes, null);
+    }
+
+    public List<Page> pack(List<Rectangle> boxes, int[] originals) {
+        List<Integer> unique = new ArrayList<>(boxes.size());
+        for (int i=0; i<boxes.size(); i++) {
+            if (originals == null || originals[i] == i) {
+                unique.add(i);
+            }
+        }
+
+        Integer[] order = unique.toArray(new Integer[0]);
+        Region[] placed = new Region[boxes.size()];
+        Page[] placedPages = new Page[boxes.size()];
+        long area = 0;
+        int widest = 1;
+        for (int i=0; i<order.length; i++) {
+            Rectangle box = boxes.get(order[i]);
+            area += (long)((int)box.width + this.padding) * ((int)box.height + this.padding);
+            widest = Math.max(widest, (int)box.width);
+        }
+
+        Arrays.sort(order, (a, b) -> {
+            Rectangle boxA = boxes.get(a);
+            Rectangle boxB = boxes.get(b);
+            int result = Float.compare(boxB.height, boxA.height);
+            return result != 0 ? result : Float.compare(boxB.width, boxA.width);
+        });
+
+        int side = (int)Math.min(this.maxPageSize, Math.ceil(Math.sqrt(area)));
+        int pageWidth = MathUtils.nextPowerOfTwo(Math.max(side, Math.min(widest, this.maxPageSize)));
+        List<Page> pages = new ArrayList<>();
+        Page page = null;
+        int x = 0;
+        int y = 0;
+        int shelfHeight = 0;
+        int bottom = 0;
+        for (int index : order) {
+            Rectangle box = boxes.get(index);
+            int width = (int)box.width;
+            int height = (int)box.height;
+            if (width > this.maxPageSize || height > this.maxPageSize) {
+                Page single = new Page(MathUtils.nextPowerOfTwo(width));
+                placed[index] = single.add(index, 0, 0, width, height);
+                placedPages[index] = single;
+                pages.add(single.close(MathUtils.nextPowerOfTwo(height)));
+                continue;
+            }
+
+            if (page != null && x + width > page.width) {
+                y += shelfHeight + this.padding;
+                x = 0;
+                shelfHeight = 0;
+            }
+
+            if (page == null || y + height > this.maxPageSize) {
+                if (page != null) {
+                    pages.add(page.close(MathUtils.nextPowerOfTwo(bottom)));
+                }
+
+                page = new Page(pageWidth);
+                x = 0;
+                y = 0;
+                shelfHeight = 0;
+                bottom = 0;
+            }
+
+            placed[index] = page.add(index, x, y, width, height);
+            placedPages[index] = page;
+            x += width + this.padding;
+            shelfHeight = Math.max(shelfHeight, height);
+            bottom = Math.max(bottom, y + height);
+        }
+
+        if (page != null) {
+            pages.add(page.close(MathUtils.nextPowerOfTwo(bottom)));
+        }
+
+        for (int i=0; originals != null && i<originals.length; i++) {
+            if (originals[i] != i) {
+                Region original = placed[originals[i]];
+                placedPages[originals[i]].add(i, original.x, original.y, original.width, original.height);
+            }
+        }
+
+        return pages;
+    }
+
+    public static class Page {
+
+        private final List<Region> regions = new ArrayList<>();
+        private int width;
+        private int height;
+
+        Page(int width) {
+            this.width = width;
+        }
+
+        private Region add(int index, int x, int y, int width, int height) {
+            Region region = new Region(index, x, y, width, height);
+            this.regions.add(region);
+            return region;
+        }
+
+        private Page close(int height) {
+            int right = 1;
+            for (Region region : this.regions) {
+                right = Math.max(right, region.x + region.width);
+            }
+
+            this.width = Math.min(this.width, MathUtils.nextPowerOfTwo(right));
+            this.height = height;
+            return this;
+        }
+
+        public int getWidth() {
+            return this.width;
+        }
+
+        public int getHeight() {
+            return this.height;
+        }
+
+        public List<Region> getRegions() {
+            return this.regions;
+        }
+    }
+
+    public static class Region {
+
+        private final int index;
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+
+        Region(int index, int x, int y, int width, int height) {
+            this.index = index;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        public int getIndex() {
+            return this.index;
+        }
+
+        public int getX() {
+            return this.x;
+        }
+
+        public int getY() {
+            return this.y;
+        }
+
+        public int getWidth() {
+            return this.width;
+        }
+
+        public int getHeight() {
+            return this.height;
+        }
+    }
+}
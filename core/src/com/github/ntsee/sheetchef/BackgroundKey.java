@@ -0,0 +1,139 @@
+package com.github.ntsee.sheetchef;
+
+public final class BackgroundKey {
+
+    private final Mode mode;
+    private final int color;
+    private final int threshold;
+
+    private BackgroundKey(Mode mode, int color, int threshold) {
+        this.mode = mode;
+        this.color = color;
+        this.threshold = threshold;
+    }
+
+    public static BackgroundKey exact(int rgba8888) {
+        return new BackgroundKey(Mode.EXACT, rgba8888, 0);
+    }
+
+    public static BackgroundKey tolerance(int rgba8888, int tolerance) {
+        if (tolerance < 0 || tolerance > 255) {
+            throw new IllegalArgumentException("tolerance must be between 0 and 255: " + tolerance);
+        }
+
+        return tolerance == 0 ? exact(rgba8888) : new BackgroundKey(Mode.TOLERANCE, rgba8888, tolerance);
+    }
+
+    public static BackgroundKey alpha(int threshold) {
+        if (threshold < 0 || threshold > 255) {
+            throw new IllegalArgumentException("alpha threshold must be between 0 and 255: " + threshold);
+        }
+
+        return new BackgroundKey(Mode.ALPHA, 0, threshold);
+    }
+
+    public Mode getMode() {
+        return this.mode;
+    }
+
+    public int getColor() {
+        return this.color;
+    }
+
+    public int getThreshold() {
+        return this.threshold;
+    }
+
+    public boolean isBackground(int rgba8888) {
+        switch (this.mode) {
+            case EXACT:
+                return rgba8888 == this.color;
+            case TOLERANCE:
+                return distance(rgba8888, this.color) <= this.threshold;
+            default:
+                return (rgba8888 & 0xFF) <= this.threshold;
+        }
+    }
+
+    public void pack(int[] row, int offset, int length, long[] words, int wordOffset) {
+        int wordCount = ForegroundMask.getWordCount(length);
+        for (int i=0; i<wordCount; i++) {
+            int start = offset + (i << 6);
+            int end = Math.min(offset + length, start + 64);
+            long word = 0;
+            switch (this.mode) {
+                case EXACT:
+                    int first = start;
+                    while (first < end && row[first] == this.color) {
+                        first++;
+                    }
+
+                    for (int x=first; x<end; x++) {
+                        int difference = row[x] ^ this.color;
+                        word |= (long)((difference | -difference) >>> 31) << (x - start);
+                    }
+                    break;
+                case TOLERANCE:
+                    for (int x=start; x<end; x++) {
+                        word |= (long)((this.threshold - distance(row[x], this.color)) >>> 31) << (x - start);
+                    }
+                    break;
+                default:
+                    for (int x=start; x<end; x++) {
+                        word |= (long)((this.threshold - (row[x] & 0xFF)) >>> 31) << (x - start);
+                    }
+                    break;
+            }
+
+            words[wordOffset + i] = word;
+        }
+    }
+
+    private static int distance(int a, int b) {
+        int red = Math.abs((a >>> 24) - (b >>> 24));
+        int green = Math.abs((a >>> 16 & 0xFF) - (b >>> 16 & 0xFF));
+        int blue = Math.abs((a >>> 8 & 0xFF) - (b >>> 8 & 0xFF));
+        int alpha = Math.abs((a & 0xFF) - (b & 0xFF));
+        return Math.max(Math.max(red, green), Math.max(blue, alpha));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof BackgroundKey)) {
+            return false;
+        }
+
+        BackgroundKey key = (BackgroundKey)o;
+        return this.mode == key.mode && this.color == key.color && this.threshold == key.threshold;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = this.mode.hashCode();
+        result = 31 * result + this.color;
+        return 31 * result + this.threshold;
+    }
+
+    @Override
+    public String toString() {
+        switch (this.mode) {
+            case EXACT:
+                return String.format("%08x", this.color);
+            case TOLERANCE:
+                return String.format("%08x~%d", this.color, this.threshold);
+            default:
+                return "alpha<=" + this.threshold;
+        }
+    }
+
+    public enum Mode {
+
+        EXACT,
+        TOLERANCE,
+        ALPHA
+    }
+}
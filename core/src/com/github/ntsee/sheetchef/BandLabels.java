@@ -0,0 +1,112 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.util.List;
+
+final class BandLabels {
+
+    final List<Rectangle> boxes;
+    final int[] handleParent;
+    final int[] minX;
+    final int[] minY;
+    final int[] maxX;
+    final int[] maxY;
+    final long[] area;
+    int handleCount;
+    final int[] topStart;
+    final int[] topEnd;
+    final int[] topHandle;
+    int topCount;
+    final int[] bottomStart;
+    final int[] bottomEnd;
+    final int[] bottomHandle;
+    int bottomCount;
+
+    BandLabels(int runs, List<Rectangle> boxes) {
+        this.boxes = boxes;
+        int handles = runs * 2;
+        this.handleParent = new int[handles];
+        this.minX = new int[handles];
+        this.minY = new int[handles];
+        this.maxX = new int[handles];
+        this.maxY = new int[handles];
+        this.area = new long[handles];
+        this.topStart = new int[runs];
+        this.topEnd = new int[runs];
+        this.topHandle = new int[runs];
+        this.bottomStart = new int[runs];
+        this.bottomEnd = new int[runs];
+        this.bottomHandle = new int[runs];
+    }
+
+    int addHandle() {
+        int id = this.handleCount++;
+        this.handleParent[id] = id;
+        this.minX[id] = Integer.MAX_VALUE;
+        this.minY[id] = Integer.MAX_VALUE;
+        this.maxX[id] = Integer.MIN_VALUE;
+        this.maxY[id] = Integer.MIN_VALUE;
+        this.area[id] = 0;
+        return id;
+    }
+
+    int addTopRun(int start, int end) {
+        int id = this.addHandle();
+        this.topStart[this.topCount] = start;
+        this.topEnd[this.topCount] = end;
+        this.topHandle[this.topCount] = id;
+        this.topCount++;
+        return id;
+    }
+
+    void addBottomRun(int start, int end, int handle) {
+        this.bottomStart[this.bottomCount] = start;
+        this.bottomEnd[this.bottomCount] = end;
+        this.bottomHandle[this.bottomCount] = handle;
+        this.bottomCount++;
+    }
+
+    void record(int handle, int minX, int minY, int maxX, int maxY, long area) {
+        int root = this.find(handle);
+        this.minX[root] = Math.min(this.minX[root], minX);
+        this.minY[root] = Math.min(this.minY[root], minY);
+        this.maxX[root] = Math.max(this.maxX[root], maxX);
+        this.maxY[root] = Math.max(this.maxY[root], maxY);
+        this.area[root] += area;
+    }
+
+    void unionHandles(int a, int b) {
+        int rootA = this.find(a);
+        int rootB = this.find(b);
+        if (rootA == rootB) {
+            return;
+        }
+
+        int root = Math.min(rootA, rootB);
+        int child = Math.max(rootA, rootB);
+        this.handleParent[child] = root;
+        this.record(root, this.minX[child], this.minY[child], this.maxX[child], this.maxY[child], this.area[child]);
+    }
+
+    void resolve() {
+        for (int i=0; i<this.handleCount; i++) {
+            this.handleParent[i] = this.find(i);
+        }
+    }
+
+    int find(int handle) {
+        int root = handle;
+        while (this.handleParent[root] != root) {
+            root = this.handleParent[root];
+        }
+
+        while (this.handleParent[handle] != root) {
+            int next = this.handleParent[handle];
+            this.handleParent[handle] = root;
+            handle = next;
+        }
+
+        return root;
+    }
+}
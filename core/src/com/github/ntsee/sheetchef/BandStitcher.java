@@ -0,0 +1,112 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.util.List;
+
+final class BandStitcher {
+
+    private final int[] parent;
+    private final int[] minX;
+    private final int[] minY;
+    private final int[] maxX;
+    private final int[] maxY;
+    private final long[] area;
+
+    private BandStitcher(int handles) {
+        this.parent = new int[handles];
+        this.minX = new int[handles];
+        this.minY = new int[handles];
+        this.maxX = new int[handles];
+        this.maxY = new int[handles];
+        this.area = new long[handles];
+    }
+
+    static void stitch(List<BandLabels> bands, Connectivity connectivity, int minArea, List<Rectangle> boxes) {
+        int[] offsets = new int[bands.size()];
+        int handles = 0;
+        for (int i=0; i<bands.size(); i++) {
+            offsets[i] = handles;
+            handles += bands.get(i).handleCount;
+        }
+
+        BandStitcher stitcher = new BandStitcher(handles);
+        for (int i=0; i<bands.size(); i++) {
+            BandLabels band = bands.get(i);
+            for (int h=0; h<band.handleCount; h++) {
+                stitcher.parent[offsets[i] + h] = offsets[i] + band.handleParent[h];
+            }
+        }
+
+        int reach = connectivity == Connectivity.EIGHT ? 1 : 0;
+        for (int i=0; i+1<bands.size(); i++) {
+            stitcher.join(bands.get(i), offsets[i], bands.get(i + 1), offsets[i + 1], reach);
+        }
+
+        for (int i=0; i<handles; i++) {
+            stitcher.minX[i] = Integer.MAX_VALUE;
+            stitcher.minY[i] = Integer.MAX_VALUE;
+            stitcher.maxX[i] = Integer.MIN_VALUE;
+            stitcher.maxY[i] = Integer.MIN_VALUE;
+        }
+
+        for (int i=0; i<bands.size(); i++) {
+            BandLabels band = bands.get(i);
+            for (int h=0; h<band.handleCount; h++) {
+                if (band.handleParent[h] == h && band.area[h] > 0) {
+                    int root = stitcher.find(offsets[i] + h);
+                    stitcher.minX[root] = Math.min(stitcher.minX[root], band.minX[h]);
+                    stitcher.minY[root] = Math.min(stitcher.minY[root], band.minY[h]);
+                    stitcher.maxX[root] = Math.max(stitcher.maxX[root], band.maxX[h]);
+                    stitcher.maxY[root] = Math.max(stitcher.maxY[root], band.maxY[h]);
+                    stitcher.area[root] += band.area[h];
+                }
+            }
+        }
+
+        for (int i=0; i<handles; i++) {
+            if (stitcher.parent[i] == i && stitcher.area[i] >= minArea) {
+                boxes.add(new Rectangle(stitcher.minX[i], stitcher.minY[i],
+                        stitcher.maxX[i] - stitcher.minX[i] + 1, stitcher.maxY[i] - stitcher.minY[i] + 1));
+            }
+        }
+    }
+
+    private void join(BandLabels upper, int upperOffset, BandLabels lower, int lowerOffset, int reach) {
+        int j = 0;
+        for (int i=0; i<lower.topCount; i++) {
+            int start = lower.topStart[i] - reach;
+            int end = lower.topEnd[i] + reach;
+            while (j < upper.bottomCount && upper.bottomEnd[j] <= start) {
+                j++;
+            }
+
+            for (int k=j; k<upper.bottomCount && upper.bottomStart[k] < end; k++) {
+                this.union(upperOffset + upper.bottomHandle[k], lowerOffset + lower.topHandle[i]);
+            }
+        }
+    }
+
+    private int find(int id) {
+        int root = id;
+        while (this.parent[root] != root) {
+            root = this.parent[root];
+        }
+
+        while (this.parent[id] != root) {
+            int next = this.parent[id];
+            this.parent[id] = root;
+            id = next;
+        }
+
+        return root;
+    }
+
+    private void union(int a, int b) {
+        int rootA = this.find(a);
+        int rootB = this.find(b);
+        if (rootA != rootB) {
+            this.parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+}
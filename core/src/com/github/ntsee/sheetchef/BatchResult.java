@@ -0,0 +1,100 @@
+package com.github.ntsee.sheetchef;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+public class BatchResult {
+
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private final int sheetCount;
+    private final int completedCount;
+    private final Map<File, IOException> failures;
+    private final long frameCount;
+    private final long pixelCount;
+    private final long byteCount;
+    private final long elapsedNanos;
+
+    BatchResult(int sheetCount, int completedCount, Map<File, IOException> failures, long frameCount,
+                long pixelCount, long byteCount, long elapsedNanos) {
+        this.sheetCount = sheetCount;
+        this.completedCount = completedCount;
+        this.failures = Collections.unmodifiableMap(failures);
+        this.frameCount = frameCount;
+        this.pixelCount = pixelCount;
+        this.byteCount = byteCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getSheetCount() {
+        return this.sheetCount;
+    }
+
+    public int getCompletedCount() {
+        return this.completedCount;
+    }
+
+    public boolean isCancelled() {
+        return this.completedCount < this.sheetCount;
+    }
+
+    public Map<File, IOException> getFailures() {
+        return this.failures;
+    }
+
+    public long getFrameCount() {
+        return this.frameCount;
+    }
+
+    public long getPixelCount() {
+        return this.pixelCount;
+    }
+
+    public long getByteCount() {
+        return this.byteCount;
+    }
+
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    public double getElapsedSeconds() {
+        return this.elapsedNanos / NANOS_PER_SECOND;
+    }
+
+    public double getSheetsPerSecond() {
+        return this.perSecond(this.completedCount - this.failures.size());
+    }
+
+    public double getFramesPerSecond() {
+        return this.perSecond(this.frameCount);
+    }
+
+    public double getMegapixelsPerSecond() {
+        return this.perSecond(this.pixelCount / 1e6);
+    }
+
+    public double getMegabytesPerSecond() {
+        return this.perSecond(this.byteCount / BYTES_PER_MEGABYTE);
+    }
+
+    private double perSecond(double amount) {
+        return this.elapsedNanos == 0 ? 0 : amount / this.getElapsedSeconds();
+    }
+
+    @Override
+    public String toString() {
+        String sheets = this.isCancelled()
+                ? String.format("Cancelled after %d of %d sheets, sliced %d", this.completedCount, this.sheetCount,
+                        this.completedCount - this.failures.size())
+                : String.format("Sliced %d of %d sheets", this.sheetCount - this.failures.size(), this.sheetCount);
+        return String.format("%s into %d frames (%.1f MB) in %.2fs%n"
+                        + "%.1f sheets/s, %.0f frames/s, %.1f Mpx/s decoded, %.1f MB/s written",
+                sheets, this.frameCount,
+                this.byteCount / BYTES_PER_MEGABYTE, this.getElapsedSeconds(), this.getSheetsPerSecond(),
+                this.getFramesPerSecond(), this.getMegapixelsPerSecond(), this.getMegabytesPerSecond());
+    }
+}
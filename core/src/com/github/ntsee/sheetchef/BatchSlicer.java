@@ -0,0 +1,461 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Rectangle;
+import com.github.ntsee.sheetchef.exceptions.FileFormatException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BatchSlicer {
+
+    private final ComponentDetector detector = new ComponentDetector();
+    private final GridDetector gridDetector = new GridDetector();
+    private final AtlasExporter atlasExporter = new AtlasExporter();
+    private DetectionMode detectionMode = DetectionMode.COMPONENTS;
+    private BackgroundKey backgroundKey = BackgroundKey.exact(Color.rgba8888(Color.WHITE));
+    private ExportFormat exportFormat = ExportFormat.BMP;
+    private ExportTarget exportTarget = ExportTarget.DIRECTORY;
+    private PngEncoder pngEncoder = new PngEncoder();
+    private int sheetThreads = 2;
+    private int frameThreads = Runtime.getRuntime().availableProcessors();
+    private boolean streaming;
+    private boolean deduplicate;
+    private boolean indexed;
+    private boolean incremental;
+    private Listener listener;
+
+    public AtlasExporter getAtlasExporter() {
+        return this.atlasExporter;
+    }
+
+    public ComponentDetector getDetector() {
+        return this.detector;
+    }
+
+    public GridDetector getGridDetector() {
+        return this.gridDetector;
+    }
+
+    public void setDetectionMode(DetectionMode detectionMode) {
+        this.detectionMode = detectionMode;
+    }
+
+    public DetectionMode getDetectionMode() {
+        return this.detectionMode;
+    }
+
+    public void setBackgroundColor(Color color) {
+        this.setBackgroundColor(Color.rgba8888(color));
+    }
+
+    public void setBackgroundColor(int rgba8888) {
+        this.backgroundKey = BackgroundKey.exact(rgba8888);
+    }
+
+    public int getBackgroundColor() {
+        return this.backgroundKey.getColor();
+    }
+
+    public void setBackgroundKey(BackgroundKey backgroundKey) {
+        this.backgroundKey = backgroundKey;
+    }
+
+    public BackgroundKey getBackgroundKey() {
+        return this.backgroundKey;
+    }
+
+    public void setExportFormat(ExportFormat exportFormat) {
+        this.exportFormat = exportFormat;
+    }
+
+    public ExportFormat getExportFormat() {
+        return this.exportFormat;
+    }
+
+    public void setExportTarget(ExportTarget exportTarget) {
+        this.exportTarget = exportTarget;
+    }
+
+    public ExportTarget getExportTarget() {
+        return this.exportTarget;
+    }
+
+    public void setPngEncoder(PngEncoder pngEncoder) {
+        this.pngEncoder = pngEncoder;
+        this.atlasExporter.setPngEncoder(pngEncoder);
+    }
+
+    public PngEncoder getPngEncoder() {
+        return this.pngEncoder;
+    }
+
+    public void setSheetThreads(int sheetThreads) {
+        if (sheetThreads < 1) {
+            throw new IllegalArgumentException("sheetThreads must be positive: " + sheetThreads);
+        }
+
+        this.sheetThreads = sheetThreads;
+    }
+
+    public int getSheetThreads() {
+        return this.sheetThreads;
+    }
+
+    public void setFrameThreads(int frameThreads) {
+        if (frameThreads < 1) {
+            throw new IllegalArgumentException("frameThreads must be positive: " + frameThreads);
+        }
+
+        this.frameThreads = frameThreads;
+    }
+
+    public int getFrameThreads() {
+        return this.frameThreads;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public boolean isStreaming() {
+        return this.streaming;
+    }
+
+    public void setDeduplicate(boolean deduplicate) {
+        this.deduplicate = deduplicate;
+    }
+
+    public boolean isDeduplicate() {
+        return this.deduplicate;
+    }
+
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+    }
+
+    public boolean isIndexed() {
+        return this.indexed;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public boolean isIncremental() {
+        return this.incremental;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public BatchResult slice(List<File> sheets, File outputDirectory) throws IOException {
+        return this.slice(planOutputDirectories(sheets, outputDirectory));
+    }
+
+    public BatchResult slice(Map<File, File> targets) throws IOException {
+        return this.slice(targets, ProgressMonitor.NONE);
+    }
+
+    public BatchResult slice(Map<File, File> targets, ProgressMonitor monitor) throws IOException {
+        Map<File, IOException> failures = new ConcurrentHashMap<>();
+        AtomicLong frames = new AtomicLong();
+        AtomicLong pixels = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+        AtomicInteger completed = new AtomicInteger();
+        Semaphore queued = new Semaphore(this.sheetThreads * 2);
+        ExecutorService sheetPool = Executors.newFixedThreadPool(this.sheetThreads,
+                new WorkerThreadFactory("sheetchef-sheet-"));
+        ExecutorService framePool = Executors.newFixedThreadPool(this.frameThreads,
+                new WorkerThreadFactory("sheetchef-frame-"));
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Map.Entry<File, File> target : targets.entrySet()) {
+                queued.acquire();
+                if (monitor.isCancelled()) {
+                    queued.release();
+                    break;
+                }
+
+                futures.add(sheetPool.submit(() -> {
+                    File sheet = target.getKey();
+                    if (monitor.isCancelled()) {
+                        queued.release();
+                        return;
+                    }
+
+                    try {
+                        this.notifyStarted(sheet);
+                        int count = this.sliceSheet(sheet, target.getValue(), framePool, pixels, bytes);
+                        frames.addAndGet(count);
+                        this.notifyFinished(sheet, count);
+                    } catch (IOException e) {
+                        this.notifyFailed(sheet, e, failures);
+                    } catch (RuntimeException e) {
+                        this.notifyFailed(sheet, new IOException("Failed to slice " + sheet, e), failures);
+                    } finally {
+                        monitor.setProgress((float)completed.incrementAndGet() / targets.size());
+                        queued.release();
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Batch interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Batch failed", e.getCause());
+        } finally {
+            sheetPool.shutdownNow();
+            framePool.shutdownNow();
+        }
+
+        return new BatchResult(targets.size(), completed.get(), failures, frames.get(), pixels.get(), bytes.get(),
+                System.nanoTime() - start);
+    }
+
+    private int sliceSheet(File sheet, File target, ExecutorService framePool, AtomicLong pixelCount,
+                           AtomicLong byteCount) throws IOException {
+        if (this.streaming && this.detectionMode == DetectionMode.COMPONENTS && isPng(sheet)
+                && !this.exportFormat.isAtlas() && !this.deduplicate && !this.isIndexedExport()
+                && !this.isIncrementalExport()) {
+            try (PngRowReader reader = openPng(sheet)) {
+                if (!reader.isInterlaced()) {
+                    pixelCount.addAndGet((long)reader.getWidth() * reader.getHeight());
+                    List<Rectangle> boxes = this.detector.detect(reader, this.backgroundKey);
+                    this.streamFrames(sheet, target, boxes, framePool, byteCount);
+                    return boxes.size();
+                }
+            }
+        }
+
+        PixelBuffer pixels = decode(sheet);
+        pixelCount.addAndGet((long)pixels.getWidth() * pixels.getHeight());
+        List<Rectangle> boxes = this.detect(pixels);
+        ExportWriter writer = this.openWriter(target);
+        try {
+            byteCount.addAndGet(this.export(pixels, boxes, target.getName(), writer, framePool,
+                    this.exportTarget.isArchive() ? null : target));
+        } catch (IOException | RuntimeException e) {
+            writer.abort(e);
+            throw e;
+        }
+
+        writer.close();
+        return boxes.size();
+    }
+
+    public List<Rectangle> detect(PixelBuffer pixels) {
+        return this.detectionMode == DetectionMode.GRID
+                ? this.gridDetector.detect(pixels, this.backgroundKey)
+                : this.detector.detect(pixels, this.backgroundKey);
+    }
+
+    public long export(PixelBuffer pixels, List<Rectangle> boxes, String name, ExportWriter writer,
+                       ExecutorService framePool) throws IOException {
+        return this.export(pixels, boxes, name, writer, framePool, null);
+    }
+
+    private long export(PixelBuffer pixels, List<Rectangle> boxes, String name, ExportWriter writer,
+                        ExecutorService framePool, File directory) throws IOException {
+        return this.createSheetExporter().export(pixels, boxes, name, writer, directory,
+                new FrameExporter(framePool, this.frameThreads * 2), ProgressMonitor.NONE);
+    }
+
+    private SheetExporter createSheetExporter() {
+        SheetExporter sheetExporter = new SheetExporter();
+        sheetExporter.setFormat(this.exportFormat);
+        sheetExporter.setPngEncoder(this.pngEncoder);
+        sheetExporter.setAtlasExporter(this.atlasExporter);
+        sheetExporter.setDeduplicate(this.deduplicate);
+        sheetExporter.setIndexed(this.indexed);
+        sheetExporter.setIncremental(this.incremental);
+        return sheetExporter;
+    }
+
+    private boolean isIndexedExport() {
+        return this.indexed && this.exportFormat.supportsPalette();
+    }
+
+    private boolean isIncrementalExport() {
+        return this.incremental && this.exportTarget == ExportTarget.DIRECTORY && !this.exportFormat.isAtlas();
+    }
+
+    private void streamFrames(File sheet, File target, List<Rectangle> boxes, ExecutorService framePool,
+                              AtomicLong byteCount) throws IOException {
+        ExportFormat format = this.exportFormat;
+        PngEncoder pngEncoder = this.pngEncoder;
+        AtomicInteger emitted = new AtomicInteger();
+        ExportWriter writer = this.openWriter(target);
+        try {
+            FrameExporter.Session session = new FrameExporter(framePool, this.frameThreads * 2).open(writer);
+            try (PngRowReader reader = openPng(sheet)) {
+                StreamingExtractor.extract(reader, boxes, format.getImageType(), (index, frame) ->
+                        session.submit(emitted.getAndIncrement(), sequence ->
+                                writeFrame(writer, frame, index, sequence, format, pngEncoder, byteCount)));
+            } catch (IOException | RuntimeException e) {
+                session.cancel();
+                throw e;
+            }
+
+            session.finish();
+        } catch (IOException | RuntimeException e) {
+            writer.abort(e);
+            throw e;
+        }
+
+        writer.close();
+    }
+
+    private ExportWriter openWriter(File target) throws IOException {
+        return ExportWriter.open(this.exportTarget, ExportWriter.getLocation(this.exportTarget,
+                target.getParentFile(), target.getName()));
+    }
+
+    private static void writeFrame(ExportWriter writer, BufferedImage frame, int index, int sequence,
+                                   ExportFormat format, PngEncoder pngEncoder, AtomicLong byteCount)
+            throws IOException {
+        byte[] bytes = format == ExportFormat.PNG ? pngEncoder.encode(frame) : FrameEncoder.encode(frame, format);
+        writer.write(sequence, FrameEncoder.getFileName(index, format), bytes, !format.isCompressed());
+        byteCount.addAndGet(bytes.length);
+    }
+
+    private static boolean isPng(File sheet) {
+        return sheet.getName().toLowerCase(Locale.ROOT).endsWith(".png");
+    }
+
+    private static PngRowReader openPng(File sheet) throws IOException {
+        return new PngRowReader(new BufferedInputStream(new FileInputStream(sheet)));
+    }
+
+    private void notifyStarted(File sheet) {
+        if (this.listener != null) {
+            this.listener.onSheetStarted(sheet);
+        }
+    }
+
+    private void notifyFinished(File sheet, int frames) {
+        if (this.listener != null) {
+            this.listener.onSheetFinished(sheet, frames);
+        }
+    }
+
+    private void notifyFailed(File sheet, IOException e, Map<File, IOException> failures) {
+        failures.put(sheet, e);
+        if (this.listener != null) {
+            this.listener.onSheetFailed(sheet, e);
+        }
+    }
+
+    public static PixelBuffer decode(File sheet) throws IOException {
+        BufferedImage image = ImageIO.read(sheet);
+        if (image == null) {
+            throw new FileFormatException(new FileHandle(sheet), "could not load image");
+        }
+
+        return PixelBuffer.of(image);
+    }
+
+    public static List<File> collectSheets(List<File> inputs) throws IOException {
+        List<File> sheets = new ArrayList<>();
+        for (File input : inputs) {
+            if (input.isDirectory()) {
+                File[] files = input.listFiles();
+                if (files == null) {
+                    throw new FileFormatException(new FileHandle(input), "could not list directory");
+                }
+
+                Arrays.sort(files);
+                for (File file : files) {
+                    if (file.isFile() && isSheet(file)) {
+                        sheets.add(file);
+                    }
+                }
+            } else if (input.isFile()) {
+                sheets.add(input);
+            } else {
+                throw new FileFormatException(new FileHandle(input), "no such file or directory");
+            }
+        }
+
+        return sheets;
+    }
+
+    public static boolean isSheet(File file) {
+        String name = file.getName();
+        String suffix = name.substring(name.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        for (String readable : ImageIO.getReaderFileSuffixes()) {
+            if (readable.toLowerCase(Locale.ROOT).equals(suffix)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public static Map<File, File> planOutputDirectories(List<File> sheets, File outputDirectory) {
+        return planOutputDirectories(sheets, outputDirectory, Collections.emptyMap());
+    }
+
+    public static Map<File, File> planOutputDirectories(List<File> sheets, File outputDirectory,
+                                                        Map<File, File> planned) {
+        Map<File, File> targets = new LinkedHashMap<>();
+        Set<String> names = new HashSet<>();
+        for (File target : planned.values()) {
+            names.add(target.getName());
+        }
+
+        for (File sheet : sheets) {
+            File target = planned.get(sheet);
+            if (target != null) {
+                targets.put(sheet, target);
+                continue;
+            }
+
+            String baseName = new FileHandle(sheet).nameWithoutExtension();
+            String name = baseName;
+            for (int i=2; !names.add(name); i++) {
+                name = baseName + "-" + i;
+            }
+
+            targets.put(sheet, new File(outputDirectory, name));
+        }
+
+        return targets;
+    }
+
+    public interface Listener {
+
+        void onSheetStarted(File sheet);
+        void onSheetFinished(File sheet, int frames);
+        void onSheetFailed(File sheet, IOException e);
+    }
+}
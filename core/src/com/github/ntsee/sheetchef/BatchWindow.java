@@ -0,0 +1,141 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
+import com.badlogic.gdx.utils.Align;
+import com.kotcrab.vis.ui.widget.VisLabel;
+import com.kotcrab.vis.ui.widget.VisProgressBar;
+import com.kotcrab.vis.ui.widget.VisScrollPane;
+import com.kotcrab.vis.ui.widget.VisTable;
+import com.kotcrab.vis.ui.widget.VisTextButton;
+import com.kotcrab.vis.ui.widget.VisWindow;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BatchWindow extends VisWindow {
+
+    private static final float NANOS_PER_SECOND = 1e9f;
+    private static final float LIST_WIDTH = 420;
+    private static final float LIST_HEIGHT = 260;
+
+    private final SheetChefView.Listener listener;
+    private final Map<File, VisLabel> statuses = new HashMap<>();
+    private final VisTable tblSheets;
+    private final VisScrollPane spSheets;
+    private final VisProgressBar pbProgress;
+    private final VisLabel lblThroughput;
+    private final VisTextButton btnClose;
+    private final int sheetCount;
+    private final long start = System.nanoTime();
+    private int finished;
+    private int failed;
+    private long frames;
+    private boolean running = true;
+
+    public BatchWindow(SheetChefView.Listener listener, List<File> sheets) {
+        super("Batch Export");
+        this.listener = listener;
+        this.sheetCount = sheets.size();
+        this.tblSheets = new VisTable();
+        this.tblSheets.defaults().left().pad(0, SheetChefView.PADDING / 2f, 0, SheetChefView.PADDING / 2f);
+        for (File sheet : sheets) {
+            VisLabel status = new VisLabel("Queued");
+            this.statuses.put(sheet, status);
+            this.tblSheets.add(new VisLabel(sheet.getName())).expandX();
+            this.tblSheets.add(status).row();
+        }
+
+        this.spSheets = new VisScrollPane(this.tblSheets);
+        this.spSheets.setFadeScrollBars(false);
+        this.spSheets.setScrollingDisabled(true, false);
+        this.pbProgress = new VisProgressBar(0, Math.max(1, this.sheetCount), 1, false);
+        this.lblThroughput = new VisLabel();
+        this.lblThroughput.setAlignment(Align.center);
+        this.btnClose = new VisTextButton("Cancel");
+        this.setModal(false);
+        this.setResizable(true);
+        this.addListeners();
+        this.layoutWidgets();
+        this.updateThroughput();
+    }
+
+    private void addListeners() {
+        this.btnClose.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                if (running) {
+                    running = false;
+                    btnClose.setText("Close");
+                    lblThroughput.setText("Cancelling after the running sheets finish...");
+                    listener.onBatchCancelled();
+                } else {
+                    fadeOut();
+                }
+            }
+        });
+    }
+
+    private void layoutWidgets() {
+        this.defaults().growX().pad(SheetChefView.PADDING / 2f);
+        this.add(this.spSheets).prefSize(LIST_WIDTH, LIST_HEIGHT).grow().row();
+        this.add(this.pbProgress).row();
+        this.add(this.lblThroughput).row();
+        this.add(this.btnClose).fill(false, false).center();
+        this.pack();
+        this.centerWindow();
+    }
+
+    public void setSheetStarted(File sheet) {
+        this.setStatus(sheet, "Slicing");
+    }
+
+    public void setSheetFinished(File sheet, int frames) {
+        this.finished++;
+        this.frames += frames;
+        this.setStatus(sheet, frames + " frames");
+        this.updateThroughput();
+    }
+
+    public void setSheetFailed(File sheet, IOException e) {
+        this.finished++;
+        this.failed++;
+        this.setStatus(sheet, "Failed: " + e.getMessage());
+        this.updateThroughput();
+    }
+
+    public void setResult(BatchResult result) {
+        this.running = false;
+        this.btnClose.setText("Close");
+        this.lblThroughput.setText(result.toString());
+        this.pack();
+    }
+
+    public void setFailed() {
+        this.running = false;
+        this.btnClose.setText("Close");
+        this.lblThroughput.setText(String.format("Stopped after %d of %d sheets", this.finished, this.sheetCount));
+    }
+
+    private void setStatus(File sheet, String status) {
+        VisLabel label = this.statuses.get(sheet);
+        if (label != null) {
+            label.setText(status);
+        }
+    }
+
+    private void updateThroughput() {
+        this.pbProgress.setValue(this.finished);
+        if (!this.running) {
+            return;
+        }
+
+        float seconds = (System.nanoTime() - this.start) / NANOS_PER_SECOND;
+        this.lblThroughput.setText(String.format("%d of %d sheets (%d failed), %.1f sheets/s, %.0f frames/s",
+                this.finished, this.sheetCount, this.failed,
+                seconds == 0 ? 0 : (this.finished - this.failed) / seconds, seconds == 0 ? 0 : this.frames / seconds));
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.ntsee.sheetchef;
+
+import java.util.function.IntConsumer;
+
+public final class BoxIndex {
+
+    private static final int MAX_CELLS_PER_BOX = 4;
+
+    private final BoxStore boxes;
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStart;
+    private final int[] cellBoxes;
+
+    private BoxIndex(BoxStore boxes, int cellSize, int columns, int rows) {
+        this.boxes = boxes;
+        this.cellSize = cellSize;
+        this.columns = columns;
+        this.rows = rows;
+        this.cellStart = new int[columns * rows + 1];
+        int entries = 0;
+        for (int i=0; i<boxes.size(); i++) {
+            int firstColumn = this.getColumn(boxes.getX(i));
+            int lastColumn = this.getColumn(boxes.getX(i) + boxes.getWidth(i) - 1);
+            int firstRow = this.getRow(boxes.getY(i));
+            int lastRow = this.getRow(boxes.getY(i) + boxes.getHeight(i) - 1);
+            for (int row=firstRow; row<=lastRow; row++) {
+                for (int column=firstColumn; column<=lastColumn; column++) {
+                    this.cellStart[row * columns + column + 1]++;
+                    entries++;
+                }
+            }
+        }
+
+        for (int i=1; i<this.cellStart.length; i++) {
+            this.cellStart[i] += this.cellStart[i - 1];
+        }
+
+        this.cellBoxes = new int[entries];
+        int[] next = new int[columns * rows];
+        System.arraycopy(this.cellStart, 0, next, 0, next.length);
+        for (int i=0; i<boxes.size(); i++) {
+            int firstColumn = this.getColumn(boxes.getX(i));
+            int lastColumn = this.getColumn(boxes.getX(i) + boxes.getWidth(i) - 1);
+            int firstRow = this.getRow(boxes.getY(i));
+            int lastRow = this.getRow(boxes.getY(i) + boxes.getHeight(i) - 1);
+            for (int row=firstRow; row<=lastRow; row++) {
+                for (int column=firstColumn; column<=lastColumn; column++) {
+                    this.cellBoxes[next[row * columns + column]++] = i;
+                }
+            }
+        }
+    }
+
+    public static BoxIndex of(BoxStore boxes) {
+        long right = 1;
+        long bottom = 1;
+        long widths = 0;
+        long heights = 0;
+        for (int i=0; i<boxes.size(); i++) {
+            right = Math.max(right, (long)boxes.getX(i) + boxes.getWidth(i));
+            bottom = Math.max(bottom, (long)boxes.getY(i) + boxes.getHeight(i));
+            widths += boxes.getWidth(i);
+            heights += boxes.getHeight(i);
+        }
+
+        int count = Math.max(1, boxes.size());
+        long cellSize = Math.max(1, Math.max(widths, heights) * 2 / count);
+        while ((right + cellSize - 1) / cellSize * ((bottom + cellSize - 1) / cellSize)
+                > (long)count * MAX_CELLS_PER_BOX) {
+            cellSize *= 2;
+        }
+
+        return new BoxIndex(boxes, (int)cellSize, (int)((right + cellSize - 1) / cellSize),
+                (int)((bottom + cellSize - 1) / cellSize));
+    }
+
+    public BoxStore getBoxes() {
+        return this.boxes;
+    }
+
+    public int getCellSize() {
+        return this.cellSize;
+    }
+
+    public int find(float x, float y) {
+        if (x < 0 || y < 0) {
+            return -1;
+        }
+
+        int column = (int)(x / this.cellSize);
+        int row = (int)(y / this.cellSize);
+        if (column >= this.columns || row >= this.rows) {
+            return -1;
+        }
+
+        int cell = row * this.columns + column;
+        int found = -1;
+        long foundArea = Long.MAX_VALUE;
+        for (int i=this.cellStart[cell]; i<this.cellStart[cell + 1]; i++) {
+            int box = this.cellBoxes[i];
+            if (this.boxes.contains(box, x, y)) {
+                long area = (long)this.boxes.getWidth(box) * this.boxes.getHeight(box);
+                if (area < foundArea) {
+                    found = box;
+                    foundArea = area;
+                }
+            }
+        }
+
+        return found;
+    }
+
+    public void query(float x, float y, float width, float height, IntConsumer visitor) {
+        int firstColumn = Math.max(0, this.getColumn(x));
+        int lastColumn = Math.min(this.columns - 1, this.getColumn(x + width));
+        int firstRow = Math.max(0, this.getRow(y));
+        int lastRow = Math.min(this.rows - 1, this.getRow(y + height));
+        for (int row=firstRow; row<=lastRow; row++) {
+            for (int column=firstColumn; column<=lastColumn; column++) {
+                int cell = row * this.columns + column;
+                for (int i=this.cellStart[cell]; i<this.cellStart[cell + 1]; i++) {
+                    int box = this.cellBoxes[i];
+                    if (!this.boxes.overlaps(box, x, y, width, height)) {
+                        continue;
+                    }
+
+                    if (Math.max(firstColumn, this.getColumn(this.boxes.getX(box))) == column
+                            && Math.max(firstRow, this.getRow(this.boxes.getY(box))) == row) {
+                        visitor.accept(box);
+                    }
+                }
+            }
+        }
+    }
+
+    private int getColumn(float x) {
+        return (int)Math.floor(x / this.cellSize);
+    }
+
+    private int getRow(float y) {
+        return (int)Math.floor(y / this.cellSize);
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+public final class BoxStore {
+
+    public static final BoxStore EMPTY = new BoxStore(new int[0]);
+
+    private static final int STRIDE = 4;
+
+    private final int[] data;
+
+    private BoxStore(int[] data) {
+        this.data = data;
+    }
+
+    public static BoxStore of(List<Rectangle> boxes) {
+        int[] data = new int[boxes.size() * STRIDE];
+        for (int i=0, j=0; i<boxes.size(); i++) {
+            Rectangle box = boxes.get(i);
+            data[j++] = (int)box.x;
+            data[j++] = (int)box.y;
+            data[j++] = (int)box.width;
+            data[j++] = (int)box.height;
+        }
+
+        return new BoxStore(data);
+    }
+
+    public int size() {
+        return this.data.length / STRIDE;
+    }
+
+    public boolean isEmpty() {
+        return this.data.length == 0;
+    }
+
+    public int getX(int index) {
+        return this.data[index * STRIDE];
+    }
+
+    public int getY(int index) {
+        return this.data[index * STRIDE + 1];
+    }
+
+    public int getWidth(int index) {
+        return this.data[index * STRIDE + 2];
+    }
+
+    public int getHeight(int index) {
+        return this.data[index * STRIDE + 3];
+    }
+
+    public boolean contains(int index, float x, float y) {
+        int offset = index * STRIDE;
+        int left = this.data[offset];
+        int top = this.data[offset + 1];
+        return x >= left && y >= top && x < left + this.data[offset + 2] && y < top + this.data[offset + 3];
+    }
+
+    public boolean overlaps(int index, float x, float y, float width, float height) {
+        int offset = index * STRIDE;
+        int left = this.data[offset];
+        int top = this.data[offset + 1];
+        return left < x + width && left + this.data[offset + 2] > x && top < y + height
+                && top + this.data[offset + 3] > y;
+    }
+
+    public Rectangle get(int index) {
+        return this.get(index, new Rectangle());
+    }
+
+    public Rectangle get(int index, Rectangle box) {
+        int offset = index * STRIDE;
+        return box.set(this.data[offset], this.data[offset + 1], this.data[offset + 2], this.data[offset + 3]);
+    }
+
+    public BoxStore without(BitSet excluded) {
+        if (excluded.isEmpty()) {
+            return this;
+        }
+
+        int[] data = new int[(this.size() - excluded.cardinality()) * STRIDE];
+        int j = 0;
+        for (int i=excluded.nextClearBit(0); i<this.size(); i=excluded.nextClearBit(i + 1)) {
+            System.arraycopy(this.data, i * STRIDE, data, j, STRIDE);
+            j += STRIDE;
+        }
+
+        return new BoxStore(data);
+    }
+
+    public List<Rectangle> asList() {
+        return new BoxList();
+    }
+
+    private class BoxList extends AbstractList<Rectangle> implements RandomAccess {
+
+        @Override
+        public Rectangle get(int index) {
+            if (index < 0 || index >= this.size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size());
+            }
+
+            return BoxStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return BoxStore.this.size();
+        }
+    }
+}
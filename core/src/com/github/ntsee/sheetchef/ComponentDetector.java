@@ -0,0 +1,326 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ComponentDetector {
+
+    public static final Comparator<Rectangle> BOX_ORDER = new Comparator<Rectangle>() {
+        @Override
+        public int compare(Rectangle a, Rectangle b) {
+            int order = Float.compare(a.y, b.y);
+            if (order == 0) {
+                order = Float.compare(a.x, b.x);
+            }
+
+            if (order == 0) {
+                order = Float.compare(a.height, b.height);
+            }
+
+            return order != 0 ? order : Float.compare(a.width, b.width);
+        }
+    };
+
+    private static final int MIN_BAND_HEIGHT = 128;
+    private static final int BANDS_PER_THREAD = 4;
+    private static final int PROGRESS_ROWS = 64;
+
+    private Connectivity connectivity = Connectivity.EIGHT;
+    private int minArea = 1;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    public void setConnectivity(Connectivity connectivity) {
+        this.connectivity = connectivity;
+    }
+
+    public Connectivity getConnectivity() {
+        return this.connectivity;
+    }
+
+    public void setMinArea(int minArea) {
+        if (minArea < 1) {
+            throw new IllegalArgumentException("minArea must be positive: " + minArea);
+        }
+
+        this.minArea = minArea;
+    }
+
+    public int getMinArea() {
+        return this.minArea;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public ForkJoinPool getPool() {
+        return this.pool;
+    }
+
+    public List<Rectangle> detect(PixelBuffer pixels, int background) {
+        return this.detect(pixels, background, ProgressMonitor.NONE);
+    }
+
+    public List<Rectangle> detect(PixelBuffer pixels, int background, ProgressMonitor monitor) {
+        return this.detect(pixels, BackgroundKey.exact(background), monitor);
+    }
+
+    public List<Rectangle> detect(PixelBuffer pixels, BackgroundKey key) {
+        return this.detect(pixels, key, ProgressMonitor.NONE);
+    }
+
+    public List<Rectangle> detect(PixelBuffer pixels, BackgroundKey key, ProgressMonitor monitor) {
+        return this.detect(ForegroundMask.of(pixels, key, this.pool), monitor);
+    }
+
+    public List<Rectangle> detect(ForegroundMask mask, ProgressMonitor monitor) {
+        Rectangle bounds = mask.getBounds();
+        if (bounds == null) {
+            monitor.setProgress(1);
+            return new ArrayList<>();
+        }
+
+        int startY = (int)bounds.y;
+        int endY = startY + (int)bounds.height;
+        int height = endY - startY;
+        int bandHeight = this.pool == null ? height
+                : Math.max(MIN_BAND_HEIGHT, -Math.floorDiv(-height, this.pool.getParallelism() * BANDS_PER_THREAD));
+        List<Rectangle> boxes;
+        if (bandHeight >= height) {
+            boxes = new ArrayList<>();
+            RunLabeler labeler = new RunLabeler(mask.getWidth(), this.connectivity, this.minArea, boxes);
+            this.scan(mask, labeler, startY, endY, new Progress(height, monitor));
+            labeler.finish();
+        } else {
+            Progress progress = new Progress(height, monitor);
+            List<BandLabels> bands = this.pool.invoke(new BandTask(mask, startY, endY, bandHeight, progress));
+            boxes = new ArrayList<>();
+            for (BandLabels band : bands) {
+                boxes.addAll(band.boxes);
+            }
+
+            BandStitcher.stitch(bands, this.connectivity, this.minArea, boxes);
+        }
+
+        boxes.sort(BOX_ORDER);
+        return boxes;
+    }
+
+    public List<Rectangle> detect(RowSource source, int background) throws IOException {
+        return this.detect(source, BackgroundKey.exact(background));
+    }
+
+    public List<Rectangle> detect(RowSource source, BackgroundKey key) throws IOException {
+        List<Rectangle> boxes = new ArrayList<>();
+        int width = source.getWidth();
+        RunLabeler labeler = new RunLabeler(width, this.connectivity, this.minArea, boxes);
+        int[] row = new int[width];
+        long[] words = new long[ForegroundMask.getWordCount(width)];
+        for (int y=0; source.readRow(row); y++) {
+            key.pack(row, 0, width, words, 0);
+            labeler.addRuns(words, 0, width);
+            labeler.endRow(y);
+        }
+
+        labeler.finish();
+        boxes.sort(BOX_ORDER);
+        return boxes;
+    }
+
+    public List<Rectangle> detect(PixelBuffer pixels, BackgroundKey key, List<Rectangle> previousBoxes,
+                                  Rectangle changed, ProgressMonitor monitor) {
+        return this.rescan(pixels, key, previousBoxes, this.getRescanRegion(pixels, key, previousBoxes, changed),
+                monitor);
+    }
+
+    public List<Rectangle> rescan(PixelBuffer pixels, BackgroundKey key, List<Rectangle> previousBoxes,
+                                  Rectangle region, ProgressMonitor monitor) {
+        if (region.area() * 2 > (long)pixels.getWidth() * pixels.getHeight()) {
+            return this.detect(pixels, key, monitor);
+        }
+
+        List<Rectangle> boxes = new ArrayList<>();
+        for (Rectangle box : previousBoxes) {
+            if (!box.overlaps(region)) {
+                boxes.add(new Rectangle(box));
+            }
+        }
+
+        int x = (int)region.x;
+        int y = (int)region.y;
+        int width = (int)region.width;
+        int height = (int)region.height;
+        List<Rectangle> found = new ArrayList<>();
+        RunLabeler labeler = new RunLabeler(width, this.connectivity, this.minArea, found);
+        int[] row = new int[width];
+        long[] words = new long[ForegroundMask.getWordCount(width)];
+        Progress progress = new Progress(height, monitor);
+        for (int i=0; i<height; i++) {
+            if (i % PROGRESS_ROWS == 0) {
+                progress.advance(Math.min(PROGRESS_ROWS, height - i));
+            }
+
+            pixels.getRow(x, y + i, width, row, 0);
+            key.pack(row, 0, width, words, 0);
+            labeler.addRuns(words, 0, width);
+            labeler.endRow(y + i);
+        }
+
+        labeler.finish();
+        for (Rectangle box : found) {
+            box.x += x;
+            boxes.add(box);
+        }
+
+        boxes.sort(BOX_ORDER);
+        return boxes;
+    }
+
+    public Rectangle getRescanRegion(PixelBuffer pixels, BackgroundKey key, List<Rectangle> previousBoxes,
+                                     Rectangle changed) {
+        int width = pixels.getWidth();
+        int height = pixels.getHeight();
+        int minX = Math.max(0, (int)changed.x);
+        int minY = Math.max(0, (int)changed.y);
+        int maxX = Math.min(width, (int)(changed.x + changed.width));
+        int maxY = Math.min(height, (int)(changed.y + changed.height));
+        int[] row = new int[width];
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+            for (Rectangle box : previousBoxes) {
+                if (box.x < maxX && box.x + box.width > minX && box.y < maxY && box.y + box.height > minY
+                        && (box.x < minX || box.y < minY || box.x + box.width > maxX || box.y + box.height > maxY)) {
+                    minX = Math.min(minX, (int)box.x);
+                    minY = Math.min(minY, (int)box.y);
+                    maxX = Math.max(maxX, (int)(box.x + box.width));
+                    maxY = Math.max(maxY, (int)(box.y + box.height));
+                    grown = true;
+                }
+            }
+
+            int left = Math.max(0, minX - 1);
+            int right = Math.min(width, maxX + 1);
+            if (minY > 0 && !isBackgroundRow(pixels, key, left, minY - 1, right - left, row)) {
+                minY--;
+                grown = true;
+            }
+
+            if (maxY < height && !isBackgroundRow(pixels, key, left, maxY, right - left, row)) {
+                maxY++;
+                grown = true;
+            }
+
+            int top = Math.max(0, minY - 1);
+            int bottom = Math.min(height, maxY + 1);
+            if (minX > 0 && !isBackgroundColumn(pixels, key, minX - 1, top, bottom)) {
+                minX--;
+                grown = true;
+            }
+
+            if (maxX < width && !isBackgroundColumn(pixels, key, maxX, top, bottom)) {
+                maxX++;
+                grown = true;
+            }
+        }
+
+        return new Rectangle(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    private static boolean isBackgroundRow(PixelBuffer pixels, BackgroundKey key, int x, int y, int length,
+                                           int[] row) {
+        pixels.getRow(x, y, length, row, 0);
+        for (int i=0; i<length; i++) {
+            if (!key.isBackground(row[i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isBackgroundColumn(PixelBuffer pixels, BackgroundKey key, int x, int startY, int endY) {
+        for (int y=startY; y<endY; y++) {
+            if (!key.isBackground(pixels.getPixel(x, y))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void scan(ForegroundMask mask, RunLabeler labeler, int startY, int endY, Progress progress) {
+        int width = mask.getWidth();
+        long[] words = mask.getWords();
+        for (int y=startY; y<endY; y++) {
+            if ((y - startY) % PROGRESS_ROWS == 0) {
+                progress.advance(Math.min(PROGRESS_ROWS, endY - y));
+            }
+
+            labeler.addRuns(words, mask.getRowOffset(y), width);
+            labeler.endRow(y);
+        }
+    }
+
+    private class BandTask extends RecursiveTask<List<BandLabels>> {
+
+        private final ForegroundMask mask;
+        private final int startY;
+        private final int endY;
+        private final int bandHeight;
+        private final Progress progress;
+
+        BandTask(ForegroundMask mask, int startY, int endY, int bandHeight, Progress progress) {
+            this.mask = mask;
+            this.startY = startY;
+            this.endY = endY;
+            this.bandHeight = bandHeight;
+            this.progress = progress;
+        }
+
+        @Override
+        protected List<BandLabels> compute() {
+            if (this.endY - this.startY <= this.bandHeight) {
+                RunLabeler labeler = new RunLabeler(this.mask.getWidth(), connectivity, minArea,
+                        new ArrayList<Rectangle>(), true);
+                scan(this.mask, labeler, this.startY, this.endY, this.progress);
+                List<BandLabels> bands = new ArrayList<>();
+                bands.add(labeler.finishBand());
+                return bands;
+            }
+
+            int bands = -Math.floorDiv(-(this.endY - this.startY), this.bandHeight);
+            int middle = this.startY + bands / 2 * this.bandHeight;
+            BandTask upper = new BandTask(this.mask, this.startY, middle, this.bandHeight, this.progress);
+            BandTask lower = new BandTask(this.mask, middle, this.endY, this.bandHeight, this.progress);
+            upper.fork();
+            List<BandLabels> result = new ArrayList<>(lower.compute());
+            result.addAll(0, upper.join());
+            return result;
+        }
+    }
+
+    private static class Progress {
+
+        private final int rows;
+        private final ProgressMonitor monitor;
+        private final AtomicInteger scanned = new AtomicInteger();
+
+        Progress(int rows, ProgressMonitor monitor) {
+            this.rows = rows;
+            this.monitor = monitor;
+        }
+
+        void advance(int rows) {
+            ProgressMonitor.checkCancelled(this.monitor);
+            this.monitor.setProgress(this.scanned.addAndGet(rows) / (float)this.rows);
+        }
+    }
+}
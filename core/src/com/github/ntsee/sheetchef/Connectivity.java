@@ -0,0 +1,7 @@
+package com.github.ntsee.sheetchef;
+
+public enum Connectivity {
+
+    FOUR,
+    EIGHT
+}
@@ -0,0 +1,163 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DetectionCache {
+
+    public static final int DEFAULT_MAX_BOXES = 1 << 20;
+
+    private final int maxBoxes;
+    private final LinkedHashMap<Key, List<Rectangle>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int boxCount;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public DetectionCache() {
+        this(DEFAULT_MAX_BOXES);
+    }
+
+    public DetectionCache(int maxBoxes) {
+        if (maxBoxes < 1) {
+            throw new IllegalArgumentException("maxBoxes must be positive: " + maxBoxes);
+        }
+
+        this.maxBoxes = maxBoxes;
+    }
+
+    public synchronized List<Rectangle> get(Key key) {
+        List<Rectangle> boxes = this.entries.get(key);
+        if (boxes == null) {
+            this.misses++;
+            return null;
+        }
+
+        this.hits++;
+        return copy(boxes);
+    }
+
+    public synchronized void put(Key key, List<Rectangle> boxes) {
+        int weight = weigh(boxes);
+        if (weight > this.maxBoxes) {
+            return;
+        }
+
+        List<Rectangle> previous = this.entries.put(key, copy(boxes));
+        if (previous != null) {
+            this.boxCount -= weigh(previous);
+        }
+
+        this.boxCount += weight;
+        Iterator<Map.Entry<Key, List<Rectangle>>> eldest = this.entries.entrySet().iterator();
+        while (this.boxCount > this.maxBoxes) {
+            this.boxCount -= weigh(eldest.next().getValue());
+            eldest.remove();
+            this.evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        this.entries.clear();
+        this.boxCount = 0;
+    }
+
+    public synchronized int getSize() {
+        return this.entries.size();
+    }
+
+    public synchronized int getBoxCount() {
+        return this.boxCount;
+    }
+
+    public int getMaxBoxes() {
+        return this.maxBoxes;
+    }
+
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d entries, %d/%d boxes, %d hits, %d misses, %d evictions", this.entries.size(),
+                this.boxCount, this.maxBoxes, this.hits, this.misses, this.evictions);
+    }
+
+    private static int weigh(List<Rectangle> boxes) {
+        return boxes.size() + 1;
+    }
+
+    private static List<Rectangle> copy(List<Rectangle> boxes) {
+        List<Rectangle> copy = new ArrayList<>(boxes.size());
+        for (Rectangle box : boxes) {
+            copy.add(new Rectangle(box));
+        }
+
+        return copy;
+    }
+
+    public static final class Key {
+
+        private final long contentHash;
+        private final int width;
+        private final int height;
+        private final BackgroundKey background;
+        private final Connectivity connectivity;
+        private final int minArea;
+
+        public Key(SheetImage sheet, ComponentDetector detector, BackgroundKey background) {
+            this(sheet.getContentHash(), sheet.getPixels().getWidth(), sheet.getPixels().getHeight(), background,
+                    detector.getConnectivity(), detector.getMinArea());
+        }
+
+        public Key(long contentHash, int width, int height, BackgroundKey background, Connectivity connectivity,
+                   int minArea) {
+            this.contentHash = contentHash;
+            this.width = width;
+            this.height = height;
+            this.background = background;
+            this.connectivity = connectivity;
+            this.minArea = minArea;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key)o;
+            return this.contentHash == key.contentHash && this.width == key.width && this.height == key.height
+                    && this.background.equals(key.background) && this.connectivity == key.connectivity
+                    && this.minArea == key.minArea;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Long.hashCode(this.contentHash);
+            result = 31 * result + this.width;
+            result = 31 * result + this.height;
+            result = 31 * result + this.background.hashCode();
+            result = 31 * result + this.connectivity.hashCode();
+            return 31 * result + this.minArea;
+        }
+    }
+}
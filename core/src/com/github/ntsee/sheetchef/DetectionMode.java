@@ -0,0 +1,7 @@
+package com.github.ntsee.sheetchef;
+
+public enum DetectionMode {
+
+    COMPONENTS,
+    GRID
+}
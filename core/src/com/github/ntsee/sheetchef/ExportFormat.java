@@ -1,10 +1,47 @@
 package com.github.ntsee.sheetchef;
 
+import java.awt.image.BufferedImage;
+
 public enum ExportFormat {
 
-    JPEG,
-    PNG,
-    GIF,
-    BMP,
-    WBMP
+    JPEG(BufferedImage.TYPE_3BYTE_BGR, true),
+    PNG(BufferedImage.TYPE_INT_ARGB, true),
+    GIF(BufferedImage.TYPE_INT_ARGB, true),
+    BMP(BufferedImage.TYPE_3BYTE_BGR, false),
+    WBMP(BufferedImage.TYPE_BYTE_BINARY, false),
+    ATLAS(BufferedImage.TYPE_INT_ARGB, true, true);
+
+    private final int imageType;
+    private final boolean compressed;
+    private final boolean atlas;
+
+    ExportFormat(int imageType, boolean compressed) {
+        this(imageType, compressed, false);
+    }
+
+    ExportFormat(int imageType, boolean compressed, boolean atlas) {
+        this.imageType = imageType;
+        this.compressed = compressed;
+        this.atlas = atlas;
+    }
+
+    public int getImageType() {
+        return this.imageType;
+    }
+
+    public boolean supportsAlpha() {
+        return this.imageType == BufferedImage.TYPE_INT_ARGB;
+    }
+
+    public boolean supportsPalette() {
+        return this == PNG || this == GIF;
+    }
+
+    public boolean isCompressed() {
+        return this.compressed;
+    }
+
+    public boolean isAtlas() {
+        return this.atlas;
+    }
 }
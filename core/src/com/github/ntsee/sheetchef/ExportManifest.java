@@ -0,0 +1,122 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ExportManifest {
+
+    public static final String FILE_NAME = "manifest.csv";
+    private static final String SETTINGS_PREFIX = "# ";
+    private static final String HEADER = "file,x,y,width,height,hash";
+
+    private final String settings;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public ExportManifest(String settings) {
+        this.settings = settings;
+    }
+
+    public static ExportManifest read(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        if (lines.size() < 2 || !lines.get(0).startsWith(SETTINGS_PREFIX) || !lines.get(1).equals(HEADER)) {
+            return null;
+        }
+
+        ExportManifest manifest = new ExportManifest(lines.get(0).substring(SETTINGS_PREFIX.length()));
+        for (String line : lines.subList(2, lines.size())) {
+            String[] fields = line.split(",");
+            if (fields.length != 6) {
+                return null;
+            }
+
+            try {
+                Rectangle box = new Rectangle(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]),
+                        Integer.parseInt(fields[3]), Integer.parseInt(fields[4]));
+                manifest.put(fields[0], box, Long.parseUnsignedLong(fields[5], 16));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        return manifest;
+    }
+
+    public static String describe(ExportFormat format, PngEncoder pngEncoder, boolean indexed) {
+        String settings = format.name();
+        if (format == ExportFormat.PNG) {
+            settings += " level=" + pngEncoder.getLevel() + " filter=" + pngEncoder.getFilter();
+        }
+
+        return indexed ? settings + " indexed" : settings;
+    }
+
+    public String getSettings() {
+        return this.settings;
+    }
+
+    public void put(String fileName, Rectangle box, long hash) {
+        this.entries.put(fileName, new Entry(new Rectangle(box), hash));
+    }
+
+    public boolean contains(String fileName, Rectangle box, long hash) {
+        Entry entry = this.entries.get(fileName);
+        return entry != null && entry.hash == hash && entry.box.equals(box);
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public List<String> getRemovedFiles(ExportManifest current) {
+        List<String> removed = new ArrayList<>();
+        for (String fileName : this.entries.keySet()) {
+            if (!current.entries.containsKey(fileName)) {
+                removed.add(fileName);
+            }
+        }
+
+        return removed;
+    }
+
+    public String toCsv() {
+        StringBuilder csv = new StringBuilder();
+        csv.append(SETTINGS_PREFIX).append(this.settings).append('\n');
+        csv.append(HEADER).append('\n');
+        List<String> fileNames = new ArrayList<>(this.entries.keySet());
+        fileNames.sort(null);
+        for (String fileName : fileNames) {
+            Entry entry = this.entries.get(fileName);
+            csv.append(fileName).append(',')
+                    .append((int)entry.box.x).append(',')
+                    .append((int)entry.box.y).append(',')
+                    .append((int)entry.box.width).append(',')
+                    .append((int)entry.box.height).append(',')
+                    .append(Long.toHexString(entry.hash)).append('\n');
+        }
+
+        return csv.toString();
+    }
+
+    private static class Entry {
+
+        private final Rectangle box;
+        private final long hash;
+
+        Entry(Rectangle box, long hash) {
+            this.box = box;
+            this.hash = hash;
+        }
+    }
+}
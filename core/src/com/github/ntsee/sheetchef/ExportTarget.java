@@ -0,0 +1,22 @@
+package com.github.ntsee.sheetchef;
+
+public enum ExportTarget {
+
+    DIRECTORY(""),
+    ZIP(".zip"),
+    TAR(".tar");
+
+    private final String extension;
+
+    ExportTarget(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return this.extension;
+    }
+
+    public boolean isArchive() {
+        return this != DIRECTORY;
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.ntsee.sheetchef;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+public abstract class ExportWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static ExportWriter open(ExportTarget target, File location) throws IOException {
+        switch (target) {
+            case ZIP:
+                return new ZipArchiveWriter(openArchive(location)).deleteOnAbort(location);
+            case TAR:
+                return new TarArchiveWriter(openArchive(location)).deleteOnAbort(location);
+            default:
+                return new DirectoryWriter(location);
+        }
+    }
+
+    public static File getLocation(ExportTarget target, File directory, String name) {
+        return new File(directory, name + target.getExtension());
+    }
+
+    public abstract void write(String name, byte[] data, boolean compress) throws IOException;
+
+    public void write(int sequence, String name, byte[] data, boolean compress) throws IOException {
+        this.write(name, data, compress);
+    }
+
+    public void skip(int sequence) throws IOException {
+
+    }
+
+    public void abort(Exception cause) {
+
+    }
+
+    private static OutputStream openArchive(File file) throws IOException {
+        createDirectory(file.getAbsoluteFile().getParentFile());
+        return new BufferedOutputStream(Files.newOutputStream(file.toPath()), BUFFER_SIZE);
+    }
+
+    private static void createDirectory(File directory) throws IOException {
+        if (!directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Could not create " + directory);
+        }
+    }
+
+    private static class DirectoryWriter extends ExportWriter {
+
+        private final File directory;
+
+        DirectoryWriter(File directory) throws IOException {
+            createDirectory(directory);
+            this.directory = directory;
+        }
+
+        @Override
+        public void write(String name, byte[] data, boolean compress) throws IOException {
+            Files.write(new File(this.directory, name).toPath(), data);
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
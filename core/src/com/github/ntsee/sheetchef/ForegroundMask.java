@@ -0,0 +1,230 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public final class ForegroundMask {
+
+    private static final int MIN_BAND_HEIGHT = 64;
+
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final long[] words;
+
+    public ForegroundMask(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.stride = getWordCount(width);
+        this.words = new long[this.stride * height];
+    }
+
+    public static ForegroundMask of(PixelBuffer pixels, BackgroundKey key) {
+        return of(pixels, key, null);
+    }
+
+    public static ForegroundMask of(PixelBuffer pixels, BackgroundKey key, ForkJoinPool pool) {
+        ForegroundMask mask = new ForegroundMask(pixels.getWidth(), pixels.getHeight());
+        int bandHeight = pool == null ? mask.height
+                : Math.max(MIN_BAND_HEIGHT, -Math.floorDiv(-mask.height, pool.getParallelism() * 4));
+        if (bandHeight >= mask.height) {
+            mask.fill(pixels, key, 0, mask.height);
+        } else {
+            pool.invoke(new FillTask(mask, pixels, key, 0, mask.height, bandHeight));
+        }
+
+        return mask;
+    }
+
+    public static int getWordCount(int width) {
+        return (width + 63) >>> 6;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    public int getStride() {
+        return this.stride;
+    }
+
+    public long[] getWords() {
+        return this.words;
+    }
+
+    public int getRowOffset(int y) {
+        return y * this.stride;
+    }
+
+    public boolean isForeground(int x, int y) {
+        return (this.words[y * this.stride + (x >>> 6)] >>> x & 1) != 0;
+    }
+
+    public boolean isRowEmpty(int y) {
+        int offset = y * this.stride;
+        for (int i=0; i<this.stride; i++) {
+            if (this.words[offset + i] != 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public boolean isEmpty(int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return true;
+        }
+
+        int firstWord = x >>> 6;
+        int lastWord = (x + width - 1) >>> 6;
+        long firstMask = -1L << x;
+        long lastMask = -1L >>> (63 - ((x + width - 1) & 63));
+        for (int row=y; row<y+height; row++) {
+            int offset = row * this.stride;
+            for (int i=firstWord; i<=lastWord; i++) {
+                long word = this.words[offset + i];
+                if (i == firstWord) {
+                    word &= firstMask;
+                }
+
+                if (i == lastWord) {
+                    word &= lastMask;
+                }
+
+                if (word != 0) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    public long countForeground() {
+        long count = 0;
+        for (long word : this.words) {
+            count += Long.bitCount(word);
+        }
+
+        return count;
+    }
+
+    public Rectangle getBounds() {
+        long[] columns = new long[this.stride];
+        int minY = -1;
+        int maxY = -1;
+        for (int y=0; y<this.height; y++) {
+            int offset = y * this.stride;
+            long any = 0;
+            for (int i=0; i<this.stride; i++) {
+                long word = this.words[offset + i];
+                columns[i] |= word;
+                any |= word;
+            }
+
+            if (any != 0) {
+                if (minY < 0) {
+                    minY = y;
+                }
+
+                maxY = y;
+            }
+        }
+
+        if (minY < 0) {
+            return null;
+        }
+
+        int first = 0;
+        while (columns[first] == 0) {
+            first++;
+        }
+
+        int last = this.stride - 1;
+        while (columns[last] == 0) {
+            last--;
+        }
+
+        int minX = (first << 6) + Long.numberOfTrailingZeros(columns[first]);
+        int maxX = (last << 6) + 63 - Long.numberOfLeadingZeros(columns[last]);
+        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    private void fill(PixelBuffer pixels, BackgroundKey key, int startY, int endY) {
+        if (key.getMode() == BackgroundKey.Mode.EXACT) {
+            this.fillExact(pixels, key.getColor(), startY, endY);
+            return;
+        }
+
+        int[] row = new int[this.width];
+        for (int y=startY; y<endY; y++) {
+            pixels.getRow(y, row);
+            key.pack(row, 0, this.width, this.words, y * this.stride);
+        }
+    }
+
+    private void fillExact(PixelBuffer pixels, int color, int startY, int endY) {
+        ByteBuffer pattern = ByteBuffer.allocate(8);
+        pattern.putInt(color).putInt(color).flip();
+        long background = pattern.order(ByteOrder.nativeOrder()).getLong();
+        int firstShift = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 0 : 32;
+        long[] pairs = new long[this.width / 2];
+        for (int y=startY; y<endY; y++) {
+            int offset = y * this.stride;
+            pixels.getRowPairs(y, pairs);
+            for (int i=0; i<pairs.length; i++) {
+                long difference = pairs[i] ^ background;
+                if (difference != 0) {
+                    int x = i << 1;
+                    long bits = ((int)(difference >>> firstShift) != 0 ? 1L : 0)
+                            | ((int)(difference >>> (32 - firstShift)) != 0 ? 2L : 0);
+                    this.words[offset + (x >>> 6)] |= bits << x;
+                }
+            }
+
+            if ((this.width & 1) != 0 && pixels.getPixel(this.width - 1, y) != color) {
+                this.words[offset + ((this.width - 1) >>> 6)] |= 1L << (this.width - 1);
+            }
+        }
+    }
+
+    private static class FillTask extends RecursiveAction {
+
+        private final ForegroundMask mask;
+        private final PixelBuffer pixels;
+        private final BackgroundKey key;
+        private final int startY;
+        private final int endY;
+        private final int bandHeight;
+
+        FillTask(ForegroundMask mask, PixelBuffer pixels, BackgroundKey key, int startY, int endY, int bandHeight) {
+            this.mask = mask;
+            this.pixels = pixels;
+            this.key = key;
+            this.startY = startY;
+            this.endY = endY;
+            this.bandHeight = bandHeight;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.endY - this.startY <= this.bandHeight) {
+                this.mask.fill(this.pixels, this.key, this.startY, this.endY);
+                return;
+            }
+
+            int middle = this.startY + (this.endY - this.startY) / 2;
+            invokeAll(new FillTask(this.mask, this.pixels, this.key, this.startY, middle, this.bandHeight),
+                    new FillTask(this.mask, this.pixels, this.key, middle, this.endY, this.bandHeight));
+        }
+    }
+}
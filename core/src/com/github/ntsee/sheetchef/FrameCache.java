@@ -0,0 +1,149 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class FrameCache {
+
+    public static final long DEFAULT_BUDGET = 64L * 1024 * 1024;
+
+    private final Map<Key, BufferedImage> frames = new LinkedHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private long budget;
+    private long size;
+
+    public FrameCache() {
+        this(DEFAULT_BUDGET);
+    }
+
+    public FrameCache(long budget) {
+        this.setBudget(budget);
+    }
+
+    public synchronized void setBudget(long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("budget must not be negative: " + budget);
+        }
+
+        this.budget = budget;
+        this.evict();
+    }
+
+    public synchronized long getBudget() {
+        return this.budget;
+    }
+
+    public synchronized long getSize() {
+        return this.size;
+    }
+
+    public synchronized int getFrameCount() {
+        return this.frames.size();
+    }
+
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    public BufferedImage extract(PixelBuffer pixels, Rectangle box, int imageType) {
+        Key key = new Key(box);
+        BufferedImage frame = this.get(key);
+        if (frame != null) {
+            this.hits.incrementAndGet();
+            return FrameExtractor.convert(frame, imageType);
+        }
+
+        this.misses.incrementAndGet();
+        if (!this.hasRoom(box)) {
+            return FrameExtractor.extract(pixels, box, imageType);
+        }
+
+        frame = FrameExtractor.extract(pixels, box, BufferedImage.TYPE_INT_ARGB);
+        this.put(key, frame);
+        return FrameExtractor.convert(frame, imageType);
+    }
+
+    public synchronized void clear() {
+        this.frames.clear();
+        this.size = 0;
+    }
+
+    private synchronized BufferedImage get(Key key) {
+        return this.frames.get(key);
+    }
+
+    private synchronized boolean hasRoom(Rectangle box) {
+        return this.size + (long)box.width * box.height * 4 <= this.budget;
+    }
+
+    private synchronized void put(Key key, BufferedImage frame) {
+        long bytes = getByteCount(frame);
+        if (this.size + bytes > this.budget || this.frames.containsKey(key)) {
+            return;
+        }
+
+        this.frames.put(key, frame);
+        this.size += bytes;
+    }
+
+    private void evict() {
+        Iterator<BufferedImage> iterator = this.frames.values().iterator();
+        while (this.size > this.budget && iterator.hasNext()) {
+            this.size -= getByteCount(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    private static long getByteCount(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long)buffer.getSize() * buffer.getNumBanks() * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+
+    private static final class Key {
+
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+
+        Key(Rectangle box) {
+            this.x = (int)box.x;
+            this.y = (int)box.y;
+            this.width = (int)box.width;
+            this.height = (int)box.height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key)o;
+            return this.x == key.x && this.y == key.y && this.width == key.width && this.height == key.height;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = this.x;
+            result = 31 * result + this.y;
+            result = 31 * result + this.width;
+            return 31 * result + this.height;
+        }
+    }
+}
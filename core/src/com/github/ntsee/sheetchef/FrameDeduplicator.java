@@ -0,0 +1,90 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class FrameDeduplicator {
+
+    public static final String MAPPING_FILE_NAME = "frames.csv";
+
+    private FrameDeduplicator() {
+
+    }
+
+    public static int[] findOriginals(PixelBuffer pixels, List<Rectangle> boxes) {
+        return findOriginals(pixels, boxes, null);
+    }
+
+    public static int[] findOriginals(PixelBuffer pixels, List<Rectangle> boxes, long[] hashes) {
+        int[] originals = new int[boxes.size()];
+        Map<Long, List<Integer>> candidates = new HashMap<>();
+        for (int i=0; i<originals.length; i++) {
+            Rectangle box = boxes.get(i);
+            long hash = pixels.contentHash((int)box.x, (int)box.y, (int)box.width, (int)box.height);
+            if (hashes != null) {
+                hashes[i] = hash;
+            }
+
+            List<Integer> matches = candidates.computeIfAbsent(hash, key -> new ArrayList<>(1));
+            originals[i] = i;
+            for (int match : matches) {
+                if (equals(pixels, boxes.get(match), box)) {
+                    originals[i] = match;
+                    break;
+                }
+            }
+
+            if (originals[i] == i) {
+                matches.add(i);
+            }
+        }
+
+        return originals;
+    }
+
+    public static int[] getUniqueFrames(int[] originals) {
+        int count = 0;
+        int[] unique = new int[originals.length];
+        for (int i=0; i<originals.length; i++) {
+            if (originals[i] == i) {
+                unique[count++] = i;
+            }
+        }
+
+        return Arrays.copyOf(unique, count);
+    }
+
+    public static String createMapping(int[] originals, ExportFormat format) {
+        StringBuilder mapping = new StringBuilder("frame,file\n");
+        for (int i=0; i<originals.length; i++) {
+            mapping.append(i).append(',').append(FrameEncoder.getFileName(originals[i], format)).append('\n');
+        }
+
+        return mapping.toString();
+    }
+
+    private static boolean equals(PixelBuffer pixels, Rectangle a, Rectangle b) {
+        int width = (int)a.width;
+        int height = (int)a.height;
+        if (width != (int)b.width || height != (int)b.height) {
+            return false;
+        }
+
+        int[] rowA = new int[width];
+        int[] rowB = new int[width];
+        for (int y=0; y<height; y++) {
+            pixels.getRow((int)a.x, (int)a.y + y, width, rowA, 0);
+            pixels.getRow((int)b.x, (int)b.y + y, width, rowB, 0);
+            if (!Arrays.equals(rowA, rowB)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
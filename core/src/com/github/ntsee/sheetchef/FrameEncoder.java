@@ -0,0 +1,26 @@
+package com.github.ntsee.sheetchef;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+public final class FrameEncoder {
+
+    private FrameEncoder() {
+
+    }
+
+    public static byte[] encode(BufferedImage image, ExportFormat format) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(image.getWidth() * image.getHeight() + 1024);
+        if (!ImageIO.write(image, format.name(), output)) {
+            throw new IOException("No " + format.name() + " writer for image type " + image.getType());
+        }
+
+        return output.toByteArray();
+    }
+
+    public static String getFileName(int index, ExportFormat format) {
+        return String.format("%d.%s", index, format.name().toLowerCase());
+    }
+}
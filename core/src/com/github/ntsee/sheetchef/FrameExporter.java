@@ -0,0 +1,193 @@
+package com.github.ntsee.sheetchef;
+
+import com.github.ntsee.sheetchef.exceptions.ExportException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FrameExporter {
+
+    private final int threads;
+    private final int maxInFlight;
+    private final ExecutorService executor;
+
+    public FrameExporter(int threads) {
+        this(threads, threads * 2);
+    }
+
+    public FrameExporter(int threads, int maxInFlight) {
+        if (threads < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("threads and maxInFlight must be positive");
+        }
+
+        this.threads = threads;
+        this.maxInFlight = maxInFlight;
+        this.executor = null;
+    }
+
+    public FrameExporter(ExecutorService executor, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+
+        this.threads = 0;
+        this.maxInFlight = maxInFlight;
+        this.executor = executor;
+    }
+
+    public int getThreads() {
+        return this.threads;
+    }
+
+    public int getMaxInFlight() {
+        return this.maxInFlight;
+    }
+
+    public void export(int frameCount, FrameWriter writer) throws IOException {
+        this.export(frameCount, writer, ProgressMonitor.NONE);
+    }
+
+    public void export(int frameCount, FrameWriter writer, ProgressMonitor monitor) throws IOException {
+        this.export(frameCount, writer, null, monitor);
+    }
+
+    public void export(int frameCount, FrameWriter writer, ExportWriter output, ProgressMonitor monitor)
+            throws IOException {
+        AtomicInteger written = new AtomicInteger();
+        FrameWriter progressWriter = index -> {
+            try {
+                writer.write(index);
+            } finally {
+                monitor.setProgress(written.incrementAndGet() / (float)frameCount);
+            }
+        };
+
+        Session session = this.open(output);
+        try {
+            for (int i=0; i<frameCount && !monitor.isCancelled(); i++) {
+                session.submit(i, progressWriter);
+            }
+        } catch (IOException | RuntimeException e) {
+            session.cancel();
+            throw e;
+        }
+
+        session.finish();
+        ProgressMonitor.checkCancelled(monitor);
+    }
+
+    public Session open() {
+        return this.open(null);
+    }
+
+    public Session open(ExportWriter output) {
+        if (this.executor != null) {
+            return new Session(this.executor, false, output);
+        } else if (this.threads == 1) {
+            return new Session(null, false, output);
+        }
+
+        return new Session(Executors.newFixedThreadPool(this.threads, new WorkerThreadFactory("sheetchef-export-")),
+                true, output);
+    }
+
+    private static void write(FrameWriter writer, int index, ExportWriter output,
+                              SortedMap<Integer, IOException> failures) {
+        try {
+            writer.write(index);
+            return;
+        } catch (IOException e) {
+            failures.put(index, e);
+        } catch (RuntimeException e) {
+            failures.put(index, new IOException("Failed to export frame " + index, e));
+        }
+
+        if (output != null) {
+            try {
+                output.skip(index);
+            } catch (IOException | RuntimeException e) {
+                failures.get(index).addSuppressed(e);
+            }
+        }
+    }
+
+    public interface FrameWriter {
+
+        void write(int index) throws IOException;
+    }
+
+    public class Session {
+
+        private final ExecutorService executor;
+        private final boolean owned;
+        private final ExportWriter output;
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final SortedMap<Integer, IOException> failures = new ConcurrentSkipListMap<>();
+        private int submitted;
+
+        private Session(ExecutorService executor, boolean owned, ExportWriter output) {
+            this.executor = executor;
+            this.owned = owned;
+            this.output = output;
+        }
+
+        public void submit(int index, FrameWriter writer) throws InterruptedIOException {
+            this.submitted++;
+            if (this.executor == null) {
+                write(writer, index, this.output, this.failures);
+                return;
+            }
+
+            try {
+                this.inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Export interrupted");
+            }
+
+            try {
+                this.executor.execute(() -> {
+                    try {
+                        write(writer, index, this.output, this.failures);
+                    } finally {
+                        this.inFlight.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                this.inFlight.release();
+                throw e;
+            }
+        }
+
+        public void finish() throws IOException {
+            try {
+                if (this.executor != null) {
+                    this.inFlight.acquire(maxInFlight);
+                    this.inFlight.release(maxInFlight);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Export interrupted");
+            } finally {
+                this.cancel();
+            }
+
+            if (!this.failures.isEmpty()) {
+                throw new ExportException(this.submitted, this.failures);
+            }
+        }
+
+        public void cancel() {
+            if (this.owned) {
+                this.executor.shutdownNow();
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+public final class FrameExtractor {
+
+    private FrameExtractor() {
+
+    }
+
+    public static BufferedImage extract(PixelBuffer pixels, Rectangle box, int imageType) {
+        BufferedImage image = new BufferedImage((int)box.width, (int)box.height, imageType);
+        copy(pixels, (int)box.x, (int)box.y, image);
+        return image;
+    }
+
+    public static BufferedImage extractIndexed(PixelBuffer pixels, Rectangle box, SheetPalette palette, int colors) {
+        int width = (int)box.width;
+        int height = (int)box.height;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED,
+                palette.getColorModel(colors));
+        WritableRaster raster = image.getRaster();
+        byte[] data = ((DataBufferByte)raster.getDataBuffer()).getData();
+        int stride = ((ComponentSampleModel)raster.getSampleModel()).getScanlineStride();
+        int[] row = new int[width];
+        for (int y=0; y<height; y++) {
+            pixels.getRow((int)box.x, (int)box.y + y, width, row, 0);
+            palette.index(row, 0, width, data, y * stride);
+        }
+
+        return image;
+    }
+
+    public static BufferedImage convert(BufferedImage frame, int imageType) {
+        if (frame.getType() == imageType) {
+            return frame;
+        }
+
+        if (frame.getType() != BufferedImage.TYPE_INT_ARGB) {
+            throw new IllegalArgumentException("frame must be TYPE_INT_ARGB: " + frame.getType());
+        }
+
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        BufferedImage image = new BufferedImage(width, height, imageType);
+        WritableRaster raster = frame.getRaster();
+        int[] data = ((DataBufferInt)raster.getDataBuffer()).getData();
+        int stride = ((SinglePixelPackedSampleModel)raster.getSampleModel()).getScanlineStride();
+        int[] row = new int[width];
+        for (int y=0; y<height; y++) {
+            for (int x=0; x<width; x++) {
+                row[x] = Integer.rotateLeft(data[y * stride + x], 8);
+            }
+
+            copyRow(row, 0, image, y);
+        }
+
+        return image;
+    }
+
+    public static void copy(PixelBuffer pixels, int srcX, int srcY, BufferedImage image) {
+        copy(pixels, srcX, srcY, image.getWidth(), image.getHeight(), image, 0, 0);
+    }
+
+    public static void copy(PixelBuffer pixels, int srcX, int srcY, int width, int height, BufferedImage image,
+                            int dstX, int dstY) {
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_RGB:
+                copyInts(pixels, srcX, srcY, width, height, image, dstX, dstY);
+                break;
+            case BufferedImage.TYPE_4BYTE_ABGR:
+            case BufferedImage.TYPE_3BYTE_BGR:
+                copyBytes(pixels, srcX, srcY, width, height, image, dstX, dstY);
+                break;
+            default:
+                copyRows(pixels, srcX, srcY, width, height, image, dstX, dstY);
+                break;
+        }
+    }
+
+    public static void copyRow(int[] rgba, int srcX, BufferedImage image, int y) {
+        int width = image.getWidth();
+        WritableRaster raster = image.getRaster();
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_RGB: {
+                int[] data = ((DataBufferInt)raster.getDataBuffer()).getData();
+                int offset = y * ((SinglePixelPackedSampleModel)raster.getSampleModel()).getScanlineStride();
+                boolean alpha = image.getType() == BufferedImage.TYPE_INT_ARGB;
+                for (int x=0; x<width; x++) {
+                    int pixel = rgba[srcX + x];
+                    data[offset + x] = alpha ? Integer.rotateRight(pixel, 8) : pixel >>> 8;
+                }
+                break;
+            }
+            case BufferedImage.TYPE_4BYTE_ABGR:
+            case BufferedImage.TYPE_3BYTE_BGR: {
+                byte[] data = ((DataBufferByte)raster.getDataBuffer()).getData();
+                int out = y * ((ComponentSampleModel)raster.getSampleModel()).getScanlineStride();
+                boolean alpha = image.getType() == BufferedImage.TYPE_4BYTE_ABGR;
+                for (int x=0; x<width; x++) {
+                    int pixel = rgba[srcX + x];
+                    if (alpha) {
+                        data[out++] = (byte)pixel;
+                    }
+
+                    data[out++] = (byte)(pixel >>> 8);
+                    data[out++] = (byte)(pixel >>> 16);
+                    data[out++] = (byte)(pixel >>> 24);
+                }
+                break;
+            }
+            default: {
+                int[] argb = new int[width];
+                for (int x=0; x<width; x++) {
+                    argb[x] = Integer.rotateRight(rgba[srcX + x], 8);
+                }
+
+                image.setRGB(0, y, width, 1, argb, 0, width);
+                break;
+            }
+        }
+    }
+
+    private static void copyInts(PixelBuffer pixels, int srcX, int srcY, int width, int height,
+                                 BufferedImage image, int dstX, int dstY) {
+        WritableRaster raster = image.getRaster();
+        int[] data = ((DataBufferInt)raster.getDataBuffer()).getData();
+        int stride = ((SinglePixelPackedSampleModel)raster.getSampleModel()).getScanlineStride();
+        boolean alpha = image.getType() == BufferedImage.TYPE_INT_ARGB;
+        for (int y=0; y<height; y++) {
+            int offset = (dstY + y) * stride + dstX;
+            pixels.getRow(srcX, srcY + y, width, data, offset);
+            if (alpha) {
+                for (int i=offset; i<offset+width; i++) {
+                    data[i] = Integer.rotateRight(data[i], 8);
+                }
+            } else {
+                for (int i=offset; i<offset+width; i++) {
+                    data[i] >>>= 8;
+                }
+            }
+        }
+    }
+
+    private static void copyBytes(PixelBuffer pixels, int srcX, int srcY, int width, int height,
+                                  BufferedImage image, int dstX, int dstY) {
+        WritableRaster raster = image.getRaster();
+        byte[] data = ((DataBufferByte)raster.getDataBuffer()).getData();
+        int stride = ((ComponentSampleModel)raster.getSampleModel()).getScanlineStride();
+        boolean alpha = image.getType() == BufferedImage.TYPE_4BYTE_ABGR;
+        int pixelStride = alpha ? 4 : 3;
+        byte[] row = new byte[width * 4];
+        for (int y=0; y<height; y++) {
+            pixels.getRowBytes(srcX, srcY + y, width, row, 0);
+            int out = (dstY + y) * stride + dstX * pixelStride;
+            for (int i=0; i<row.length; i+=4) {
+                if (alpha) {
+                    data[out++] = row[i + 3];
+                }
+
+                data[out++] = row[i + 2];
+                data[out++] = row[i + 1];
+                data[out++] = row[i];
+            }
+        }
+    }
+
+    private static void copyRows(PixelBuffer pixels, int srcX, int srcY, int width, int height,
+                                 BufferedImage image, int dstX, int dstY) {
+        int[] row = new int[width];
+        for (int y=0; y<height; y++) {
+            pixels.getRow(srcX, srcY + y, width, row, 0);
+            for (int i=0; i<width; i++) {
+                row[i] = Integer.rotateRight(row[i], 8);
+            }
+
+            image.setRGB(dstX, dstY + y, width, 1, row, 0, width);
+        }
+    }
+}
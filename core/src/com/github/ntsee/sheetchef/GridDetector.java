@@ -0,0 +1,79 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class GridDetector {
+
+    public static final int DEFAULT_CELL_SIZE = 32;
+    private static final int PROGRESS_ROWS = 64;
+
+    private GridSpec spec = new GridSpec(DEFAULT_CELL_SIZE, DEFAULT_CELL_SIZE);
+    private boolean trim;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    public void setSpec(GridSpec spec) {
+        this.spec = spec;
+    }
+
+    public GridSpec getSpec() {
+        return this.spec;
+    }
+
+    public void setTrim(boolean trim) {
+        this.trim = trim;
+    }
+
+    public boolean isTrim() {
+        return this.trim;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public ForkJoinPool getPool() {
+        return this.pool;
+    }
+
+    public List<Rectangle> detect(PixelBuffer pixels, BackgroundKey key) {
+        return this.detect(pixels, key, ProgressMonitor.NONE);
+    }
+
+    public List<Rectangle> detect(PixelBuffer pixels, BackgroundKey key, ProgressMonitor monitor) {
+        return this.detect(ForegroundMask.of(pixels, key, this.pool), monitor);
+    }
+
+    public List<Rectangle> detect(ForegroundMask mask, ProgressMonitor monitor) {
+        ProgressMonitor.checkCancelled(monitor);
+        SummedAreaTable table = SummedAreaTable.of(mask);
+        GridSpec spec = this.spec;
+        int columns = spec.getColumns(mask.getWidth());
+        int rows = spec.getRows(mask.getHeight());
+        int width = spec.getCellWidth();
+        int height = spec.getCellHeight();
+        List<Rectangle> boxes = new ArrayList<>();
+        for (int row=0; row<rows; row++) {
+            if (row % PROGRESS_ROWS == 0) {
+                ProgressMonitor.checkCancelled(monitor);
+                monitor.setProgress(row / (float)rows);
+            }
+
+            int y = spec.getCellY(row);
+            for (int column=0; column<columns; column++) {
+                int x = spec.getCellX(column);
+                if (table.isEmpty(x, y, width, height)) {
+                    continue;
+                }
+
+                boxes.add(this.trim ? table.getBounds(x, y, width, height) : new Rectangle(x, y, width, height));
+            }
+        }
+
+        monitor.setProgress(1);
+        return boxes;
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+public final class GridSpec {
+
+    private final int cellWidth;
+    private final int cellHeight;
+    private final int offsetX;
+    private final int offsetY;
+    private final int spacingX;
+    private final int spacingY;
+
+    public GridSpec(int cellWidth, int cellHeight) {
+        this(cellWidth, cellHeight, 0, 0, 0, 0);
+    }
+
+    public GridSpec(int cellWidth, int cellHeight, int offsetX, int offsetY, int spacingX, int spacingY) {
+        if (cellWidth < 1 || cellHeight < 1) {
+            throw new IllegalArgumentException("cell size must be positive: " + cellWidth + "x" + cellHeight);
+        }
+
+        if (offsetX < 0 || offsetY < 0) {
+            throw new IllegalArgumentException("offset must not be negative: " + offsetX + "," + offsetY);
+        }
+
+        if (spacingX < 0 || spacingY < 0) {
+            throw new IllegalArgumentException("spacing must not be negative: " + spacingX + "," + spacingY);
+        }
+
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        this.spacingX = spacingX;
+        this.spacingY = spacingY;
+    }
+
+    public int getCellWidth() {
+        return this.cellWidth;
+    }
+
+    public int getCellHeight() {
+        return this.cellHeight;
+    }
+
+    public int getOffsetX() {
+        return this.offsetX;
+    }
+
+    public int getOffsetY() {
+        return this.offsetY;
+    }
+
+    public int getSpacingX() {
+        return this.spacingX;
+    }
+
+    public int getSpacingY() {
+        return this.spacingY;
+    }
+
+    public int getColumns(int width) {
+        return Math.max(0, (width - this.offsetX + this.spacingX) / (this.cellWidth + this.spacingX));
+    }
+
+    public int getRows(int height) {
+        return Math.max(0, (height - this.offsetY + this.spacingY) / (this.cellHeight + this.spacingY));
+    }
+
+    public int getCellX(int column) {
+        return this.offsetX + column * (this.cellWidth + this.spacingX);
+    }
+
+    public int getCellY(int row) {
+        return this.offsetY + row * (this.cellHeight + this.spacingY);
+    }
+
+    public Rectangle getCell(int column, int row) {
+        return new Rectangle(this.getCellX(column), this.getCellY(row), this.cellWidth, this.cellHeight);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof GridSpec)) {
+            return false;
+        }
+
+        GridSpec spec = (GridSpec)o;
+        return this.cellWidth == spec.cellWidth && this.cellHeight == spec.cellHeight
+                && this.offsetX == spec.offsetX && this.offsetY == spec.offsetY
+                && this.spacingX == spec.spacingX && this.spacingY == spec.spacingY;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = this.cellWidth;
+        result = 31 * result + this.cellHeight;
+        result = 31 * result + this.offsetX;
+        result = 31 * result + this.offsetY;
+        result = 31 * result + this.spacingX;
+        return 31 * result + this.spacingY;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%dx%d+%d+%d,%dx%d", this.cellWidth, this.cellHeight, this.offsetX, this.offsetY,
+                this.spacingX, this.spacingY);
+    }
+}
@@ -4,102 +4,338 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.graphics.PixmapIO;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.Disposable;
-import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.github.ntsee.sheetchef.exceptions.FileFormatException;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class ImageSlicer implements Disposable {
 
     private static final String EXPORT_DIRECTORY = "output";
+    private static final String METRICS_FILE_NAME = "metrics.json";
 
-    private Pixmap inputImage;
+    private SheetImage sheet;
     private final Color backgroundColor = new Color(Color.WHITE);
-    private final List<Rectangle> boxes = new ArrayList<>();
+    private BackgroundKey.Mode backgroundMode = BackgroundKey.Mode.EXACT;
+    private int backgroundThreshold;
+    private final BitSet excluded = new BitSet();
+    private BoxStore boxes = BoxStore.EMPTY;
+    private final ComponentDetector detector = new ComponentDetector();
+    private final GridDetector gridDetector = new GridDetector();
+    private final DetectionCache detectionCache = new DetectionCache();
+    private final AtlasExporter atlasExporter = new AtlasExporter();
+    private SliceMetrics metrics = new SliceMetrics();
+    private FrameCache frameCache = new FrameCache();
+    private DetectionMode detectionMode = DetectionMode.COMPONENTS;
     private ExportFormat exportFormat = ExportFormat.BMP;
+    private PngEncoder pngEncoder = new PngEncoder();
     private FileHandle exportDirectory = Gdx.files.local(EXPORT_DIRECTORY);
+    private ExportTarget exportTarget = ExportTarget.DIRECTORY;
+    private int exportThreads = Runtime.getRuntime().availableProcessors();
+    private boolean deduplicate;
+    private boolean dumpMetrics;
+    private boolean incremental = true;
+    private boolean indexed;
 
     public void setInputImage(FileHandle handle) throws FileFormatException {
-        Pixmap pixmap;
-        try {
-            pixmap = new Pixmap(handle);
-        } catch (GdxRuntimeException e) {
-            throw new FileFormatException(handle, "could not load image");
+        SliceMetrics metrics = this.startMetrics();
+        SheetImage sheet = this.load(handle, metrics);
+        this.setSheet(sheet, this.detect(sheet, this.createDetector(), this.createGridDetector(),
+                this.getBackgroundKey(), metrics, ProgressMonitor.NONE).getBoxes());
+    }
+
+    public void setSheet(SheetImage sheet, List<Rectangle> boxes) {
+        if (this.sheet != null) {
+            this.sheet.release();
         }
 
-        if (this.inputImage != null) {
-            this.inputImage.dispose();
+        if (sheet != this.sheet) {
+            this.clearFrameCache();
         }
 
-        this.inputImage = pixmap;
-        this.calculateSubImageBoxes();
+        this.sheet = sheet;
+        this.setBoxes(boxes);
+    }
+
+    public SheetImage getSheet() {
+        return this.sheet;
     }
 
-    private void calculateSubImageBoxes() {
-        this.boxes.clear();
-        int background = Color.rgba8888(this.backgroundColor);
-        for (int y=0; y<this.inputImage.getHeight(); y++) {
-            for (int x=0; x<this.inputImage.getWidth(); x++) {
-                if (this.isSubImageStart(x, y, background)) {
-                    int width = this.getSubImageWidth(x, y, background);
-                    int height = this.getSubImageHeight(x, y, background);
-                    Rectangle box = new Rectangle(x, y, width, height);
-                    this.boxes.add(box);
+    public void setBoxes(List<Rectangle> boxes) {
+        Set<Rectangle> excludedBoxes = new HashSet<>();
+        for (int i=this.excluded.nextSetBit(0); i>=0; i=this.excluded.nextSetBit(i + 1)) {
+            excludedBoxes.add(this.boxes.get(i));
+        }
+
+        this.boxes = BoxStore.of(boxes);
+        this.excluded.clear();
+        if (!excludedBoxes.isEmpty()) {
+            for (int i=0; i<boxes.size(); i++) {
+                if (excludedBoxes.contains(boxes.get(i))) {
+                    this.excluded.set(i);
                 }
             }
         }
     }
 
-    private boolean isSubImageStart(int x, int y, int background) {
-        return this.inputImage.getPixel(x, y) != background
-                && (x - 1 < 0 || this.inputImage.getPixel(x - 1, y) == background)
-                && (y - 1 < 0 || this.inputImage.getPixel(x, y - 1) == background);
+    public BoxStore getBoxStore() {
+        return this.boxes;
     }
 
-    private int getSubImageWidth(int startX, int startY, int background) {
-        int width = 0;
-        while (startX < this.inputImage.getWidth()
-                && this.inputImage.getPixel(startX, startY) != background) {
-            startX++;
-            width++;
+    public void setExcluded(int index, boolean excluded) {
+        if (index < 0 || index >= this.boxes.size()) {
+            throw new IllegalArgumentException("No frame " + index + " of " + this.boxes.size());
         }
 
-        return width;
+        this.excluded.set(index, excluded);
+    }
+
+    public boolean isExcluded(int index) {
+        return this.excluded.get(index);
+    }
+
+    public BitSet getExcluded() {
+        return (BitSet)this.excluded.clone();
+    }
+
+    public Job.Task<SheetDetection> createLoadTask(FileHandle handle) {
+        final ComponentDetector detector = this.createDetector();
+        final GridDetector grid = this.createGridDetector();
+        final BackgroundKey background = this.getBackgroundKey();
+        final SliceMetrics metrics = this.startMetrics();
+        return monitor -> {
+            ProgressMonitor.checkCancelled(monitor);
+            return this.detect(this.load(handle, metrics), detector, grid, background, metrics, monitor);
+        };
     }
 
-    private int getSubImageHeight(int startX, int startY, int background) {
-        int height = 0;
-        while (startY < this.inputImage.getHeight()
-                && this.inputImage.getPixel(startX, startY) != background) {
-            startY++;
-            height++;
+    public Job.Task<SheetDetection> createDetectionTask() {
+        if (this.sheet == null) {
+            throw new IllegalStateException("No input image");
         }
 
-        return height;
+        final SheetImage sheet = this.sheet.acquire();
+        final ComponentDetector detector = this.createDetector();
+        final GridDetector grid = this.createGridDetector();
+        final BackgroundKey background = this.getBackgroundKey();
+        final SliceMetrics metrics = this.startMetrics();
+        return monitor -> this.detect(sheet, detector, grid, background, metrics, monitor);
+    }
+
+    public Job.Task<SheetDetection> createReloadTask(FileHandle handle) {
+        if (this.sheet == null) {
+            return this.createLoadTask(handle);
+        }
+
+        final SheetImage previous = this.sheet.acquire();
+        final List<Rectangle> previousBoxes = new ArrayList<>(this.boxes.asList());
+        final ComponentDetector detector = this.createDetector();
+        final GridDetector grid = this.createGridDetector();
+        final BackgroundKey background = this.getBackgroundKey();
+        final SliceMetrics metrics = this.startMetrics();
+        return monitor -> {
+            try {
+                ProgressMonitor.checkCancelled(monitor);
+                return this.redetect(this.load(handle, metrics), previous, previousBoxes, detector, grid,
+                        background, metrics, monitor);
+            } finally {
+                previous.release();
+            }
+        };
+    }
+
+    private SheetImage load(FileHandle handle, SliceMetrics metrics) throws FileFormatException {
+        long start = metrics.start();
+        SheetImage sheet = SheetImage.load(handle);
+        metrics.record(SliceMetrics.Phase.DECODE, start);
+        return sheet;
+    }
+
+    private SheetDetection detect(SheetImage sheet, ComponentDetector detector, GridDetector grid,
+                                  BackgroundKey background, SliceMetrics metrics, ProgressMonitor monitor) {
+        try {
+            long start = metrics.start();
+            List<Rectangle> boxes;
+            if (grid != null) {
+                boxes = grid.detect(sheet.getPixels(), background, monitor);
+                metrics.addPixelsScanned((long)sheet.getWidth() * sheet.getHeight());
+            } else {
+                DetectionCache.Key key = new DetectionCache.Key(sheet, detector, background);
+                boxes = this.detectionCache.get(key);
+                if (boxes == null) {
+                    boxes = detector.detect(sheet.getPixels(), background, monitor);
+                    this.detectionCache.put(key, boxes);
+                    metrics.addPixelsScanned((long)sheet.getWidth() * sheet.getHeight());
+                }
+            }
+
+            metrics.addBoxesFound(boxes.size());
+            metrics.record(SliceMetrics.Phase.DETECTION, start);
+            return new SheetDetection(sheet, boxes);
+        } catch (RuntimeException e) {
+            sheet.release();
+            throw e;
+        }
+    }
+
+    private SheetDetection redetect(SheetImage sheet, SheetImage previous, List<Rectangle> previousBoxes,
+                                    ComponentDetector detector, GridDetector grid, BackgroundKey background,
+                                    SliceMetrics metrics, ProgressMonitor monitor) {
+        PixelBuffer pixels = sheet.getPixels();
+        if (pixels.getWidth() != previous.getWidth() || pixels.getHeight() != previous.getHeight()) {
+            return this.detect(sheet, detector, grid, background, metrics, monitor);
+        }
+
+        try {
+            long start = metrics.start();
+            Rectangle changed = pixels.getChangedRegion(previous.getPixels());
+            List<Rectangle> boxes;
+            if (grid != null) {
+                boxes = changed == null ? previousBoxes : grid.detect(pixels, background, monitor);
+            } else {
+                DetectionCache.Key key = new DetectionCache.Key(sheet, detector, background);
+                boxes = this.detectionCache.get(key);
+                if (boxes == null) {
+                    if (changed == null) {
+                        boxes = previousBoxes;
+                    } else {
+                        Rectangle region = detector.getRescanRegion(pixels, background, previousBoxes, changed);
+                        long area = (long)pixels.getWidth() * pixels.getHeight();
+                        long scanned = (long)region.area();
+                        boxes = detector.rescan(pixels, background, previousBoxes, region, monitor);
+                        metrics.addPixelsScanned(scanned * 2 > area ? area : scanned);
+                    }
+
+                    this.detectionCache.put(key, boxes);
+                }
+            }
+
+            metrics.addBoxesFound(boxes.size());
+            metrics.record(SliceMetrics.Phase.DETECTION, start);
+            return new SheetDetection(sheet, boxes, changed == null ? new Rectangle() : changed);
+        } catch (RuntimeException e) {
+            sheet.release();
+            throw e;
+        }
+    }
+
+    public BackgroundKey getBackgroundKey() {
+        switch (this.backgroundMode) {
+            case TOLERANCE:
+                return BackgroundKey.tolerance(Color.rgba8888(this.backgroundColor), this.backgroundThreshold);
+            case ALPHA:
+                return BackgroundKey.alpha(this.backgroundThreshold);
+            default:
+                return BackgroundKey.exact(Color.rgba8888(this.backgroundColor));
+        }
+    }
+
+    private GridDetector createGridDetector() {
+        if (this.detectionMode != DetectionMode.GRID) {
+            return null;
+        }
+
+        GridDetector detector = new GridDetector();
+        detector.setSpec(this.gridDetector.getSpec());
+        detector.setTrim(this.gridDetector.isTrim());
+        detector.setPool(this.gridDetector.getPool());
+        return detector;
+    }
+
+    private ComponentDetector createDetector() {
+        ComponentDetector detector = new ComponentDetector();
+        detector.setConnectivity(this.detector.getConnectivity());
+        detector.setMinArea(this.detector.getMinArea());
+        detector.setPool(this.detector.getPool());
+        return detector;
     }
 
     public Pixmap getInputImage() {
-        return this.inputImage;
+        return this.sheet == null ? null : this.sheet.getPixmap();
     }
 
     public void setBackgroundColor(Color color) {
-        this.backgroundColor.set(color);
-        if (this.inputImage != null) {
-            this.calculateSubImageBoxes();
+        if (!this.backgroundColor.equals(color)) {
+            this.clearFrameCache();
         }
+
+        this.backgroundColor.set(color);
     }
 
     public Color getBackgroundColor() {
         return this.backgroundColor;
     }
 
+    public void setBackgroundMode(BackgroundKey.Mode backgroundMode) {
+        this.backgroundMode = backgroundMode;
+    }
+
+    public BackgroundKey.Mode getBackgroundMode() {
+        return this.backgroundMode;
+    }
+
+    public void setBackgroundThreshold(int backgroundThreshold) {
+        if (backgroundThreshold < 0 || backgroundThreshold > 255) {
+            throw new IllegalArgumentException("backgroundThreshold must be between 0 and 255: "
+                    + backgroundThreshold);
+        }
+
+        this.backgroundThreshold = backgroundThreshold;
+    }
+
+    public int getBackgroundThreshold() {
+        return this.backgroundThreshold;
+    }
+
+    public void setConnectivity(Connectivity connectivity) {
+        this.detector.setConnectivity(connectivity);
+    }
+
+    public Connectivity getConnectivity() {
+        return this.detector.getConnectivity();
+    }
+
+    public void setMinArea(int minArea) {
+        this.detector.setMinArea(minArea);
+    }
+
+    public int getMinArea() {
+        return this.detector.getMinArea();
+    }
+
+    public void setDetectionMode(DetectionMode detectionMode) {
+        this.detectionMode = detectionMode;
+    }
+
+    public DetectionMode getDetectionMode() {
+        return this.detectionMode;
+    }
+
+    public void setGridSpec(GridSpec spec) {
+        this.gridDetector.setSpec(spec);
+    }
+
+    public GridSpec getGridSpec() {
+        return this.gridDetector.getSpec();
+    }
+
+    public void setGridTrim(boolean trim) {
+        this.gridDetector.setTrim(trim);
+    }
+
+    public boolean isGridTrim() {
+        return this.gridDetector.isTrim();
+    }
+
     public void setExportFormat(ExportFormat exportFormat) {
         this.exportFormat = exportFormat;
     }
@@ -120,39 +356,196 @@ public class ImageSlicer implements Disposable {
         return this.exportDirectory;
     }
 
+    public void setExportTarget(ExportTarget exportTarget) {
+        this.exportTarget = exportTarget;
+    }
+
+    public ExportTarget getExportTarget() {
+        return this.exportTarget;
+    }
+
+    public SliceMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    private SliceMetrics startMetrics() {
+        this.metrics = new SliceMetrics();
+        return this.metrics;
+    }
+
+    public void setDumpMetrics(boolean dumpMetrics) {
+        this.dumpMetrics = dumpMetrics;
+    }
+
+    public boolean isDumpMetrics() {
+        return this.dumpMetrics;
+    }
+
+    public DetectionCache getDetectionCache() {
+        return this.detectionCache;
+    }
+
     public List<Rectangle> getBoxes() {
-        return this.boxes;
+        return this.boxes.asList();
+    }
+
+    public void setExportThreads(int exportThreads) {
+        if (exportThreads < 1) {
+            throw new IllegalArgumentException("exportThreads must be positive: " + exportThreads);
+        }
+
+        this.exportThreads = exportThreads;
+    }
+
+    public int getExportThreads() {
+        return this.exportThreads;
+    }
+
+    public void setPngEncoder(PngEncoder pngEncoder) {
+        this.pngEncoder = pngEncoder;
+        this.atlasExporter.setPngEncoder(pngEncoder);
+    }
+
+    public PngEncoder getPngEncoder() {
+        return this.pngEncoder;
+    }
+
+    public void setDeduplicate(boolean deduplicate) {
+        this.deduplicate = deduplicate;
+    }
+
+    public boolean isDeduplicate() {
+        return this.deduplicate;
+    }
+
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+    }
+
+    public boolean isIndexed() {
+        return this.indexed;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public boolean isIncremental() {
+        return this.incremental;
     }
 
     public void export() throws IOException {
-        for (int i = 0; i < this.boxes.size(); i++) {
-            String fileName = String.format("%d.%s", i, this.exportFormat.name().toLowerCase());
-            FileHandle outputHandle = this.exportDirectory.child(fileName);
-            BufferedImage image = this.createSubImage(this.boxes.get(i));
-            if (!ImageIO.write(image, this.exportFormat.name(), outputHandle.file())) {
-                throw new IOException("Failed to save " + fileName);
-            }
+        try {
+            this.createExportTask().run(ProgressMonitor.NONE);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Export failed", e);
         }
     }
 
-    private BufferedImage createSubImage(Rectangle box) {
-        BufferedImage image = new BufferedImage((int)box.width, (int)box.height, BufferedImage.TYPE_INT_RGB);
-        for (int y=0; y<box.height; y++) {
-            for(int x=0; x<box.width; x++) {
-                int i = (int)box.x + x;
-                int j = (int)box.y + y;
-                int pixel = this.inputImage.getPixel(i, j) >> 8;
-                image.setRGB(x, y, pixel);
+    public BatchSlicer createBatchSlicer() {
+        BatchSlicer batch = new BatchSlicer();
+        batch.setBackgroundKey(this.getBackgroundKey());
+        batch.getDetector().setConnectivity(this.detector.getConnectivity());
+        batch.getDetector().setMinArea(this.detector.getMinArea());
+        batch.setDetectionMode(this.detectionMode);
+        batch.getGridDetector().setSpec(this.gridDetector.getSpec());
+        batch.getGridDetector().setTrim(this.gridDetector.isTrim());
+        batch.setExportFormat(this.exportFormat);
+        batch.setExportTarget(this.exportTarget);
+        batch.setPngEncoder(this.pngEncoder);
+        batch.setFrameThreads(this.exportThreads);
+        batch.setDeduplicate(this.deduplicate);
+        batch.setIndexed(this.indexed);
+        return batch;
+    }
+
+    public Job.Task<BatchResult> createBatchTask(List<File> sheets, BatchSlicer.Listener listener) {
+        final BatchSlicer batch = this.createBatchSlicer();
+        final Map<File, File> targets = BatchSlicer.planOutputDirectories(sheets, this.exportDirectory.file());
+        batch.setListener(listener);
+        return monitor -> batch.slice(targets, monitor);
+    }
+
+    public void setFrameCacheBudget(long budget) {
+        this.frameCache.setBudget(budget);
+    }
+
+    public long getFrameCacheBudget() {
+        return this.frameCache.getBudget();
+    }
+
+    public FrameCache getFrameCache() {
+        return this.frameCache;
+    }
+
+    private void clearFrameCache() {
+        this.frameCache.clear();
+        this.frameCache = new FrameCache(this.frameCache.getBudget());
+    }
+
+    public Job.Task<Void> createExportTask() {
+        final SheetImage sheet = this.sheet == null ? null : this.sheet.acquire();
+        final List<Rectangle> boxes = new ArrayList<>(this.boxes.without(this.excluded).asList());
+        final FileHandle directory = this.exportDirectory;
+        final ExportTarget target = this.exportTarget;
+        final int threads = this.exportThreads;
+        final boolean dumpMetrics = this.dumpMetrics;
+        final SliceMetrics metrics = this.startMetrics();
+        final SheetExporter sheetExporter = this.createSheetExporter(metrics);
+        return monitor -> {
+            if (sheet == null) {
+                return null;
             }
-        }
 
-        return image;
+            String name = sheet.getHandle().nameWithoutExtension();
+            File location = target.isArchive() ? ExportWriter.getLocation(target, directory.file(), name)
+                    : directory.file();
+            try {
+                ExportWriter writer = ExportWriter.open(target, location);
+                try {
+                    sheetExporter.export(sheet.getPixels(), boxes, name, writer, target.isArchive() ? null : location,
+                            new FrameExporter(threads), monitor);
+                    if (dumpMetrics) {
+                        writer.write(METRICS_FILE_NAME, metrics.toJson().getBytes(StandardCharsets.UTF_8), true);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    writer.abort(e);
+                    throw e;
+                }
+
+                writer.close();
+                return null;
+            } finally {
+                sheet.release();
+            }
+        };
+    }
+
+    private SheetExporter createSheetExporter(SliceMetrics metrics) {
+        AtlasExporter atlasExporter = new AtlasExporter(this.atlasExporter.getPacker());
+        atlasExporter.setPngEncoder(this.pngEncoder);
+        atlasExporter.setMetrics(metrics);
+        SheetExporter sheetExporter = new SheetExporter();
+        sheetExporter.setFormat(this.exportFormat);
+        sheetExporter.setPngEncoder(this.pngEncoder);
+        sheetExporter.setAtlasExporter(atlasExporter);
+        sheetExporter.setMetrics(metrics);
+        sheetExporter.setFrameCache(this.frameCache);
+        sheetExporter.setDeduplicate(this.deduplicate);
+        sheetExporter.setIndexed(this.indexed);
+        sheetExporter.setIncremental(this.incremental);
+        return sheetExporter;
     }
 
     @Override
     public void dispose() {
-        if (this.inputImage != null) {
-            this.inputImage.dispose();
+        if (this.sheet != null) {
+            this.sheet.release();
+            this.sheet = null;
         }
+
+        this.frameCache.clear();
     }
 }
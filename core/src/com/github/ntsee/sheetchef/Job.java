@@ -0,0 +1,103 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.utils.Disposable;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Job<T> implements ProgressMonitor {
+
+    private static final int PROGRESS_STEPS = 100;
+
+    private final Task<T> task;
+    private final Listener<T> listener;
+    private final Executor callbacks;
+    private final AtomicInteger progressStep = new AtomicInteger(-1);
+    private volatile boolean cancelled;
+    private volatile boolean stopped;
+    private volatile boolean done;
+
+    Job(Task<T> task, Listener<T> listener, Executor callbacks) {
+        this.task = task;
+        this.listener = listener;
+        this.callbacks = callbacks;
+    }
+
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    public void stop() {
+        this.stopped = true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return this.cancelled || this.stopped;
+    }
+
+    public boolean isDone() {
+        return this.done;
+    }
+
+    @Override
+    public void setProgress(float progress) {
+        int step = (int)(Math.min(1, Math.max(0, progress)) * PROGRESS_STEPS);
+        int previous = this.progressStep.get();
+        if (step > previous && this.progressStep.compareAndSet(previous, step)) {
+            this.callbacks.execute(() -> {
+                if (!this.cancelled) {
+                    this.listener.onProgress(step / (float)PROGRESS_STEPS);
+                }
+            });
+        }
+    }
+
+    void run() {
+        T result = null;
+        Exception failure = null;
+        try {
+            result = this.task.run(this);
+        } catch (CancellationException e) {
+            if (this.stopped) {
+                failure = e;
+            } else {
+                this.cancelled = true;
+            }
+        } catch (Exception e) {
+            failure = e;
+        }
+
+        final T finalResult = result;
+        final Exception finalFailure = failure;
+        this.callbacks.execute(() -> {
+            this.done = true;
+            if (this.cancelled) {
+                discard(finalResult);
+            } else if (finalFailure != null) {
+                this.listener.onFailure(finalFailure);
+            } else {
+                this.listener.onSuccess(finalResult);
+            }
+        });
+    }
+
+    private static void discard(Object result) {
+        if (result instanceof Disposable) {
+            ((Disposable)result).dispose();
+        }
+    }
+
+    public interface Task<T> {
+
+        T run(ProgressMonitor monitor) throws Exception;
+    }
+
+    public interface Listener<T> {
+
+        void onProgress(float progress);
+        void onSuccess(T result);
+        void onFailure(Exception e);
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.utils.Disposable;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class JobRunner implements Disposable {
+
+    private static final int WORKER_THREADS = 2;
+
+    private final ExecutorService workers = Executors.newFixedThreadPool(WORKER_THREADS,
+            new WorkerThreadFactory("sheetchef-job-"));
+    private final Executor callbacks;
+
+    public JobRunner(Executor callbacks) {
+        this.callbacks = callbacks;
+    }
+
+    public <T> Job<T> submit(Job.Task<T> task, Job.Listener<T> listener) {
+        Job<T> job = new Job<>(task, listener, this.callbacks);
+        this.workers.execute(job::run);
+        return job;
+    }
+
+    @Override
+    public void dispose() {
+        this.workers.shutdownNow();
+    }
+}
@@ -0,0 +1,214 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.math.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+public final class PixelBuffer {
+
+    private static final long HASH_PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long HASH_PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final int HASH_CHUNK = 1024;
+
+    private final ByteBuffer bytes;
+    private final IntBuffer pixels;
+    private final int width;
+    private final int height;
+
+    public PixelBuffer(ByteBuffer bytes, int width, int height) {
+        if (bytes.capacity() < width * height * 4) {
+            throw new IllegalArgumentException("buffer too small for " + width + "x" + height + " RGBA8888 pixels");
+        }
+
+        this.bytes = bytes.duplicate();
+        this.bytes.clear();
+        this.pixels = this.bytes.duplicate().order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+        this.width = width;
+        this.height = height;
+    }
+
+    public static PixelBuffer of(Pixmap pixmap) {
+        if (pixmap.getFormat() != Pixmap.Format.RGBA8888) {
+            throw new IllegalArgumentException("expected RGBA8888 pixmap, got " + pixmap.getFormat());
+        }
+
+        return new PixelBuffer(pixmap.getPixels(), pixmap.getWidth(), pixmap.getHeight());
+    }
+
+    public static PixelBuffer of(BufferedImage image) {
+        return of(image, ByteBuffer.allocate(image.getWidth() * image.getHeight() * 4));
+    }
+
+    public static PixelBuffer of(BufferedImage image, ByteBuffer bytes) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        PixelBuffer buffer = new PixelBuffer(bytes, width, height);
+        IntBuffer pixels = buffer.pixels.duplicate();
+        int[] row = new int[width];
+        boolean gray = image.getType() == BufferedImage.TYPE_BYTE_GRAY
+                || image.getType() == BufferedImage.TYPE_USHORT_GRAY;
+        int shift = image.getType() == BufferedImage.TYPE_USHORT_GRAY ? 8 : 0;
+        for (int y=0; y<height; y++) {
+            if (gray) {
+                image.getRaster().getSamples(0, y, width, 1, 0, row);
+                for (int x=0; x<width; x++) {
+                    int value = row[x] >>> shift;
+                    row[x] = value << 24 | value << 16 | value << 8 | 0xFF;
+                }
+            } else {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                for (int x=0; x<width; x++) {
+                    row[x] = Integer.rotateLeft(row[x], 8);
+                }
+            }
+
+            pixels.put(row);
+        }
+
+        return buffer;
+    }
+
+    public static PixelBuffer of(RowSource source, ByteBuffer bytes) throws IOException {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        PixelBuffer buffer = new PixelBuffer(bytes, width, height);
+        IntBuffer pixels = buffer.pixels.duplicate();
+        int[] row = new int[width];
+        for (int y=0; y<height; y++) {
+            if (!source.readRow(row)) {
+                throw new EOFException("Image data ends at row " + y);
+            }
+
+            pixels.put(row);
+        }
+
+        return buffer;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    public int getPixel(int x, int y) {
+        return this.pixels.get(y * this.width + x);
+    }
+
+    public void getRow(int y, int[] dst) {
+        this.getRow(0, y, this.width, dst, 0);
+    }
+
+    public void getRow(int x, int y, int length, int[] dst, int offset) {
+        IntBuffer view = this.pixels.duplicate();
+        view.position(y * this.width + x);
+        view.get(dst, offset, length);
+    }
+
+    public void getRowBytes(int x, int y, int length, byte[] dst, int offset) {
+        ByteBuffer view = this.bytes.duplicate();
+        view.position((y * this.width + x) * 4);
+        view.get(dst, offset, length * 4);
+    }
+
+    public void getRowPairs(int y, long[] dst) {
+        ByteBuffer view = this.bytes.duplicate();
+        view.position(y * this.width * 4);
+        view.slice().order(ByteOrder.nativeOrder()).asLongBuffer().get(dst, 0, this.width / 2);
+    }
+
+    public long contentHash() {
+        ByteBuffer view = this.bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        view.limit(this.width * this.height * 4);
+        LongBuffer longs = view.asLongBuffer();
+        long hash = HASH_PRIME_1 ^ ((long)this.width << 32 | this.height);
+        long[] chunk = new long[HASH_CHUNK];
+        while (longs.hasRemaining()) {
+            int length = Math.min(chunk.length, longs.remaining());
+            longs.get(chunk, 0, length);
+            for (int i=0; i<length; i++) {
+                hash = mix(hash, chunk[i]);
+            }
+        }
+
+        view.position(longs.position() * 8);
+        while (view.hasRemaining()) {
+            hash = mix(hash, view.getInt() & 0xFFFFFFFFL);
+        }
+
+        return finish(hash);
+    }
+
+    public long contentHash(int x, int y, int width, int height) {
+        long hash = HASH_PRIME_1 ^ ((long)width << 32 | height);
+        int[] row = new int[width];
+        for (int i=0; i<height; i++) {
+            this.getRow(x, y + i, width, row, 0);
+            for (int pixel : row) {
+                hash = mix(hash, pixel & 0xFFFFFFFFL);
+            }
+        }
+
+        return finish(hash);
+    }
+
+    public Rectangle getChangedRegion(PixelBuffer previous) {
+        if (previous.width != this.width || previous.height != this.height) {
+            return new Rectangle(0, 0, this.width, this.height);
+        }
+
+        int minX = this.width;
+        int minY = -1;
+        int maxX = -1;
+        int maxY = -1;
+        int[] row = new int[this.width];
+        int[] previousRow = new int[this.width];
+        for (int y=0; y<this.height; y++) {
+            this.getRow(y, row);
+            previous.getRow(y, previousRow);
+            int left = 0;
+            while (left < this.width && row[left] == previousRow[left]) {
+                left++;
+            }
+
+            if (left == this.width) {
+                continue;
+            }
+
+            int right = this.width - 1;
+            while (row[right] == previousRow[right]) {
+                right--;
+            }
+
+            if (minY < 0) {
+                minY = y;
+            }
+
+            maxY = y;
+            minX = Math.min(minX, left);
+            maxX = Math.max(maxX, right);
+        }
+
+        return minY < 0 ? null : new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    private static long mix(long hash, long value) {
+        return Long.rotateLeft(hash ^ value * HASH_PRIME_2, 31) * HASH_PRIME_1;
+    }
+
+    private static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= HASH_PRIME_2;
+        hash ^= hash >>> 29;
+        return hash;
+    }
+}
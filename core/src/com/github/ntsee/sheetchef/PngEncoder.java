@@ -0,0 +1,492 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+public class PngEncoder {
+
+    public static final int FAST = Deflater.BEST_SPEED;
+    public static final int SMALL = Deflater.BEST_COMPRESSION;
+    public static final int DEFAULT_LEVEL = 4;
+    public static final Filter DEFAULT_FILTER = Filter.UP;
+
+    private static final byte[] SIGNATURE = {(byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] IHDR = "IHDR".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] PLTE = "PLTE".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRNS = "tRNS".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IDAT = "IDAT".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IEND = "IEND".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_LENGTH = 13;
+    private static final int CHUNK_OVERHEAD = 12;
+    private static final int BYTES_PER_PIXEL = 4;
+    private static final int BIT_DEPTH = 8;
+    private static final int COLOR_TYPE_RGBA = 6;
+    private static final int COLOR_TYPE_INDEXED = 3;
+    private static final int ZLIB_METHOD = 0x78;
+    private static final int CHUNK_BYTES = 256 * 1024;
+    private static final int WINDOW_SIZE = 32 * 1024;
+    private static final int ADLER_BASE = 65521;
+    private static final Filter[] ROW_FILTERS = {Filter.NONE, Filter.SUB, Filter.UP, Filter.AVERAGE, Filter.PAETH};
+
+    private final int level;
+    private final Filter filter;
+    private final ExecutorService executor;
+
+    public PngEncoder() {
+        this(DEFAULT_LEVEL, DEFAULT_FILTER);
+    }
+
+    public PngEncoder(int level, Filter filter) {
+        this(level, filter, ForkJoinPool.commonPool());
+    }
+
+    public PngEncoder(int level, Filter filter, ExecutorService executor) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("level must be between -1 and 9: " + level);
+        }
+
+        this.level = level;
+        this.filter = filter;
+        this.executor = executor;
+    }
+
+    public int getLevel() {
+        return this.level;
+    }
+
+    public Filter getFilter() {
+        return this.filter;
+    }
+
+    public byte[] encode(PixelBuffer pixels, Rectangle box) throws IOException {
+        int x = (int)box.x;
+        int y = (int)box.y;
+        int width = (int)box.width;
+        return this.encode(width, (int)box.height, null, 0, () -> (row, rgba) -> pixels.getRowBytes(x, y + row, width,
+                rgba, 0));
+    }
+
+    public byte[] encode(PixelBuffer pixels, Rectangle box, SheetPalette palette, int colors) throws IOException {
+        int x = (int)box.x;
+        int y = (int)box.y;
+        int width = (int)box.width;
+        return this.encode(width, (int)box.height, palette, colors, () -> {
+            int[] rgba = new int[width];
+            return (row, indices) -> {
+                pixels.getRow(x, y + row, width, rgba, 0);
+                palette.index(rgba, 0, width, indices, 0);
+            };
+        });
+    }
+
+    public byte[] encode(BufferedImage image) throws IOException {
+        int width = image.getWidth();
+        return this.encode(width, image.getHeight(), null, 0, () -> {
+            int[] argb = new int[width];
+            return (row, rgba) -> {
+                image.getRGB(0, row, width, 1, argb, 0, width);
+                for (int x=0, i=0; x<width; x++) {
+                    int pixel = argb[x];
+                    rgba[i++] = (byte)(pixel >>> 16);
+                    rgba[i++] = (byte)(pixel >>> 8);
+                    rgba[i++] = (byte)pixel;
+                    rgba[i++] = (byte)(pixel >>> 24);
+                }
+            };
+        });
+    }
+
+    private byte[] encode(int width, int height, SheetPalette palette, int colors, Supplier<RowReader> rows)
+            throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IOException("Cannot encode an empty " + width + "x" + height + " image");
+        }
+
+        int bytesPerPixel = palette == null ? BYTES_PER_PIXEL : 1;
+        int chunkRows = Math.max(1, CHUNK_BYTES / (width * bytesPerPixel + 1));
+        List<Deflated> parts;
+        if (this.executor == null || height <= chunkRows) {
+            parts = Collections.singletonList(this.deflate(width, bytesPerPixel, 0, height, rows, false, true));
+        } else {
+            parts = this.deflateParallel(width, bytesPerPixel, height, chunkRows, rows);
+        }
+
+        int dataLength = 0;
+        for (Deflated part : parts) {
+            dataLength += part.length;
+        }
+
+        int paletteLength = palette == null ? 0 : colors * 3;
+        int alphaLength = palette == null ? 0 : getAlphaLength(palette, colors);
+        ByteBuffer output = ByteBuffer.wrap(new byte[SIGNATURE.length + HEADER_LENGTH + dataLength
+                + CHUNK_OVERHEAD * 3 + (palette == null ? 0 : CHUNK_OVERHEAD + paletteLength)
+                + (alphaLength == 0 ? 0 : CHUNK_OVERHEAD + alphaLength)]);
+        output.put(SIGNATURE);
+        int start = beginChunk(output, IHDR, HEADER_LENGTH);
+        output.putInt(width);
+        output.putInt(height);
+        output.put((byte)BIT_DEPTH);
+        output.put((byte)(palette == null ? COLOR_TYPE_RGBA : COLOR_TYPE_INDEXED));
+        output.put(new byte[3]);
+        endChunk(output, start);
+        if (palette != null) {
+            start = beginChunk(output, PLTE, paletteLength);
+            for (int i=0; i<colors; i++) {
+                int color = palette.getColor(i);
+                output.put((byte)(color >>> 24));
+                output.put((byte)(color >>> 16));
+                output.put((byte)(color >>> 8));
+            }
+
+            endChunk(output, start);
+            if (alphaLength > 0) {
+                start = beginChunk(output, TRNS, alphaLength);
+                for (int i=0; i<alphaLength; i++) {
+                    output.put((byte)palette.getColor(i));
+                }
+
+                endChunk(output, start);
+            }
+        }
+
+        start = beginChunk(output, IDAT, dataLength);
+        for (Deflated part : parts) {
+            output.put(part.data, 0, part.length);
+        }
+
+        endChunk(output, start);
+        endChunk(output, beginChunk(output, IEND, 0));
+        return output.array();
+    }
+
+    private static int getAlphaLength(SheetPalette palette, int colors) {
+        int length = colors;
+        while (length > 0 && (palette.getColor(length - 1) & 0xFF) == 0xFF) {
+            length--;
+        }
+
+        return length;
+    }
+
+    private List<Deflated> deflateParallel(int width, int bytesPerPixel, int height, int chunkRows,
+                                           Supplier<RowReader> rows) throws IOException {
+        List<Future<Deflated>> futures = new ArrayList<>();
+        for (int startRow=0; startRow<height; startRow+=chunkRows) {
+            int start = startRow;
+            int end = Math.min(height, startRow + chunkRows);
+            futures.add(this.executor.submit(() -> this.deflate(width, bytesPerPixel, start, end, rows, true,
+                    end == height)));
+        }
+
+        List<Deflated> parts = new ArrayList<>(futures.size() + 2);
+        parts.add(new Deflated(new byte[] {(byte)ZLIB_METHOD, (byte)this.getZlibFlags()}));
+        long adler = 1;
+        try {
+            for (Future<Deflated> future : futures) {
+                Deflated part = future.get();
+                adler = combineAdler(adler, part.adler, part.rawLength);
+                parts.add(part);
+            }
+        } catch (InterruptedException e) {
+            for (Future<Deflated> future : futures) {
+                future.cancel(true);
+            }
+
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("PNG encoding interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("PNG encoding failed", e.getCause());
+        }
+
+        parts.add(new Deflated(ByteBuffer.allocate(4).putInt((int)adler).array()));
+        return parts;
+    }
+
+    private Deflated deflate(int width, int bytesPerPixel, int startRow, int endRow, Supplier<RowReader> rows,
+                             boolean raw, boolean last) {
+        Deflater deflater = new Deflater(this.level, raw);
+        try {
+            if (startRow > 0) {
+                deflater.setDictionary(this.createDictionary(width, bytesPerPixel, startRow, rows));
+            }
+
+            int rowLength = width * bytesPerPixel + 1;
+            Adler32 adler = new Adler32();
+            Deflated output = new Deflated((endRow - startRow) * rowLength / 4 + 64);
+            output.rawLength = (long)(endRow - startRow) * rowLength;
+            this.filterRows(width, bytesPerPixel, startRow, endRow, rows, row -> {
+                if (raw) {
+                    adler.update(row);
+                }
+
+                deflater.setInput(row);
+                while (!deflater.needsInput()) {
+                    output.deflate(deflater, Deflater.NO_FLUSH);
+                }
+            });
+
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    output.deflate(deflater, Deflater.NO_FLUSH);
+                }
+            } else {
+                boolean full;
+                do {
+                    full = output.deflate(deflater, Deflater.SYNC_FLUSH);
+                } while (full);
+            }
+
+            output.adler = adler.getValue();
+            return output;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] createDictionary(int width, int bytesPerPixel, int startRow, Supplier<RowReader> rows) {
+        int rowLength = width * bytesPerPixel + 1;
+        int windowRows = Math.min(startRow, -Math.floorDiv(-WINDOW_SIZE, rowLength));
+        byte[] window = new byte[windowRows * rowLength];
+        int[] length = new int[1];
+        this.filterRows(width, bytesPerPixel, startRow - windowRows, startRow, rows, row -> {
+            System.arraycopy(row, 0, window, length[0], row.length);
+            length[0] += row.length;
+        });
+
+        return Arrays.copyOfRange(window, Math.max(0, window.length - WINDOW_SIZE), window.length);
+    }
+
+    private void filterRows(int width, int bytesPerPixel, int startRow, int endRow, Supplier<RowReader> rows,
+                            RowSink sink) {
+        int rowBytes = width * bytesPerPixel;
+        byte[] previous = new byte[rowBytes];
+        byte[] current = new byte[rowBytes];
+        byte[][] candidates = new byte[this.filter == Filter.ADAPTIVE ? ROW_FILTERS.length : 1][rowBytes + 1];
+        RowReader reader = rows.get();
+        if (startRow > 0) {
+            reader.read(startRow - 1, previous);
+        }
+
+        for (int y=startRow; y<endRow; y++) {
+            reader.read(y, current);
+            if (this.filter != Filter.ADAPTIVE) {
+                filterRow(this.filter, bytesPerPixel, current, previous, candidates[0]);
+                sink.accept(candidates[0]);
+            } else {
+                long best = Long.MAX_VALUE;
+                byte[] chosen = null;
+                for (int type=0; type<candidates.length; type++) {
+                    long score = filterRow(ROW_FILTERS[type], bytesPerPixel, current, previous, candidates[type]);
+                    if (score < best) {
+                        best = score;
+                        chosen = candidates[type];
+                    }
+                }
+
+                sink.accept(chosen);
+            }
+
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+    }
+
+    private static long filterRow(Filter type, int bytesPerPixel, byte[] current, byte[] previous,
+                                  byte[] output) {
+        output[0] = (byte)type.ordinal();
+        int length = current.length;
+        long score = 0;
+        switch (type) {
+            case NONE:
+                for (int i=0; i<length; i++) {
+                    byte value = current[i];
+                    output[i + 1] = value;
+                    score += Math.abs(value);
+                }
+                break;
+            case SUB:
+                for (int i=0; i<bytesPerPixel; i++) {
+                    output[i + 1] = current[i];
+                    score += Math.abs(current[i]);
+                }
+
+                for (int i=bytesPerPixel; i<length; i++) {
+                    byte value = (byte)(current[i] - current[i - bytesPerPixel]);
+                    output[i + 1] = value;
+                    score += Math.abs(value);
+                }
+                break;
+            case UP:
+                for (int i=0; i<length; i++) {
+                    byte value = (byte)(current[i] - previous[i]);
+                    output[i + 1] = value;
+                    score += Math.abs(value);
+                }
+                break;
+            case AVERAGE:
+                for (int i=0; i<bytesPerPixel; i++) {
+                    byte value = (byte)(current[i] - ((previous[i] & 0xFF) >>> 1));
+                    output[i + 1] = value;
+                    score += Math.abs(value);
+                }
+
+                for (int i=bytesPerPixel; i<length; i++) {
+                    int average = ((current[i - bytesPerPixel] & 0xFF) + (previous[i] & 0xFF)) >>> 1;
+                    byte value = (byte)(current[i] - average);
+                    output[i + 1] = value;
+                    score += Math.abs(value);
+                }
+                break;
+            case PAETH:
+                for (int i=0; i<bytesPerPixel; i++) {
+                    byte value = (byte)(current[i] - previous[i]);
+                    output[i + 1] = value;
+                    score += Math.abs(value);
+                }
+
+                for (int i=bytesPerPixel; i<length; i++) {
+                    int predicted = paeth(current[i - bytesPerPixel] & 0xFF, previous[i] & 0xFF,
+                            previous[i - bytesPerPixel] & 0xFF);
+                    byte value = (byte)(current[i] - predicted);
+                    output[i + 1] = value;
+                    score += Math.abs(value);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Not a row filter: " + type);
+        }
+
+        return score;
+    }
+
+    private static int paeth(int left, int up, int upLeft) {
+        int distanceLeft = Math.abs(up - upLeft);
+        int distanceUp = Math.abs(left - upLeft);
+        int distanceUpLeft = Math.abs(left + up - upLeft - upLeft);
+        int upLeftCloser = (distanceUpLeft - distanceUp) >> 31;
+        int closer = upLeft ^ ((upLeft ^ up) & ~upLeftCloser);
+        int closerDistance = Math.min(distanceUp, distanceUpLeft);
+        return left ^ ((left ^ closer) & (closerDistance - distanceLeft) >> 31);
+    }
+
+    private int getZlibFlags() {
+        int levelFlags;
+        if (this.level == Deflater.DEFAULT_COMPRESSION || this.level == 6) {
+            levelFlags = 2;
+        } else if (this.level < 2) {
+            levelFlags = 0;
+        } else if (this.level < 6) {
+            levelFlags = 1;
+        } else {
+            levelFlags = 3;
+        }
+
+        int flags = levelFlags << 6;
+        return flags + 31 - (ZLIB_METHOD * 256 + flags) % 31;
+    }
+
+    private static long combineAdler(long adler1, long adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = remainder * sum1 % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += (adler1 >>> 16 & 0xFFFF) + (adler2 >>> 16 & 0xFFFF) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+
+        if (sum2 >= ADLER_BASE * 2L) {
+            sum2 -= ADLER_BASE * 2L;
+        }
+
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+
+        return sum1 | sum2 << 16;
+    }
+
+    private static int beginChunk(ByteBuffer output, byte[] type, int length) {
+        output.putInt(length);
+        int start = output.position();
+        output.put(type);
+        return start;
+    }
+
+    private static void endChunk(ByteBuffer output, int start) {
+        CRC32 crc = new CRC32();
+        crc.update(output.array(), start, output.position() - start);
+        output.putInt((int)crc.getValue());
+    }
+
+    public enum Filter {
+
+        NONE,
+        SUB,
+        UP,
+        AVERAGE,
+        PAETH,
+        ADAPTIVE
+    }
+
+    private interface RowReader {
+
+        void read(int y, byte[] row);
+    }
+
+    private interface RowSink {
+
+        void accept(byte[] filtered);
+    }
+
+    private static class Deflated {
+
+        private byte[] data;
+        private int length;
+        private long adler;
+        private long rawLength;
+
+        Deflated(int capacity) {
+            this.data = new byte[capacity];
+        }
+
+        Deflated(byte[] data) {
+            this.data = data;
+            this.length = data.length;
+        }
+
+        boolean deflate(Deflater deflater, int flush) {
+            if (this.length == this.data.length) {
+                this.data = Arrays.copyOf(this.data, this.data.length * 2);
+            }
+
+            int space = this.data.length - this.length;
+            int written = deflater.deflate(this.data, this.length, space, flush);
+            this.length += written;
+            return written == space;
+        }
+    }
+}
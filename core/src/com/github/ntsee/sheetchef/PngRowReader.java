@@ -0,0 +1,385 @@
+package com.github.ntsee.sheetchef;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+public class PngRowReader implements RowSource, Closeable {
+
+    private static final byte[] SIGNATURE = {(byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int COLOR_GRAY = 0;
+    private static final int COLOR_RGB = 2;
+    private static final int COLOR_PALETTE = 3;
+    private static final int COLOR_GRAY_ALPHA = 4;
+    private static final int COLOR_RGBA = 6;
+    private static final int INFLATE_BUFFER_SIZE = 64 * 1024;
+
+    private final DataInputStream input;
+    private final int width;
+    private final int height;
+    private final int bitDepth;
+    private final int colorType;
+    private final boolean interlaced;
+    private final int bytesPerPixel;
+    private int[] palette = new int[0];
+    private int transparentGray = -1;
+    private int transparentRed = -1;
+    private int transparentGreen = -1;
+    private int transparentBlue = -1;
+    private final Inflater inflater = new Inflater();
+    private final InputStream pixels;
+    private byte[] previous;
+    private byte[] current;
+    private int row;
+
+    public PngRowReader(InputStream input) throws IOException {
+        this.input = new DataInputStream(input);
+        byte[] signature = new byte[SIGNATURE.length];
+        this.input.readFully(signature);
+        if (!Arrays.equals(signature, SIGNATURE)) {
+            throw new IOException("Not a PNG file");
+        }
+
+        if (this.input.readInt() != 13 || !"IHDR".equals(this.readChunkType())) {
+            throw new IOException("Missing PNG header");
+        }
+
+        this.width = this.input.readInt();
+        this.height = this.input.readInt();
+        this.bitDepth = this.input.readUnsignedByte();
+        this.colorType = this.input.readUnsignedByte();
+        this.input.readUnsignedByte();
+        this.input.readUnsignedByte();
+        this.interlaced = this.input.readUnsignedByte() != 0;
+        this.input.readInt();
+        if (this.width <= 0 || this.height <= 0) {
+            throw new IOException("Invalid PNG size " + this.width + "x" + this.height);
+        }
+
+        int bitsPerPixel = this.getChannels() * this.bitDepth;
+        this.bytesPerPixel = Math.max(1, bitsPerPixel / 8);
+        int rowBytes = (int)(((long)this.width * bitsPerPixel + 7) / 8);
+        this.previous = new byte[rowBytes];
+        this.current = new byte[rowBytes];
+        int idatLength = this.readChunksUntilData();
+        this.pixels = new InflaterInputStream(new DataStream(idatLength), this.inflater, INFLATE_BUFFER_SIZE);
+    }
+
+    @Override
+    public int getWidth() {
+        return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+        return this.height;
+    }
+
+    public boolean isInterlaced() {
+        return this.interlaced;
+    }
+
+    @Override
+    public boolean readRow(int[] rgba) throws IOException {
+        if (this.interlaced) {
+            throw new IOException("Interlaced PNG files cannot be read row by row");
+        }
+
+        if (this.row == this.height) {
+            return false;
+        }
+
+        int filter = this.pixels.read();
+        if (filter < 0) {
+            throw new EOFException("PNG data ends at row " + this.row);
+        }
+
+        this.readFully(this.current);
+        this.unfilter(filter);
+        this.convert(rgba);
+        byte[] swap = this.previous;
+        this.previous = this.current;
+        this.current = swap;
+        this.row++;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.inflater.end();
+        this.input.close();
+    }
+
+    private int getChannels() throws IOException {
+        switch (this.colorType) {
+            case COLOR_GRAY:
+            case COLOR_PALETTE:
+                return 1;
+            case COLOR_GRAY_ALPHA:
+                return 2;
+            case COLOR_RGB:
+                return 3;
+            case COLOR_RGBA:
+                return 4;
+            default:
+                throw new IOException("Unsupported PNG color type " + this.colorType);
+        }
+    }
+
+    private String readChunkType() throws IOException {
+        byte[] type = new byte[4];
+        this.input.readFully(type);
+        return new String(type, StandardCharsets.US_ASCII);
+    }
+
+    private int readChunksUntilData() throws IOException {
+        while (true) {
+            int length = this.input.readInt();
+            String type = this.readChunkType();
+            switch (type) {
+                case "IDAT":
+                    return length;
+                case "PLTE":
+                    this.palette = new int[length / 3];
+                    for (int i=0; i<this.palette.length; i++) {
+                        int red = this.input.readUnsignedByte();
+                        int green = this.input.readUnsignedByte();
+                        int blue = this.input.readUnsignedByte();
+                        this.palette[i] = red << 24 | green << 16 | blue << 8 | 0xFF;
+                    }
+
+                    this.skipFully(length - this.palette.length * 3);
+                    break;
+                case "tRNS":
+                    this.readTransparency(length);
+                    break;
+                case "IEND":
+                    throw new IOException("PNG file has no image data");
+                default:
+                    this.skipFully(length);
+                    break;
+            }
+
+            this.input.readInt();
+        }
+    }
+
+    private void readTransparency(int length) throws IOException {
+        if (this.colorType == COLOR_PALETTE) {
+            for (int i=0; i<length; i++) {
+                int alpha = this.input.readUnsignedByte();
+                if (i < this.palette.length) {
+                    this.palette[i] = this.palette[i] & 0xFFFFFF00 | alpha;
+                }
+            }
+        } else if (this.colorType == COLOR_GRAY && length >= 2) {
+            this.transparentGray = this.input.readUnsignedShort();
+            this.skipFully(length - 2);
+        } else if (this.colorType == COLOR_RGB && length >= 6) {
+            this.transparentRed = this.input.readUnsignedShort();
+            this.transparentGreen = this.input.readUnsignedShort();
+            this.transparentBlue = this.input.readUnsignedShort();
+            this.skipFully(length - 6);
+        } else {
+            this.skipFully(length);
+        }
+    }
+
+    private void skipFully(int length) throws IOException {
+        int remaining = length;
+        while (remaining > 0) {
+            int skipped = this.input.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new EOFException("Truncated PNG chunk");
+            }
+
+            remaining -= skipped;
+        }
+    }
+
+    private void readFully(byte[] buffer) throws IOException {
+        int offset = 0;
+        while (offset < buffer.length) {
+            int read = this.pixels.read(buffer, offset, buffer.length - offset);
+            if (read < 0) {
+                throw new EOFException("PNG data ends at row " + this.row);
+            }
+
+            offset += read;
+        }
+    }
+
+    private void unfilter(int filter) throws IOException {
+        byte[] cur = this.current;
+        byte[] prev = this.previous;
+        int bpp = this.bytesPerPixel;
+        boolean first = this.row == 0;
+        switch (filter) {
+            case 0:
+                break;
+            case 1:
+                for (int i=bpp; i<cur.length; i++) {
+                    cur[i] += cur[i - bpp];
+                }
+                break;
+            case 2:
+                if (!first) {
+                    for (int i=0; i<cur.length; i++) {
+                        cur[i] += prev[i];
+                    }
+                }
+                break;
+            case 3:
+                for (int i=0; i<cur.length; i++) {
+                    int left = i >= bpp ? cur[i - bpp] & 0xFF : 0;
+                    int up = first ? 0 : prev[i] & 0xFF;
+                    cur[i] += (left + up) >>> 1;
+                }
+                break;
+            case 4:
+                for (int i=0; i<cur.length; i++) {
+                    int left = i >= bpp ? cur[i - bpp] & 0xFF : 0;
+                    int up = first ? 0 : prev[i] & 0xFF;
+                    int upLeft = i >= bpp && !first ? prev[i - bpp] & 0xFF : 0;
+                    cur[i] += paeth(left, up, upLeft);
+                }
+                break;
+            default:
+                throw new IOException("Invalid PNG filter " + filter + " at row " + this.row);
+        }
+    }
+
+    private static int paeth(int left, int up, int upLeft) {
+        int estimate = left + up - upLeft;
+        int distanceLeft = Math.abs(estimate - left);
+        int distanceUp = Math.abs(estimate - up);
+        int distanceUpLeft = Math.abs(estimate - upLeft);
+        if (distanceLeft <= distanceUp && distanceLeft <= distanceUpLeft) {
+            return left;
+        }
+
+        return distanceUp <= distanceUpLeft ? up : upLeft;
+    }
+
+    private void convert(int[] rgba) {
+        byte[] data = this.current;
+        boolean wide = this.bitDepth == 16;
+        switch (this.colorType) {
+            case COLOR_RGBA:
+                for (int x=0, i=0; x<this.width; x++) {
+                    int red = data[i] & 0xFF;
+                    int green = data[wide ? i + 2 : i + 1] & 0xFF;
+                    int blue = data[wide ? i + 4 : i + 2] & 0xFF;
+                    int alpha = data[wide ? i + 6 : i + 3] & 0xFF;
+                    rgba[x] = red << 24 | green << 16 | blue << 8 | alpha;
+                    i += wide ? 8 : 4;
+                }
+                break;
+            case COLOR_RGB:
+                for (int x=0, i=0; x<this.width; x++) {
+                    int red = this.sample(data, i);
+                    int green = this.sample(data, wide ? i + 2 : i + 1);
+                    int blue = this.sample(data, wide ? i + 4 : i + 2);
+                    boolean transparent = red == this.transparentRed && green == this.transparentGreen
+                            && blue == this.transparentBlue;
+                    if (wide) {
+                        red >>>= 8;
+                        green >>>= 8;
+                        blue >>>= 8;
+                    }
+
+                    rgba[x] = red << 24 | green << 16 | blue << 8 | (transparent ? 0 : 0xFF);
+                    i += wide ? 6 : 3;
+                }
+                break;
+            case COLOR_GRAY_ALPHA:
+                for (int x=0, i=0; x<this.width; x++) {
+                    int gray = data[i] & 0xFF;
+                    int alpha = data[wide ? i + 2 : i + 1] & 0xFF;
+                    rgba[x] = gray << 24 | gray << 16 | gray << 8 | alpha;
+                    i += wide ? 4 : 2;
+                }
+                break;
+            case COLOR_GRAY:
+                for (int x=0; x<this.width; x++) {
+                    int value = wide ? this.sample(data, x * 2) : this.packedSample(data, x);
+                    int gray = wide ? value >>> 8 : value * 255 / ((1 << this.bitDepth) - 1);
+                    int alpha = value == this.transparentGray ? 0 : 0xFF;
+                    rgba[x] = gray << 24 | gray << 16 | gray << 8 | alpha;
+                }
+                break;
+            case COLOR_PALETTE:
+                for (int x=0; x<this.width; x++) {
+                    int index = this.packedSample(data, x);
+                    rgba[x] = index < this.palette.length ? this.palette[index] : 0;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private int sample(byte[] data, int index) {
+        if (this.bitDepth == 16) {
+            return (data[index] & 0xFF) << 8 | data[index + 1] & 0xFF;
+        }
+
+        return data[index] & 0xFF;
+    }
+
+    private int packedSample(byte[] data, int x) {
+        if (this.bitDepth == 8) {
+            return data[x] & 0xFF;
+        }
+
+        int bit = x * this.bitDepth;
+        int shift = 8 - this.bitDepth - (bit & 7);
+        return (data[bit >>> 3] >>> shift) & ((1 << this.bitDepth) - 1);
+    }
+
+    private class DataStream extends InputStream {
+
+        private int remaining;
+        private boolean finished;
+
+        DataStream(int length) {
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return this.read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            while (this.remaining == 0) {
+                if (this.finished) {
+                    return -1;
+                }
+
+                input.readInt();
+                this.remaining = input.readInt();
+                if (!"IDAT".equals(readChunkType())) {
+                    this.remaining = 0;
+                    this.finished = true;
+                }
+            }
+
+            int read = input.read(buffer, offset, Math.min(length, this.remaining));
+            if (read < 0) {
+                throw new EOFException("Truncated PNG data");
+            }
+
+            this.remaining -= read;
+            return read;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.ntsee.sheetchef;
+
+import java.util.concurrent.CancellationException;
+
+public interface ProgressMonitor {
+
+    ProgressMonitor NONE = new ProgressMonitor() {
+        @Override
+        public void setProgress(float progress) {
+
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+    };
+
+    void setProgress(float progress);
+    boolean isCancelled();
+
+    static void checkCancelled(ProgressMonitor monitor) {
+        if (monitor.isCancelled()) {
+            throw new CancellationException();
+        }
+    }
+}
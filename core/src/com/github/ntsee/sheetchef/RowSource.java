@@ -0,0 +1,10 @@
+package com.github.ntsee.sheetchef;
+
+import java.io.IOException;
+
+public interface RowSource {
+
+    int getWidth();
+    int getHeight();
+    boolean readRow(int[] rgba) throws IOException;
+}
@@ -0,0 +1,287 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.util.Arrays;
+import java.util.List;
+
+final class RunLabeler {
+
+    private final int reach;
+    private final int minArea;
+    private final List<Rectangle> boxes;
+    private final boolean tracking;
+
+    private int[] prevStart;
+    private int[] prevEnd;
+    private int[] prevLabel;
+    private int prevCount;
+    private int[] curStart;
+    private int[] curEnd;
+    private int[] curLabel;
+    private int curCount;
+
+    private int[] parent;
+    private int[] minX;
+    private int[] minY;
+    private int[] maxX;
+    private int[] maxY;
+    private long[] area;
+    private int[] nextMinX;
+    private int[] nextMinY;
+    private int[] nextMaxX;
+    private int[] nextMaxY;
+    private long[] nextArea;
+    private int[] remap;
+    private int componentCount;
+
+    private int[] handle;
+    private int[] nextHandle;
+    private BandLabels band;
+    private boolean firstRow = true;
+
+    RunLabeler(int width, Connectivity connectivity, int minArea, List<Rectangle> boxes) {
+        this(width, connectivity, minArea, boxes, false);
+    }
+
+    RunLabeler(int width, Connectivity connectivity, int minArea, List<Rectangle> boxes, boolean tracking) {
+        this.reach = connectivity == Connectivity.EIGHT ? 1 : 0;
+        this.minArea = minArea;
+        this.boxes = boxes;
+        this.tracking = tracking;
+        int runs = width / 2 + 1;
+        this.prevStart = new int[runs];
+        this.prevEnd = new int[runs];
+        this.prevLabel = new int[runs];
+        this.curStart = new int[runs];
+        this.curEnd = new int[runs];
+        this.curLabel = new int[runs];
+        int components = runs * 2;
+        this.parent = new int[components];
+        this.minX = new int[components];
+        this.minY = new int[components];
+        this.maxX = new int[components];
+        this.maxY = new int[components];
+        this.area = new long[components];
+        this.nextMinX = new int[components];
+        this.nextMinY = new int[components];
+        this.nextMaxX = new int[components];
+        this.nextMaxY = new int[components];
+        this.nextArea = new long[components];
+        this.remap = new int[components];
+        if (tracking) {
+            this.handle = new int[components];
+            this.nextHandle = new int[components];
+            this.band = new BandLabels(runs, boxes);
+        }
+    }
+
+    void addRun(int start, int end) {
+        this.curStart[this.curCount] = start;
+        this.curEnd[this.curCount] = end;
+        this.curCount++;
+    }
+
+    void addRuns(long[] words, int offset, int length) {
+        int wordCount = ForegroundMask.getWordCount(length);
+        int start = -1;
+        for (int i=0; i<wordCount; i++) {
+            long word = words[offset + i];
+            if (word == (start < 0 ? 0 : -1L)) {
+                continue;
+            }
+
+            int base = i << 6;
+            int bit = 0;
+            while (bit < 64) {
+                long rest = (start < 0 ? word : ~word) >>> bit;
+                if (rest == 0) {
+                    break;
+                }
+
+                bit += Long.numberOfTrailingZeros(rest);
+                if (start < 0) {
+                    start = base + bit;
+                } else {
+                    this.addRun(start, base + bit);
+                    start = -1;
+                }
+            }
+        }
+
+        if (start >= 0) {
+            this.addRun(start, length);
+        }
+    }
+
+    void endRow(int y) {
+        int base = this.componentCount;
+        for (int i=0; i<this.curCount; i++) {
+            int id = base + i;
+            this.parent[id] = id;
+            this.minX[id] = this.curStart[i];
+            this.maxX[id] = this.curEnd[i] - 1;
+            this.minY[id] = y;
+            this.maxY[id] = y;
+            this.area[id] = this.curEnd[i] - this.curStart[i];
+            this.curLabel[i] = id;
+            if (this.tracking) {
+                this.handle[id] = this.firstRow ? this.band.addTopRun(this.curStart[i], this.curEnd[i]) : -1;
+            }
+        }
+
+        this.componentCount = base + this.curCount;
+        this.firstRow = false;
+        int j = 0;
+        for (int i=0; i<this.curCount; i++) {
+            int start = this.curStart[i] - this.reach;
+            int end = this.curEnd[i] + this.reach;
+            while (j < this.prevCount && this.prevEnd[j] <= start) {
+                j++;
+            }
+
+            for (int k=j; k<this.prevCount && this.prevStart[k] < end; k++) {
+                this.union(this.prevLabel[k], this.curLabel[i]);
+            }
+        }
+
+        this.compact();
+    }
+
+    void finish() {
+        for (int i=0; i<this.componentCount; i++) {
+            this.emit(i);
+        }
+
+        this.componentCount = 0;
+        this.prevCount = 0;
+    }
+
+    BandLabels finishBand() {
+        for (int i=0; i<this.componentCount; i++) {
+            if (this.handle[i] < 0) {
+                this.handle[i] = this.band.addHandle();
+            }
+
+            this.record(i);
+        }
+
+        for (int i=0; i<this.prevCount; i++) {
+            this.band.addBottomRun(this.prevStart[i], this.prevEnd[i], this.handle[this.prevLabel[i]]);
+        }
+
+        this.componentCount = 0;
+        this.prevCount = 0;
+        this.band.resolve();
+        return this.band;
+    }
+
+    private void compact() {
+        Arrays.fill(this.remap, 0, this.componentCount, -1);
+        int next = 0;
+        for (int i=0; i<this.curCount; i++) {
+            int root = this.find(this.curLabel[i]);
+            if (this.remap[root] < 0) {
+                this.remap[root] = next;
+                this.nextMinX[next] = this.minX[root];
+                this.nextMinY[next] = this.minY[root];
+                this.nextMaxX[next] = this.maxX[root];
+                this.nextMaxY[next] = this.maxY[root];
+                this.nextArea[next] = this.area[root];
+                if (this.tracking) {
+                    this.nextHandle[next] = this.handle[root];
+                }
+
+                next++;
+            }
+
+            this.curLabel[i] = this.remap[root];
+        }
+
+        for (int i=0; i<this.prevCount; i++) {
+            int root = this.find(this.prevLabel[i]);
+            if (this.remap[root] == -1) {
+                this.close(root);
+                this.remap[root] = -2;
+            }
+        }
+
+        int[] ints = this.minX; this.minX = this.nextMinX; this.nextMinX = ints;
+        ints = this.minY; this.minY = this.nextMinY; this.nextMinY = ints;
+        ints = this.maxX; this.maxX = this.nextMaxX; this.nextMaxX = ints;
+        ints = this.maxY; this.maxY = this.nextMaxY; this.nextMaxY = ints;
+        long[] longs = this.area; this.area = this.nextArea; this.nextArea = longs;
+        if (this.tracking) {
+            ints = this.handle; this.handle = this.nextHandle; this.nextHandle = ints;
+        }
+
+        for (int i=0; i<next; i++) {
+            this.parent[i] = i;
+        }
+
+        this.componentCount = next;
+        ints = this.prevStart; this.prevStart = this.curStart; this.curStart = ints;
+        ints = this.prevEnd; this.prevEnd = this.curEnd; this.curEnd = ints;
+        ints = this.prevLabel; this.prevLabel = this.curLabel; this.curLabel = ints;
+        this.prevCount = this.curCount;
+        this.curCount = 0;
+    }
+
+    private int find(int id) {
+        int root = id;
+        while (this.parent[root] != root) {
+            root = this.parent[root];
+        }
+
+        while (this.parent[id] != root) {
+            int next = this.parent[id];
+            this.parent[id] = root;
+            id = next;
+        }
+
+        return root;
+    }
+
+    private void union(int a, int b) {
+        int rootA = this.find(a);
+        int rootB = this.find(b);
+        if (rootA == rootB) {
+            return;
+        }
+
+        int root = Math.min(rootA, rootB);
+        int child = Math.max(rootA, rootB);
+        this.parent[child] = root;
+        this.minX[root] = Math.min(this.minX[root], this.minX[child]);
+        this.minY[root] = Math.min(this.minY[root], this.minY[child]);
+        this.maxX[root] = Math.max(this.maxX[root], this.maxX[child]);
+        this.maxY[root] = Math.max(this.maxY[root], this.maxY[child]);
+        this.area[root] += this.area[child];
+        if (this.tracking && this.handle[child] >= 0) {
+            if (this.handle[root] >= 0) {
+                this.band.unionHandles(this.handle[root], this.handle[child]);
+            } else {
+                this.handle[root] = this.handle[child];
+            }
+        }
+    }
+
+    private void close(int id) {
+        if (this.tracking && this.handle[id] >= 0) {
+            this.record(id);
+        } else {
+            this.emit(id);
+        }
+    }
+
+    private void record(int id) {
+        this.band.record(this.handle[id], this.minX[id], this.minY[id], this.maxX[id], this.maxY[id], this.area[id]);
+    }
+
+    private void emit(int id) {
+        if (this.area[id] >= this.minArea) {
+            this.boxes.add(new Rectangle(this.minX[id], this.minY[id],
+                    this.maxX[id] - this.minX[id] + 1, this.maxY[id] - this.minY[id] + 1));
+        }
+    }
+}
@@ -1,54 +1,323 @@
 package com.github.ntsee.sheetchef;
 
 import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.utils.Array;
 import com.github.ntsee.sheetchef.exceptions.FileFormatException;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class SheetChefApp extends ApplicationAdapter implements SheetChefView.Listener {
 
+	private static final String DETECTION_TASK = "Detecting frames";
+	private static final String EXPORT_TASK = "Exporting frames";
+
 	private ImageSlicer slicer;
 	private SheetChefView view;
+	private JobRunner jobs;
+	private Job<SheetDetection> detectionJob;
+	private Job<Void> exportJob;
+	private Job<BatchResult> batchJob;
+	private BatchSlicer.Listener batchListener;
+	private FileHandle pendingInputFile;
+	private SheetWatcher watcher;
+	private FileHandle watchedFile;
+	private boolean watch;
 
 	@Override
 	public void create () {
 		this.slicer = new ImageSlicer();
 		this.view = new SheetChefView(this);
+		this.jobs = new JobRunner(Gdx.app::postRunnable);
 		this.view.setBackgroundColor(this.slicer.getBackgroundColor());
+		this.view.setBackgroundKey(this.slicer.getBackgroundMode(), this.slicer.getBackgroundThreshold());
+		this.view.setDetectionMode(this.slicer.getDetectionMode());
+		this.view.setGrid(this.slicer.getGridSpec(), this.slicer.isGridTrim());
 		this.view.setExportFormat(this.slicer.getExportFormat());
+		this.view.setDeduplicate(this.slicer.isDeduplicate());
+		this.view.setIndexed(this.slicer.isIndexed());
+		this.view.setDumpMetrics(this.slicer.isDumpMetrics());
 		this.view.setExportDirectory(this.slicer.getExportDirectory());
+		this.view.setExportTarget(this.slicer.getExportTarget());
+		this.view.setWatch(this.watch);
 	}
 
 	@Override
 	public void onInputFileChanged(FileHandle handle) {
+		this.pendingInputFile = handle;
+		this.startDetection(this.prepareSheet(this.slicer.createLoadTask(handle)), false);
+	}
+
+	@Override
+	public void onBatchSelected(Array<FileHandle> handles) {
+		if (this.batchJob != null) {
+			this.view.showBatchRunning();
+			return;
+		}
+
+		List<File> inputs = new ArrayList<>();
+		for (FileHandle handle : handles) {
+			inputs.add(handle.file());
+		}
+
+		List<File> sheets;
 		try {
-			this.slicer.setInputImage(handle);
-			Texture texture = SheetChefView.createImageOverlay(this.slicer.getInputImage(),
-					this.slicer.getBoxes());
-			this.view.showInputImage(texture);
-		} catch (FileFormatException e) {
-			this.view.showInvalidInputFile(e);
+			sheets = BatchSlicer.collectSheets(inputs);
+		} catch (IOException e) {
+			this.view.showInvalidBatch(e);
+			return;
+		}
+
+		this.view.showBatch(sheets);
+		this.batchListener = new BatchSlicer.Listener() {
+			@Override
+			public void onSheetStarted(File sheet) {
+				Gdx.app.postRunnable(() -> {
+					if (batchListener == this) {
+						view.showBatchSheetStarted(sheet);
+					}
+				});
+			}
+
+			@Override
+			public void onSheetFinished(File sheet, int frames) {
+				Gdx.app.postRunnable(() -> {
+					if (batchListener == this) {
+						view.showBatchSheetFinished(sheet, frames);
+					}
+				});
+			}
+
+			@Override
+			public void onSheetFailed(File sheet, IOException e) {
+				Gdx.app.postRunnable(() -> {
+					if (batchListener == this) {
+						view.showBatchSheetFailed(sheet, e);
+					}
+				});
+			}
+		};
+
+		Job.Task<BatchResult> task = this.slicer.createBatchTask(sheets, this.batchListener);
+		this.batchJob = this.jobs.submit(task, new Job.Listener<BatchResult>() {
+			@Override
+			public void onProgress(float progress) {
+
+			}
+
+			@Override
+			public void onSuccess(BatchResult result) {
+				batchJob = null;
+				batchListener = null;
+				view.showBatchResult(result);
+			}
+
+			@Override
+			public void onFailure(Exception e) {
+				batchJob = null;
+				batchListener = null;
+				view.showBatchFailure(e);
+			}
+		});
+	}
+
+	@Override
+	public void onBatchCancelled() {
+		if (this.batchJob != null) {
+			this.batchJob.stop();
 		}
 	}
 
+	@Override
+	public void onWatchChanged(boolean watch) {
+		this.watch = watch;
+		this.updateWatcher();
+	}
+
+	private void onWatchedFileModified(FileHandle handle) {
+		if (this.watcher == null || !handle.equals(this.watchedFile)) {
+			return;
+		}
+
+		this.pendingInputFile = handle;
+		this.startDetection(this.prepareSheet(this.slicer.createReloadTask(handle)), true);
+	}
+
+	private void updateWatcher() {
+		SheetImage sheet = this.slicer.getSheet();
+		FileHandle handle = this.watch && sheet != null ? sheet.getHandle() : null;
+		if (handle == null ? this.watchedFile == null : handle.equals(this.watchedFile)) {
+			return;
+		}
+
+		this.stopWatcher();
+		if (handle == null) {
+			return;
+		}
+
+		try {
+			this.watcher = new SheetWatcher(Collections.singletonList(handle.file()), sheets ->
+					Gdx.app.postRunnable(() -> this.onWatchedFileModified(handle)));
+			this.watcher.start();
+			this.watchedFile = handle;
+		} catch (IOException e) {
+			this.watch = false;
+			this.view.showWatchFailure(e);
+		}
+	}
+
+	private void stopWatcher() {
+		if (this.watcher == null) {
+			return;
+		}
+
+		try {
+			this.watcher.close();
+		} catch (IOException e) {
+			this.view.showWatchFailure(e);
+		}
+
+		this.watcher = null;
+		this.watchedFile = null;
+	}
+
 	@Override
 	public void onBackgroundColorChanged(Color color) {
 		this.slicer.setBackgroundColor(color);
-		if (this.slicer.getInputImage() != null) {
-			Texture texture = SheetChefView.createImageOverlay(this.slicer.getInputImage(),
-					this.slicer.getBoxes());
-			this.view.showInputImage(texture);
+		this.redetect();
+	}
+
+	@Override
+	public void onBackgroundKeyChanged(BackgroundKey.Mode mode, int threshold) {
+		this.slicer.setBackgroundMode(mode);
+		this.slicer.setBackgroundThreshold(threshold);
+		this.redetect();
+	}
+
+	@Override
+	public void onDetectionModeChanged(DetectionMode mode) {
+		this.slicer.setDetectionMode(mode);
+		this.redetect();
+	}
+
+	@Override
+	public void onGridChanged(GridSpec spec, boolean trim) {
+		this.slicer.setGridSpec(spec);
+		this.slicer.setGridTrim(trim);
+		if (this.slicer.getDetectionMode() == DetectionMode.GRID) {
+			this.redetect();
 		}
 	}
 
+	private void redetect() {
+		if (this.pendingInputFile != null) {
+			this.startDetection(this.prepareSheet(this.slicer.createLoadTask(this.pendingInputFile)), false);
+		} else if (this.slicer.getSheet() != null) {
+			this.startDetection(this.slicer.createDetectionTask(), false);
+		}
+	}
+
+	private Job.Task<SheetDetection> prepareSheet(Job.Task<SheetDetection> task) {
+		SliceMetrics metrics = this.slicer.getMetrics();
+		return monitor -> {
+			SheetDetection detection = task.run(monitor);
+			try {
+				ProgressMonitor.checkCancelled(monitor);
+				long start = metrics.start();
+				SheetPreview.prepare(detection.getSheet());
+				metrics.record(SliceMetrics.Phase.PREVIEW, start);
+				return detection;
+			} catch (RuntimeException e) {
+				detection.dispose();
+				throw e;
+			}
+		};
+	}
+
+	private void startDetection(Job.Task<SheetDetection> task, boolean export) {
+		if (this.detectionJob != null) {
+			this.detectionJob.cancel();
+		}
+
+		SliceMetrics metrics = this.slicer.getMetrics();
+		this.view.showProgress(DETECTION_TASK, 0);
+		this.detectionJob = this.jobs.submit(task, new Job.Listener<SheetDetection>() {
+			@Override
+			public void onProgress(float progress) {
+				view.showProgress(DETECTION_TASK, progress);
+			}
+
+			@Override
+			public void onSuccess(SheetDetection detection) {
+				finishDetection();
+				SheetImage sheet = detection.getSheet();
+				if (sheet != slicer.getSheet()) {
+					if (detection.getChangedRegion() != null) {
+						view.updateInputImage(sheet, detection.getChangedRegion());
+					} else {
+						view.showInputImage(sheet);
+					}
+				}
+
+				slicer.setSheet(sheet.acquire(), detection.getBoxes());
+				view.showBoxes(slicer.getBoxStore(), slicer.getExcluded());
+				view.showMetrics(metrics);
+				detection.dispose();
+				updateWatcher();
+				if (export) {
+					startExport(false);
+				}
+			}
+
+			@Override
+			public void onFailure(Exception e) {
+				finishDetection();
+				if (e instanceof FileFormatException && !export) {
+					view.showInvalidInputFile(e);
+				} else {
+					view.showDetectionFailure(e);
+				}
+			}
+		});
+	}
+
+	private void finishDetection() {
+		this.detectionJob = null;
+		this.pendingInputFile = null;
+		this.updateProgress();
+	}
+
 	@Override
 	public void onExportFormatChanged(ExportFormat format) {
 		this.slicer.setExportFormat(format);
 	}
 
+	@Override
+	public void onDeduplicateChanged(boolean deduplicate) {
+		this.slicer.setDeduplicate(deduplicate);
+	}
+
+	@Override
+	public void onIndexedChanged(boolean indexed) {
+		this.slicer.setIndexed(indexed);
+	}
+
+	@Override
+	public void onFrameExcludedChanged(int index, boolean excluded) {
+		this.slicer.setExcluded(index, excluded);
+	}
+
+	@Override
+	public void onDumpMetricsChanged(boolean dumpMetrics) {
+		this.slicer.setDumpMetrics(dumpMetrics);
+	}
+
 	@Override
 	public void onExportDirectoryChanged(FileHandle handle) {
 		try {
@@ -58,13 +327,59 @@ public class SheetChefApp extends ApplicationAdapter implements SheetChefView.Li
 		}
 	}
 
+	@Override
+	public void onExportTargetChanged(ExportTarget target) {
+		this.slicer.setExportTarget(target);
+	}
+
 	@Override
 	public void onExportClicked() {
-		try {
-			this.slicer.export();
-			this.view.showExportSuccess();
-		} catch (IOException e) {
-			this.view.showExportFailure(e);
+		this.startExport(true);
+	}
+
+	private void startExport(boolean notify) {
+		if (this.exportJob != null) {
+			this.exportJob.cancel();
+		}
+
+		Job.Task<Void> task = this.slicer.createExportTask();
+		SliceMetrics metrics = this.slicer.getMetrics();
+		this.view.showProgress(EXPORT_TASK, 0);
+		this.exportJob = this.jobs.submit(task, new Job.Listener<Void>() {
+			@Override
+			public void onProgress(float progress) {
+				view.showProgress(EXPORT_TASK, progress);
+			}
+
+			@Override
+			public void onSuccess(Void result) {
+				finishExport();
+				view.showMetrics(metrics);
+				if (notify) {
+					view.showExportSuccess();
+				}
+			}
+
+			@Override
+			public void onFailure(Exception e) {
+				finishExport();
+				view.showExportFailure(e);
+			}
+		});
+	}
+
+	private void finishExport() {
+		this.exportJob = null;
+		this.updateProgress();
+	}
+
+	private void updateProgress() {
+		if (this.detectionJob != null) {
+			this.view.showProgress(DETECTION_TASK, 0);
+		} else if (this.exportJob != null) {
+			this.view.showProgress(EXPORT_TASK, 0);
+		} else {
+			this.view.hideProgress();
 		}
 	}
 
@@ -81,6 +396,20 @@ public class SheetChefApp extends ApplicationAdapter implements SheetChefView.Li
 
 	@Override
 	public void dispose () {
+		if (this.detectionJob != null) {
+			this.detectionJob.cancel();
+		}
+
+		if (this.exportJob != null) {
+			this.exportJob.cancel();
+		}
+
+		if (this.batchJob != null) {
+			this.batchJob.cancel();
+		}
+
+		this.stopWatcher();
+		this.jobs.dispose();
 		this.slicer.dispose();
 		this.view.dispose();
 	}
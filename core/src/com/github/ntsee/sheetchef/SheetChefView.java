@@ -3,29 +3,26 @@ package com.github.ntsee.sheetchef;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Container;
 import com.badlogic.gdx.scenes.scene2d.ui.Value;
-import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
+import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
-import com.badlogic.gdx.utils.Scaling;
 import com.badlogic.gdx.utils.ScreenUtils;
 import com.badlogic.gdx.utils.viewport.ExtendViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
 import com.kotcrab.vis.ui.VisUI;
 import com.kotcrab.vis.ui.util.dialog.Dialogs;
-import com.kotcrab.vis.ui.widget.VisImage;
 import com.kotcrab.vis.ui.widget.VisSplitPane;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Optional;
 
 public class SheetChefView implements Disposable {
 
@@ -38,21 +35,35 @@ public class SheetChefView implements Disposable {
     private final Batch batch;
     private final Stage stage;
     private final SideBar sideBar;
-    private final VisImage image;
+    private final SheetPreview preview;
     private final VisSplitPane pane;
     private final Container<VisSplitPane> root;
-    private Texture texture;
+    private final Listener listener;
+    private BatchWindow batchWindow;
 
     public SheetChefView(Listener listener) {
         VisUI.load(VisUI.SkinScale.X1);
+        this.listener = listener;
         this.viewport = new ExtendViewport(WIDTH, HEIGHT);
         this.shapes = new ShapeRenderer();
         this.batch = new SpriteBatch();
         this.stage = new Stage(this.viewport, this.batch);
         this.stage.setActionsRequestRendering(true);
         this.sideBar = new SideBar(listener);
-        this.image = new VisImage(null, Scaling.fit);
-        this.pane = new VisSplitPane(this.sideBar, this.image, false);
+        this.preview = new SheetPreview(this.shapes);
+        this.preview.setListener(new SheetPreview.Listener() {
+            @Override
+            public void onBoxSelected(int index) {
+                showSelection(index);
+            }
+
+            @Override
+            public void onBoxExcluded(int index, boolean excluded) {
+                showSelection(index);
+                listener.onFrameExcludedChanged(index, excluded);
+            }
+        });
+        this.pane = new VisSplitPane(this.sideBar, this.preview, false);
         this.pane.setMaxSplitAmount(1 / 2f);
         this.pane.setMinSplitAmount(Value.prefWidth.get(this.sideBar) / WIDTH);
         this.root = new Container<>(this.pane).padLeft(PADDING).padRight(PADDING).fill();
@@ -62,24 +73,79 @@ public class SheetChefView implements Disposable {
         Gdx.input.setInputProcessor(this.stage);
     }
 
-    public void showInputImage(Texture texture) {
-        if (this.texture != null) {
-            this.texture.dispose();
-        }
+    public void showInputImage(SheetImage sheet) {
+        this.preview.setSheet(sheet.acquire());
+        Gdx.graphics.requestRendering();
+    }
 
-        this.texture = texture;
-        this.image.setDrawable(new TextureRegionDrawable(new TextureRegion(this.texture)));
+    public void updateInputImage(SheetImage sheet, Rectangle changed) {
+        this.preview.updateSheet(sheet.acquire(), changed);
         Gdx.graphics.requestRendering();
     }
 
+    public void showBoxes(BoxStore boxes, BitSet excluded) {
+        this.preview.setBoxes(boxes, excluded);
+        this.sideBar.setSelection(null);
+        Gdx.graphics.requestRendering();
+    }
+
+    private void showSelection(int index) {
+        if (index < 0) {
+            this.sideBar.setSelection(null);
+            return;
+        }
+
+        BoxStore boxes = this.preview.getBoxes();
+        this.sideBar.setSelection(String.format("Frame %d: %dx%d at %d, %d%s", index, boxes.getWidth(index),
+                boxes.getHeight(index), boxes.getX(index), boxes.getY(index),
+                this.preview.isExcluded(index) ? " (excluded)" : ""));
+    }
+
     public void setBackgroundColor(Color color) {
         this.sideBar.setBackgroundColor(color);
     }
 
+    public void setBackgroundKey(BackgroundKey.Mode mode, int threshold) {
+        this.sideBar.setBackgroundKey(mode, threshold);
+    }
+
+    public void setDetectionMode(DetectionMode mode) {
+        this.sideBar.setDetectionMode(mode);
+    }
+
+    public void setGrid(GridSpec spec, boolean trim) {
+        this.sideBar.setGrid(spec, trim);
+    }
+
     public void setExportFormat(ExportFormat format) {
         this.sideBar.setExportFormat(format);
     }
 
+    public void setExportTarget(ExportTarget target) {
+        this.sideBar.setExportTarget(target);
+    }
+
+    public void setDeduplicate(boolean deduplicate) {
+        this.sideBar.setDeduplicate(deduplicate);
+    }
+
+    public void setIndexed(boolean indexed) {
+        this.sideBar.setIndexed(indexed);
+    }
+
+    public void setDumpMetrics(boolean dumpMetrics) {
+        this.sideBar.setDumpMetrics(dumpMetrics);
+    }
+
+    public void setWatch(boolean watch) {
+        this.sideBar.setWatch(watch);
+    }
+
+    public void showMetrics(SliceMetrics metrics) {
+        this.sideBar.setStats(metrics.toString());
+        Gdx.graphics.requestRendering();
+    }
+
     public void setExportDirectory(FileHandle handle) {
         this.sideBar.setExportDirectory(handle);
     }
@@ -89,6 +155,25 @@ public class SheetChefView implements Disposable {
         Dialogs.showErrorDialog(this.stage, "Failed to open input image", err);
     }
 
+    public void showWatchFailure(Throwable err) {
+        this.sideBar.setWatch(false);
+        Dialogs.showErrorDialog(this.stage, "Failed to watch input image", err);
+    }
+
+    public void showDetectionFailure(Throwable err) {
+        Dialogs.showErrorDialog(this.stage, "Failed to detect frames", err);
+    }
+
+    public void showProgress(String task, float progress) {
+        this.sideBar.showProgress(task, progress);
+        Gdx.graphics.requestRendering();
+    }
+
+    public void hideProgress() {
+        this.sideBar.hideProgress();
+        Gdx.graphics.requestRendering();
+    }
+
     public void showInvalidExportDirectory(Throwable err) {
         this.sideBar.setExportDirectory(null);
         Dialogs.showErrorDialog(this.stage, "Failed to set export directory", err);
@@ -103,6 +188,54 @@ public class SheetChefView implements Disposable {
                 "Your sliced sheet has been successfully saved to the export directory.");
     }
 
+    public void showBatch(List<File> sheets) {
+        if (this.batchWindow != null) {
+            this.batchWindow.remove();
+        }
+
+        this.batchWindow = new BatchWindow(this.listener, sheets);
+        this.stage.addActor(this.batchWindow.fadeIn());
+        Gdx.graphics.requestRendering();
+    }
+
+    public void showBatchSheetStarted(File sheet) {
+        this.batchWindow.setSheetStarted(sheet);
+        Gdx.graphics.requestRendering();
+    }
+
+    public void showBatchSheetFinished(File sheet, int frames) {
+        this.batchWindow.setSheetFinished(sheet, frames);
+        Gdx.graphics.requestRendering();
+    }
+
+    public void showBatchSheetFailed(File sheet, IOException e) {
+        this.batchWindow.setSheetFailed(sheet, e);
+        Gdx.graphics.requestRendering();
+    }
+
+    public void showBatchResult(BatchResult result) {
+        this.batchWindow.setResult(result);
+        Gdx.graphics.requestRendering();
+    }
+
+    public void showBatchRunning() {
+        if (this.batchWindow.getStage() == null) {
+            this.stage.addActor(this.batchWindow.fadeIn());
+        }
+
+        Dialogs.showOKDialog(this.stage, "Batch Export",
+                "A batch export is still running. Wait for it to finish before starting another one.");
+    }
+
+    public void showInvalidBatch(Throwable err) {
+        Dialogs.showErrorDialog(this.stage, "Failed to read batch input", err);
+    }
+
+    public void showBatchFailure(Throwable err) {
+        this.batchWindow.setFailed();
+        Dialogs.showErrorDialog(this.stage, "Failed to export batch", err);
+    }
+
     public void update() {
         this.stage.act();
     }
@@ -122,30 +255,26 @@ public class SheetChefView implements Disposable {
         this.shapes.dispose();
         this.batch.dispose();
         this.stage.dispose();
-        if (this.texture != null) {
-            this.texture.dispose();
-        }
-    }
-
-    public static Texture createImageOverlay(Pixmap src, List<Rectangle> boxes) {
-        Pixmap pixmap = new Pixmap(src.getWidth(), src.getHeight(), src.getFormat());
-        pixmap.drawPixmap(src, 0, 0);
-        pixmap.setColor(Color.RED);
-        for (Rectangle box : boxes) {
-            pixmap.drawRectangle((int)box.x, (int)box.y, (int)box.width, (int)box.height);
-        }
-
-        Texture texture = new Texture(pixmap);
-        pixmap.dispose();
-        return texture;
+        this.preview.dispose();
     }
 
     public interface Listener {
 
         void onInputFileChanged(FileHandle handle);
+        void onBatchSelected(Array<FileHandle> handles);
+        void onBatchCancelled();
+        void onWatchChanged(boolean watch);
         void onBackgroundColorChanged(Color color);
+        void onBackgroundKeyChanged(BackgroundKey.Mode mode, int threshold);
+        void onDetectionModeChanged(DetectionMode mode);
+        void onGridChanged(GridSpec spec, boolean trim);
         void onExportFormatChanged(ExportFormat format);
+        void onDeduplicateChanged(boolean deduplicate);
+        void onIndexedChanged(boolean indexed);
         void onExportDirectoryChanged(FileHandle handle);
+        void onExportTargetChanged(ExportTarget target);
         void onExportClicked();
+        void onDumpMetricsChanged(boolean dumpMetrics);
+        void onFrameExcludedChanged(int index, boolean excluded);
     }
 }
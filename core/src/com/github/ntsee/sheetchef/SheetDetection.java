@@ -0,0 +1,40 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.util.List;
+
+public class SheetDetection implements Disposable {
+
+    private final SheetImage sheet;
+    private final List<Rectangle> boxes;
+    private final Rectangle changedRegion;
+
+    public SheetDetection(SheetImage sheet, List<Rectangle> boxes) {
+        this(sheet, boxes, null);
+    }
+
+    public SheetDetection(SheetImage sheet, List<Rectangle> boxes, Rectangle changedRegion) {
+        this.sheet = sheet;
+        this.boxes = boxes;
+        this.changedRegion = changedRegion;
+    }
+
+    public SheetImage getSheet() {
+        return this.sheet;
+    }
+
+    public List<Rectangle> getBoxes() {
+        return this.boxes;
+    }
+
+    public Rectangle getChangedRegion() {
+        return this.changedRegion;
+    }
+
+    @Override
+    public void dispose() {
+        this.sheet.release();
+    }
+}
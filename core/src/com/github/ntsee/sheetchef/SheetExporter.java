@@ -0,0 +1,225 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SheetExporter {
+
+    private ExportFormat format = ExportFormat.BMP;
+    private PngEncoder pngEncoder = new PngEncoder();
+    private AtlasExporter atlasExporter = new AtlasExporter();
+    private SliceMetrics metrics = new SliceMetrics();
+    private FrameCache frameCache;
+    private boolean deduplicate;
+    private boolean indexed;
+    private boolean incremental;
+
+    public void setFormat(ExportFormat format) {
+        this.format = format;
+    }
+
+    public ExportFormat getFormat() {
+        return this.format;
+    }
+
+    public void setPngEncoder(PngEncoder pngEncoder) {
+        this.pngEncoder = pngEncoder;
+    }
+
+    public PngEncoder getPngEncoder() {
+        return this.pngEncoder;
+    }
+
+    public void setAtlasExporter(AtlasExporter atlasExporter) {
+        this.atlasExporter = atlasExporter;
+    }
+
+    public AtlasExporter getAtlasExporter() {
+        return this.atlasExporter;
+    }
+
+    public void setMetrics(SliceMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public SliceMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    public void setFrameCache(FrameCache frameCache) {
+        this.frameCache = frameCache;
+    }
+
+    public FrameCache getFrameCache() {
+        return this.frameCache;
+    }
+
+    public void setDeduplicate(boolean deduplicate) {
+        this.deduplicate = deduplicate;
+    }
+
+    public boolean isDeduplicate() {
+        return this.deduplicate;
+    }
+
+    public void setIndexed(boolean indexed) {
+        this.indexed = indexed;
+    }
+
+    public boolean isIndexed() {
+        return this.indexed && this.format.supportsPalette();
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public boolean isIncremental() {
+        return this.incremental && !this.format.isAtlas();
+    }
+
+    public long export(PixelBuffer pixels, List<Rectangle> boxes, String name, ExportWriter writer, File directory,
+                       FrameExporter exporter, ProgressMonitor monitor) throws IOException {
+        ExportFormat format = this.format;
+        boolean indexed = this.isIndexed();
+        AtomicLong byteCount = new AtomicLong();
+        ExportManifest current = null;
+        ExportManifest previous = null;
+        if (directory != null) {
+            File manifestFile = new File(directory, ExportManifest.FILE_NAME);
+            if (this.isIncremental()) {
+                current = new ExportManifest(ExportManifest.describe(format, this.pngEncoder, indexed));
+                previous = ExportManifest.read(manifestFile);
+            }
+
+            Files.deleteIfExists(manifestFile.toPath());
+        }
+
+        long start = this.metrics.start();
+        long cacheHits = this.frameCache == null ? 0 : this.frameCache.getHitCount();
+        long[] hashes = this.deduplicate && current != null ? new long[boxes.size()] : null;
+        int[] originals = this.deduplicate ? FrameDeduplicator.findOriginals(pixels, boxes, hashes) : null;
+        if (format.isAtlas()) {
+            this.atlasExporter.export(pixels, boxes, originals, name, exporter,
+                    (fileName, bytes) -> this.writeFile(writer, fileName, bytes, format, byteCount), monitor);
+        } else {
+            ExportManifest manifest = current;
+            ExportManifest reusable = previous != null && previous.getSettings().equals(current.getSettings())
+                    ? previous : null;
+            int[] frames = originals == null ? null : FrameDeduplicator.getUniqueFrames(originals);
+            SheetPalette palette = null;
+            if (indexed) {
+                long paletteStart = this.metrics.start();
+                palette = SheetPalette.of(pixels, boxes);
+                this.metrics.record(SliceMetrics.Phase.PALETTE, paletteStart);
+            }
+
+            SheetPalette sheetPalette = palette;
+            exporter.export(frames == null ? boxes.size() : frames.length, i -> {
+                int index = frames == null ? i : frames[i];
+                Rectangle box = boxes.get(index);
+                String fileName = FrameEncoder.getFileName(index, format);
+                if (manifest != null && this.isUnchanged(pixels, box, hashes, index, fileName, directory, reusable,
+                        manifest)) {
+                    writer.skip(i);
+                } else {
+                    this.exportFrame(pixels, i, box, fileName, sheetPalette,
+                            sheetPalette == null ? 0 : sheetPalette.getColorCount(index, format), writer, byteCount);
+                }
+            }, writer, monitor);
+
+            if (originals != null) {
+                this.writeFile(writer, FrameDeduplicator.MAPPING_FILE_NAME,
+                        FrameDeduplicator.createMapping(originals, format).getBytes(StandardCharsets.UTF_8), null,
+                        byteCount);
+            }
+        }
+
+        if (current != null) {
+            if (previous != null) {
+                for (String fileName : previous.getRemovedFiles(current)) {
+                    Files.deleteIfExists(new File(directory, fileName).toPath());
+                }
+            }
+
+            this.writeFile(writer, ExportManifest.FILE_NAME, current.toCsv().getBytes(StandardCharsets.UTF_8), null,
+                    byteCount);
+        }
+
+        if (this.frameCache != null) {
+            this.metrics.addFramesCached(this.frameCache.getHitCount() - cacheHits);
+        }
+
+        this.metrics.recordExport(boxes.size(), start);
+        return byteCount.get();
+    }
+
+    private boolean isUnchanged(PixelBuffer pixels, Rectangle box, long[] hashes, int index, String fileName,
+                                File directory, ExportManifest previous, ExportManifest current) {
+        long hash = hashes != null ? hashes[index]
+                : pixels.contentHash((int)box.x, (int)box.y, (int)box.width, (int)box.height);
+        current.put(fileName, box, hash);
+        if (previous != null && previous.contains(fileName, box, hash) && new File(directory, fileName).isFile()) {
+            this.metrics.addFramesSkipped(1);
+            return true;
+        }
+
+        return false;
+    }
+
+    private void exportFrame(PixelBuffer pixels, int sequence, Rectangle box, String fileName, SheetPalette palette,
+                             int colors, ExportWriter writer, AtomicLong byteCount) throws IOException {
+        long start = this.metrics.start();
+        byte[] bytes;
+        boolean indexed = palette != null && colors > 0;
+        if (indexed) {
+            this.metrics.addFramesIndexed(1);
+        }
+
+        if (this.format == ExportFormat.PNG) {
+            bytes = indexed ? this.pngEncoder.encode(pixels, box, palette, colors)
+                    : this.pngEncoder.encode(pixels, box);
+        } else {
+            BufferedImage image;
+            if (indexed) {
+                image = FrameExtractor.extractIndexed(pixels, box, palette, colors);
+            } else if (this.frameCache != null) {
+                image = this.frameCache.extract(pixels, box, this.format.getImageType());
+            } else {
+                image = FrameExtractor.extract(pixels, box, this.format.getImageType());
+            }
+
+            this.metrics.record(SliceMetrics.Phase.EXTRACT, start);
+            start = this.metrics.start();
+            bytes = FrameEncoder.encode(image, this.format);
+        }
+
+        this.metrics.record(SliceMetrics.Phase.ENCODE, start);
+        start = this.metrics.start();
+        writer.write(sequence, fileName, bytes, !this.format.isCompressed());
+        this.recordWrite(start, bytes, this.format, byteCount);
+    }
+
+    private void writeFile(ExportWriter writer, String fileName, byte[] bytes, ExportFormat format,
+                           AtomicLong byteCount) throws IOException {
+        long start = this.metrics.start();
+        writer.write(fileName, bytes, format == null || !format.isCompressed());
+        this.recordWrite(start, bytes, format, byteCount);
+    }
+
+    private void recordWrite(long start, byte[] bytes, ExportFormat format, AtomicLong byteCount) {
+        this.metrics.record(SliceMetrics.Phase.WRITE, start);
+        if (format != null) {
+            this.metrics.addBytesWritten(format, bytes.length);
+        }
+
+        byteCount.addAndGet(bytes.length);
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.github.ntsee.sheetchef.exceptions.FileFormatException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SheetImage implements Disposable {
+
+    private final FileHandle handle;
+    private final Pixmap pixmap;
+    private final PixelBuffer pixels;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final List<Pixmap> levels = new ArrayList<>();
+    private volatile long contentHash;
+    private volatile boolean hashed;
+
+    public SheetImage(FileHandle handle, Pixmap pixmap) {
+        if (pixmap.getFormat() != Pixmap.Format.RGBA8888) {
+            Pixmap converted = new Pixmap(pixmap.getWidth(), pixmap.getHeight(), Pixmap.Format.RGBA8888);
+            converted.setBlending(Pixmap.Blending.None);
+            converted.drawPixmap(pixmap, 0, 0);
+            pixmap.dispose();
+            pixmap = converted;
+        }
+
+        this.handle = handle;
+        this.pixmap = pixmap;
+        this.pixels = PixelBuffer.of(pixmap);
+        this.levels.add(pixmap);
+    }
+
+    public static SheetImage load(FileHandle handle) throws FileFormatException {
+        try {
+            return new SheetImage(handle, new Pixmap(handle));
+        } catch (GdxRuntimeException e) {
+            throw new FileFormatException(handle, "could not load image");
+        }
+    }
+
+    public FileHandle getHandle() {
+        return this.handle;
+    }
+
+    public Pixmap getPixmap() {
+        return this.pixmap;
+    }
+
+    public PixelBuffer getPixels() {
+        return this.pixels;
+    }
+
+    public int getWidth() {
+        return this.pixmap.getWidth();
+    }
+
+    public int getHeight() {
+        return this.pixmap.getHeight();
+    }
+
+    public synchronized Pixmap getLevel(int level) {
+        while (this.levels.size() <= level) {
+            Pixmap previous = this.levels.get(this.levels.size() - 1);
+            Pixmap next = new Pixmap(Math.max(1, (previous.getWidth() + 1) / 2),
+                    Math.max(1, (previous.getHeight() + 1) / 2), Pixmap.Format.RGBA8888);
+            next.setBlending(Pixmap.Blending.None);
+            next.setFilter(Pixmap.Filter.BiLinear);
+            next.drawPixmap(previous, 0, 0, previous.getWidth(), previous.getHeight(), 0, 0, next.getWidth(),
+                    next.getHeight());
+            this.levels.add(next);
+        }
+
+        return this.levels.get(level);
+    }
+
+    public long getContentHash() {
+        if (!this.hashed) {
+            this.contentHash = this.pixels.contentHash();
+            this.hashed = true;
+        }
+
+        return this.contentHash;
+    }
+
+    public SheetImage acquire() {
+        if (this.references.getAndIncrement() <= 0) {
+            throw new IllegalStateException("Sheet already disposed");
+        }
+
+        return this;
+    }
+
+    public void release() {
+        if (this.references.decrementAndGet() == 0) {
+            synchronized (this) {
+                for (Pixmap level : this.levels) {
+                    level.dispose();
+                }
+
+                this.levels.clear();
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        this.release();
+    }
+}
@@ -0,0 +1,207 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+public final class SheetPalette {
+
+    public static final int MAX_COLORS = 256;
+
+    private static final int SLOTS = MAX_COLORS * 2;
+    private static final int TRANSPARENT = 0;
+
+    private final int[] colors = new int[MAX_COLORS];
+    private final int[] slots = new int[SLOTS];
+    private final IndexColorModel[] colorModels = new IndexColorModel[MAX_COLORS + 1];
+    private final int[] frameColors;
+    private final BitSet translucent;
+    private int size;
+
+    private SheetPalette(int frames) {
+        this.frameColors = new int[frames];
+        this.translucent = new BitSet(frames);
+    }
+
+    public static SheetPalette of(PixelBuffer pixels, List<Rectangle> boxes) {
+        SheetPalette palette = new SheetPalette(boxes.size());
+        int[] row = new int[0];
+        for (int i=0; i<boxes.size(); i++) {
+            Rectangle box = boxes.get(i);
+            int width = (int)box.width;
+            if (row.length < width) {
+                row = new int[width];
+            }
+
+            palette.frameColors[i] = palette.addFrame(i, pixels, (int)box.x, (int)box.y, width, (int)box.height, row);
+        }
+
+        return palette;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public int getColor(int index) {
+        return this.colors[index];
+    }
+
+    public boolean isIndexed(int frame) {
+        return this.frameColors[frame] > 0;
+    }
+
+    public int getColorCount(int frame) {
+        return this.frameColors[frame];
+    }
+
+    public int getColorCount(int frame, ExportFormat format) {
+        if (format == ExportFormat.GIF && this.translucent.get(frame)) {
+            return 0;
+        }
+
+        return this.frameColors[frame];
+    }
+
+    public boolean isTranslucent(int frame) {
+        return this.translucent.get(frame);
+    }
+
+    public int getIndexedCount() {
+        int count = 0;
+        for (int colors : this.frameColors) {
+            if (colors > 0) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    public int indexOf(int rgba8888) {
+        if ((rgba8888 & 0xFF) == 0) {
+            rgba8888 = TRANSPARENT;
+        }
+
+        int slot = hash(rgba8888);
+        while (this.slots[slot] != 0) {
+            int index = this.slots[slot] - 1;
+            if (this.colors[index] == rgba8888) {
+                return index;
+            }
+
+            slot = (slot + 1) & (SLOTS - 1);
+        }
+
+        return -1;
+    }
+
+    public void index(int[] rgba, int offset, int length, byte[] indices, int indicesOffset) {
+        int last = 0;
+        int lastIndex = -1;
+        for (int i=0; i<length; i++) {
+            int pixel = rgba[offset + i];
+            if (lastIndex < 0 || pixel != last) {
+                last = pixel;
+                lastIndex = this.indexOf(pixel);
+                if (lastIndex < 0) {
+                    throw new IllegalArgumentException(String.format("%08x is not in the palette", pixel));
+                }
+            }
+
+            indices[indicesOffset + i] = (byte)lastIndex;
+        }
+    }
+
+    public synchronized IndexColorModel getColorModel(int colors) {
+        if (colors < 1 || colors > this.size) {
+            throw new IllegalArgumentException("colors must be between 1 and " + this.size + ": " + colors);
+        }
+
+        if (this.colorModels[colors] == null) {
+            byte[] red = new byte[colors];
+            byte[] green = new byte[colors];
+            byte[] blue = new byte[colors];
+            byte[] alpha = new byte[colors];
+            for (int i=0; i<colors; i++) {
+                int color = this.colors[i];
+                red[i] = (byte)(color >>> 24);
+                green[i] = (byte)(color >>> 16);
+                blue[i] = (byte)(color >>> 8);
+                alpha[i] = (byte)color;
+            }
+
+            this.colorModels[colors] = new IndexColorModel(8, colors, red, green, blue, alpha);
+        }
+
+        return this.colorModels[colors];
+    }
+
+    private int addFrame(int frame, PixelBuffer pixels, int x, int y, int width, int height, int[] row) {
+        int committed = this.size;
+        int colors = 0;
+        for (int i=0; i<height; i++) {
+            pixels.getRow(x, y + i, width, row, 0);
+            int last = 0;
+            boolean known = false;
+            for (int j=0; j<width; j++) {
+                int pixel = row[j];
+                if (known && pixel == last) {
+                    continue;
+                }
+
+                last = pixel;
+                known = true;
+                int alpha = pixel & 0xFF;
+                if (alpha == 0) {
+                    pixel = TRANSPARENT;
+                } else if (alpha != 0xFF) {
+                    this.translucent.set(frame);
+                }
+
+                int index = this.indexOf(pixel);
+                if (index < 0) {
+                    if (this.size == MAX_COLORS) {
+                        this.rollback(committed);
+                        this.translucent.clear(frame);
+                        return 0;
+                    }
+
+                    index = this.size;
+                    this.add(pixel);
+                }
+
+                colors = Math.max(colors, index + 1);
+            }
+        }
+
+        return colors;
+    }
+
+    private void add(int rgba8888) {
+        this.colors[this.size] = rgba8888;
+        this.size++;
+        int slot = hash(rgba8888);
+        while (this.slots[slot] != 0) {
+            slot = (slot + 1) & (SLOTS - 1);
+        }
+
+        this.slots[slot] = this.size;
+    }
+
+    private void rollback(int size) {
+        Arrays.fill(this.slots, 0);
+        int[] colors = Arrays.copyOf(this.colors, size);
+        this.size = 0;
+        for (int color : colors) {
+            this.add(color);
+        }
+    }
+
+    private static int hash(int rgba8888) {
+        return (rgba8888 * 0x9E3779B9) >>> 23;
+    }
+}
@@ -0,0 +1,445 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.InputEvent;
+import com.badlogic.gdx.scenes.scene2d.InputListener;
+import com.badlogic.gdx.scenes.scene2d.ui.Widget;
+import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class SheetPreview extends Widget implements Disposable {
+
+    public static final int TILE_SIZE = 512;
+    private static final int MAX_TILES = 64;
+    private static final int TILE_MARGIN = 1;
+    private static final int MAX_UPLOADS_PER_FRAME = 4;
+    private static final float ZOOM_STEP = 1.25f;
+    private static final float MAX_ZOOM = 32;
+
+    private final ShapeRenderer shapes;
+    private final Color boxColor = new Color(Color.RED);
+    private final Color excludedColor = new Color(Color.GRAY);
+    private final Color selectedColor = new Color(Color.YELLOW);
+    private final BitSet excluded = new BitSet();
+    private BoxIndex boxes = BoxIndex.of(BoxStore.EMPTY);
+    private int selected = -1;
+    private Listener listener;
+    private final LinkedHashMap<Long, Texture> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private SheetImage sheet;
+    private float zoom = 1;
+    private float centerX;
+    private float centerY;
+    private boolean fitted = true;
+
+    public SheetPreview(ShapeRenderer shapes) {
+        this.shapes = shapes;
+        this.addListener(new PanZoomListener());
+        this.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                if (this.getTapCount() == 2) {
+                    fit();
+                    Gdx.graphics.requestRendering();
+                } else {
+                    select(findBox(x, y));
+                }
+            }
+        });
+        this.addListener(new ClickListener(Input.Buttons.RIGHT) {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                int index = findBox(x, y);
+                if (index >= 0) {
+                    select(index);
+                    setExcluded(index, !excluded.get(index));
+                }
+            }
+        });
+    }
+
+    public static void prepare(SheetImage sheet) {
+        sheet.getLevel(getMaxLevel(sheet));
+    }
+
+    public void setSheet(SheetImage sheet) {
+        this.clearTiles();
+        if (this.sheet != null) {
+            this.sheet.release();
+        }
+
+        this.sheet = sheet;
+        this.fit();
+    }
+
+    public void updateSheet(SheetImage sheet, Rectangle changed) {
+        if (this.sheet == null || this.sheet.getWidth() != sheet.getWidth()
+                || this.sheet.getHeight() != sheet.getHeight()) {
+            this.setSheet(sheet);
+            return;
+        }
+
+        Rectangle tile = new Rectangle();
+        Iterator<Map.Entry<Long, Texture>> entries = this.tiles.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Long, Texture> entry = entries.next();
+            long key = entry.getKey();
+            int level = (int)(key >>> 48);
+            int span = TILE_SIZE << level;
+            int margin = 1 << level;
+            tile.set((key & 0xFFFFFF) * span - margin, (key >>> 24 & 0xFFFFFF) * span - margin, span + margin * 2,
+                    span + margin * 2);
+            if (tile.overlaps(changed)) {
+                entry.getValue().dispose();
+                entries.remove();
+            }
+        }
+
+        this.sheet.release();
+        this.sheet = sheet;
+        Gdx.graphics.requestRendering();
+    }
+
+    public SheetImage getSheet() {
+        return this.sheet;
+    }
+
+    public void setBoxes(BoxStore boxes, BitSet excluded) {
+        this.boxes = BoxIndex.of(boxes);
+        this.excluded.clear();
+        this.excluded.or(excluded);
+        this.selected = -1;
+    }
+
+    public BoxStore getBoxes() {
+        return this.boxes.getBoxes();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void select(int index) {
+        if (index == this.selected) {
+            return;
+        }
+
+        this.selected = index;
+        if (this.listener != null) {
+            this.listener.onBoxSelected(index);
+        }
+
+        Gdx.graphics.requestRendering();
+    }
+
+    public int getSelected() {
+        return this.selected;
+    }
+
+    public void setExcluded(int index, boolean excluded) {
+        this.excluded.set(index, excluded);
+        if (this.listener != null) {
+            this.listener.onBoxExcluded(index, excluded);
+        }
+
+        Gdx.graphics.requestRendering();
+    }
+
+    public boolean isExcluded(int index) {
+        return this.excluded.get(index);
+    }
+
+    public int findBox(float x, float y) {
+        return this.boxes.find(this.toSheetX(x), this.toSheetY(y));
+    }
+
+    public void setBoxColor(Color color) {
+        this.boxColor.set(color);
+    }
+
+    public Color getBoxColor() {
+        return this.boxColor;
+    }
+
+    public float getZoom() {
+        return this.zoom;
+    }
+
+    public int getTileCount() {
+        return this.tiles.size();
+    }
+
+    public void fit() {
+        this.fitted = true;
+        if (this.sheet != null && this.getWidth() > 0 && this.getHeight() > 0) {
+            this.zoom = Math.min(this.getWidth() / this.sheet.getWidth(), this.getHeight() / this.sheet.getHeight());
+            this.centerX = this.sheet.getWidth() / 2f;
+            this.centerY = this.sheet.getHeight() / 2f;
+        }
+    }
+
+    public void zoom(float factor, float x, float y) {
+        if (this.sheet == null) {
+            return;
+        }
+
+        float sheetX = this.toSheetX(x);
+        float sheetY = this.toSheetY(y);
+        float minZoom = Math.min(1, Math.min(this.getWidth() / this.sheet.getWidth(),
+                this.getHeight() / this.sheet.getHeight()));
+        this.zoom = MathUtils.clamp(this.zoom * factor, minZoom, MAX_ZOOM);
+        this.centerX = sheetX - (x - this.getWidth() / 2) / this.zoom;
+        this.centerY = sheetY + (y - this.getHeight() / 2) / this.zoom;
+        this.fitted = false;
+        Gdx.graphics.requestRendering();
+    }
+
+    public void pan(float deltaX, float deltaY) {
+        if (this.sheet == null) {
+            return;
+        }
+
+        this.centerX = MathUtils.clamp(this.centerX - deltaX / this.zoom, 0, this.sheet.getWidth());
+        this.centerY = MathUtils.clamp(this.centerY + deltaY / this.zoom, 0, this.sheet.getHeight());
+        this.fitted = false;
+        Gdx.graphics.requestRendering();
+    }
+
+    public float toSheetX(float x) {
+        return this.centerX + (x - this.getWidth() / 2) / this.zoom;
+    }
+
+    public float toSheetY(float y) {
+        return this.centerY - (y - this.getHeight() / 2) / this.zoom;
+    }
+
+    @Override
+    public void layout() {
+        if (this.fitted) {
+            this.fit();
+        }
+    }
+
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
+        this.validate();
+        if (this.sheet == null) {
+            return;
+        }
+
+        batch.flush();
+        if (!this.clipBegin()) {
+            return;
+        }
+
+        Color color = this.getColor();
+        batch.setColor(color.r, color.g, color.b, color.a * parentAlpha);
+        this.drawTiles(batch);
+        batch.flush();
+        this.drawBoxes(batch, parentAlpha);
+        this.clipEnd();
+    }
+
+    private void drawTiles(Batch batch) {
+        int level = MathUtils.clamp(MathUtils.floor((float)(Math.log(1 / this.zoom) / Math.log(2))), 0,
+                getMaxLevel(this.sheet));
+        int span = TILE_SIZE << level;
+        float left = this.toSheetX(0);
+        float top = this.toSheetY(this.getHeight());
+        float right = this.toSheetX(this.getWidth());
+        float bottom = this.toSheetY(0);
+        int firstColumn = Math.max(0, (int)Math.floor(left / span));
+        int firstRow = Math.max(0, (int)Math.floor(top / span));
+        int lastColumn = Math.min((this.sheet.getWidth() - 1) / span, (int)Math.floor(right / span));
+        int lastRow = Math.min((this.sheet.getHeight() - 1) / span, (int)Math.floor(bottom / span));
+        int uploads = 0;
+        for (int row=firstRow; row<=lastRow; row++) {
+            for (int column=firstColumn; column<=lastColumn; column++) {
+                long key = (long)level << 48 | (long)row << 24 | column;
+                Texture texture = this.tiles.get(key);
+                if (texture == null) {
+                    if (uploads == MAX_UPLOADS_PER_FRAME) {
+                        Gdx.graphics.requestRendering();
+                        continue;
+                    }
+
+                    texture = this.uploadTile(level, column, row);
+                    this.tiles.put(key, texture);
+                    uploads++;
+                }
+
+                float sheetX = column * span;
+                float sheetY = row * span;
+                float width = texture.getWidth() << level;
+                float height = texture.getHeight() << level;
+                batch.draw(texture, this.getX() + this.toLocalX(sheetX),
+                        this.getY() + this.toLocalY(sheetY + height), width * this.zoom, height * this.zoom);
+            }
+        }
+
+        this.evictTiles(level, firstColumn, firstRow, lastColumn, lastRow);
+    }
+
+    private Texture uploadTile(int level, int column, int row) {
+        Pixmap source = this.sheet.getLevel(level);
+        int x = column * TILE_SIZE;
+        int y = row * TILE_SIZE;
+        int width = Math.min(TILE_SIZE, source.getWidth() - x);
+        int height = Math.min(TILE_SIZE, source.getHeight() - y);
+        Pixmap pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
+        pixmap.setBlending(Pixmap.Blending.None);
+        pixmap.drawPixmap(source, x, y, width, height, 0, 0, width, height);
+        Texture texture = new Texture(pixmap);
+        texture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Nearest);
+        pixmap.dispose();
+        return texture;
+    }
+
+    private void evictTiles(int level, int firstColumn, int firstRow, int lastColumn, int lastRow) {
+        Iterator<Map.Entry<Long, Texture>> entries = this.tiles.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Long, Texture> entry = entries.next();
+            long key = entry.getKey();
+            int column = (int)(key & 0xFFFFFF);
+            int row = (int)(key >>> 24 & 0xFFFFFF);
+            if ((int)(key >>> 48) != level || column < firstColumn - TILE_MARGIN || column > lastColumn + TILE_MARGIN
+                    || row < firstRow - TILE_MARGIN || row > lastRow + TILE_MARGIN) {
+                entry.getValue().dispose();
+                entries.remove();
+            }
+        }
+
+        int visible = (lastRow - firstRow + 1) * (lastColumn - firstColumn + 1);
+        Iterator<Map.Entry<Long, Texture>> eldest = this.tiles.entrySet().iterator();
+        while (this.tiles.size() > Math.max(MAX_TILES, visible)) {
+            eldest.next().getValue().dispose();
+            eldest.remove();
+        }
+    }
+
+    private void clearTiles() {
+        for (Texture texture : this.tiles.values()) {
+            texture.dispose();
+        }
+
+        this.tiles.clear();
+    }
+
+    private void drawBoxes(Batch batch, float parentAlpha) {
+        BoxStore boxes = this.boxes.getBoxes();
+        if (boxes.isEmpty()) {
+            return;
+        }
+
+        float left = this.toSheetX(0);
+        float top = this.toSheetY(this.getHeight());
+        float right = this.toSheetX(this.getWidth());
+        float bottom = this.toSheetY(0);
+        batch.end();
+        this.shapes.setProjectionMatrix(batch.getProjectionMatrix());
+        this.shapes.setTransformMatrix(batch.getTransformMatrix());
+        this.shapes.begin(ShapeRenderer.ShapeType.Line);
+        float alpha = this.getColor().a * parentAlpha;
+        this.boxes.query(left, top, right - left, bottom - top, index -> {
+            if (index != this.selected) {
+                this.drawBox(boxes, index, this.excluded.get(index) ? this.excludedColor : this.boxColor, alpha);
+            }
+        });
+
+        if (this.selected >= 0 && this.selected < boxes.size()) {
+            this.drawBox(boxes, this.selected, this.selectedColor, alpha);
+        }
+
+        this.shapes.end();
+        batch.begin();
+    }
+
+    private void drawBox(BoxStore boxes, int index, Color color, float alpha) {
+        this.shapes.setColor(color.r, color.g, color.b, color.a * alpha);
+        this.shapes.rect(this.getX() + this.toLocalX(boxes.getX(index)),
+                this.getY() + this.toLocalY(boxes.getY(index) + boxes.getHeight(index)),
+                boxes.getWidth(index) * this.zoom, boxes.getHeight(index) * this.zoom);
+    }
+
+    private float toLocalX(float sheetX) {
+        return (sheetX - this.centerX) * this.zoom + this.getWidth() / 2;
+    }
+
+    private float toLocalY(float sheetY) {
+        return (this.centerY - sheetY) * this.zoom + this.getHeight() / 2;
+    }
+
+    private static int getMaxLevel(SheetImage sheet) {
+        int level = 0;
+        while (Math.max(sheet.getWidth(), sheet.getHeight()) > TILE_SIZE << level) {
+            level++;
+        }
+
+        return level;
+    }
+
+    @Override
+    public void dispose() {
+        this.clearTiles();
+        if (this.sheet != null) {
+            this.sheet.release();
+            this.sheet = null;
+        }
+    }
+
+    public interface Listener {
+
+        void onBoxSelected(int index);
+        void onBoxExcluded(int index, boolean excluded);
+    }
+
+    private class PanZoomListener extends InputListener {
+
+        private float lastX;
+        private float lastY;
+
+        @Override
+        public void enter(InputEvent event, float x, float y, int pointer, Actor fromActor) {
+            if (pointer == -1 && getStage() != null) {
+                getStage().setScrollFocus(SheetPreview.this);
+            }
+        }
+
+        @Override
+        public boolean scrolled(InputEvent event, float x, float y, float amountX, float amountY) {
+            zoom((float)Math.pow(ZOOM_STEP, -amountY), x, y);
+            return true;
+        }
+
+        @Override
+        public boolean touchDown(InputEvent event, float x, float y, int pointer, int button) {
+            if (button != Input.Buttons.LEFT) {
+                return false;
+            }
+
+            this.lastX = x;
+            this.lastY = y;
+            return true;
+        }
+
+        @Override
+        public void touchDragged(InputEvent event, float x, float y, int pointer) {
+            pan(x - this.lastX, y - this.lastY);
+            this.lastX = x;
+            this.lastY = y;
+        }
+    }
+}
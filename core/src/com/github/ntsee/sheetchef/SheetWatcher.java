@@ -0,0 +1,168 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.github.ntsee.sheetchef.exceptions.FileFormatException;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class SheetWatcher implements Runnable, Closeable {
+
+    public static final long DEFAULT_QUIET_MILLIS = 300;
+
+    private final WatchService service;
+    private final Map<Path, Set<Path>> watched = new HashMap<>();
+    private final long quietMillis;
+    private final Listener listener;
+    private volatile boolean closed;
+
+    public SheetWatcher(List<File> inputs, Listener listener) throws IOException {
+        this(inputs, DEFAULT_QUIET_MILLIS, listener);
+    }
+
+    public SheetWatcher(List<File> inputs, long quietMillis, Listener listener) throws IOException {
+        if (quietMillis < 0) {
+            throw new IllegalArgumentException("quietMillis must not be negative: " + quietMillis);
+        }
+
+        if (inputs.isEmpty()) {
+            throw new IllegalArgumentException("no inputs to watch");
+        }
+
+        for (File input : inputs) {
+            Path path = input.toPath().toAbsolutePath().normalize();
+            if (input.isDirectory()) {
+                this.watched.put(path, null);
+            } else if (input.isFile()) {
+                Path directory = path.getParent();
+                if (!this.watched.containsKey(directory)) {
+                    this.watched.put(directory, new HashSet<Path>());
+                }
+
+                Set<Path> files = this.watched.get(directory);
+                if (files != null) {
+                    files.add(path);
+                }
+            } else {
+                throw new FileFormatException(new FileHandle(input), "no such file or directory");
+            }
+        }
+
+        this.quietMillis = quietMillis;
+        this.listener = listener;
+        this.service = FileSystems.getDefault().newWatchService();
+        try {
+            for (Path directory : this.watched.keySet()) {
+                directory.register(this.service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        } catch (IOException e) {
+            this.service.close();
+            throw e;
+        }
+    }
+
+    public void start() {
+        new WorkerThreadFactory("sheetchef-watch-").newThread(this).start();
+    }
+
+    @Override
+    public void run() {
+        Set<File> changed = new LinkedHashSet<>();
+        long deadline = 0;
+        try {
+            while (!this.closed) {
+                WatchKey key = changed.isEmpty() ? this.service.take()
+                        : this.service.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+                if (key == null) {
+                    List<File> sheets = new ArrayList<>();
+                    for (File file : changed) {
+                        if (file.isFile()) {
+                            sheets.add(file);
+                        }
+                    }
+
+                    changed.clear();
+                    if (!sheets.isEmpty()) {
+                        this.listener.onSheetsChanged(sheets);
+                    }
+
+                    continue;
+                }
+
+                Path directory = (Path)key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        this.addAll(directory, changed);
+                    } else {
+                        this.add(directory.resolve((Path)event.context()), directory, changed);
+                    }
+                }
+
+                key.reset();
+                if (!changed.isEmpty()) {
+                    deadline = System.currentTimeMillis() + this.quietMillis;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            this.closed = true;
+        }
+    }
+
+    private void add(Path path, Path directory, Set<File> changed) {
+        Set<Path> files = this.watched.get(directory);
+        File file = path.toFile();
+        if (files == null ? BatchSlicer.isSheet(file) : files.contains(path)) {
+            changed.add(file);
+        }
+    }
+
+    private void addAll(Path directory, Set<File> changed) {
+        Set<Path> files = this.watched.get(directory);
+        if (files != null) {
+            for (Path file : files) {
+                changed.add(file.toFile());
+            }
+        } else {
+            File[] listed = directory.toFile().listFiles();
+            if (listed != null) {
+                for (File file : listed) {
+                    if (file.isFile() && BatchSlicer.isSheet(file)) {
+                        changed.add(file);
+                    }
+                }
+            }
+        }
+    }
+
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        this.service.close();
+    }
+
+    public interface Listener {
+
+        void onSheetsChanged(List<File> sheets);
+    }
+}
@@ -9,7 +9,9 @@ import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
 import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.Array;
 import com.kotcrab.vis.ui.VisUI;
+import com.kotcrab.vis.ui.widget.VisCheckBox;
 import com.kotcrab.vis.ui.widget.VisLabel;
+import com.kotcrab.vis.ui.widget.VisProgressBar;
 import com.kotcrab.vis.ui.widget.VisSelectBox;
 import com.kotcrab.vis.ui.widget.VisTable;
 import com.kotcrab.vis.ui.widget.VisTextButton;
@@ -18,6 +20,8 @@ import com.kotcrab.vis.ui.widget.color.ColorPicker;
 import com.kotcrab.vis.ui.widget.color.ColorPickerAdapter;
 import com.kotcrab.vis.ui.widget.file.FileChooser;
 import com.kotcrab.vis.ui.widget.file.FileChooserAdapter;
+import com.kotcrab.vis.ui.widget.spinner.IntSpinnerModel;
+import com.kotcrab.vis.ui.widget.spinner.Spinner;
 
 public class SideBar extends VisTable {
 
@@ -26,16 +30,39 @@ public class SideBar extends VisTable {
     private final VisTextField tfInputFile;
     private final VisTextButton btnInputFile;
     private final FileChooser fcInputFile;
+    private final VisCheckBox cbWatch;
     private final VisLabel lblBackground;
     private final Button btnBackground;
     private final ColorPicker colorPicker;
+    private final VisSelectBox<BackgroundKey.Mode> sbBackgroundMode;
+    private final IntSpinnerModel smBackgroundThreshold;
+    private final Spinner spBackgroundThreshold;
+    private final VisLabel lblDetectionMode;
+    private final VisSelectBox<DetectionMode> sbDetectionMode;
+    private final VisTable tblGrid;
+    private final IntSpinnerModel smCellWidth;
+    private final IntSpinnerModel smCellHeight;
+    private final IntSpinnerModel smOffsetX;
+    private final IntSpinnerModel smOffsetY;
+    private final IntSpinnerModel smSpacingX;
+    private final IntSpinnerModel smSpacingY;
+    private final VisCheckBox cbTrim;
     private final VisLabel lblExportFormat;
     private final VisSelectBox<ExportFormat> sbExportFormat;
+    private final VisCheckBox cbDeduplicate;
+    private final VisCheckBox cbIndexed;
     private final VisLabel lblExportDirectory;
     private final VisTextField tfExportDirectory;
     private final VisTextButton btnExportDirectory;
     private final FileChooser fcExportDirectory;
+    private final VisLabel lblExportTarget;
+    private final VisSelectBox<ExportTarget> sbExportTarget;
     private final VisTextButton btnExport;
+    private final VisCheckBox cbDumpMetrics;
+    private final VisLabel lblProgress;
+    private final VisProgressBar pbProgress;
+    private final VisLabel lblSelection;
+    private final VisLabel lblStats;
 
     public SideBar(SheetChefView.Listener listener) {
         super(true);
@@ -49,16 +76,38 @@ public class SideBar extends VisTable {
         this.btnInputFile = new VisTextButton("Browse");
         this.fcInputFile = new FileChooser(FileChooser.Mode.OPEN);
         this.fcInputFile.setDirectory(Gdx.files.getLocalStoragePath());
-        this.fcInputFile.setMultiSelectionEnabled(false);
+        this.fcInputFile.setMultiSelectionEnabled(true);
+        this.fcInputFile.setSelectionMode(FileChooser.SelectionMode.FILES_AND_DIRECTORIES);
+        this.cbWatch = new VisCheckBox("Watch Input For Changes");
         this.lblBackground = new VisLabel("Background Color");
         this.lblBackground.setAlignment(Align.center);
         this.btnBackground = new Button(VisUI.getSkin().getDrawable("white"));
         this.colorPicker = new ColorPicker();
+        this.sbBackgroundMode = new VisSelectBox<>();
+        this.sbBackgroundMode.setAlignment(Align.center);
+        this.sbBackgroundMode.setItems(BackgroundKey.Mode.values());
+        this.smBackgroundThreshold = new IntSpinnerModel(0, 0, 255);
+        this.spBackgroundThreshold = new Spinner("Threshold", this.smBackgroundThreshold);
+        this.lblDetectionMode = new VisLabel("Detection Mode");
+        this.lblDetectionMode.setAlignment(Align.center);
+        this.sbDetectionMode = new VisSelectBox<>();
+        this.sbDetectionMode.setAlignment(Align.center);
+        this.sbDetectionMode.setItems(DetectionMode.values());
+        this.tblGrid = new VisTable(true);
+        this.smCellWidth = new IntSpinnerModel(GridDetector.DEFAULT_CELL_SIZE, 1, Integer.MAX_VALUE);
+        this.smCellHeight = new IntSpinnerModel(GridDetector.DEFAULT_CELL_SIZE, 1, Integer.MAX_VALUE);
+        this.smOffsetX = new IntSpinnerModel(0, 0, Integer.MAX_VALUE);
+        this.smOffsetY = new IntSpinnerModel(0, 0, Integer.MAX_VALUE);
+        this.smSpacingX = new IntSpinnerModel(0, 0, Integer.MAX_VALUE);
+        this.smSpacingY = new IntSpinnerModel(0, 0, Integer.MAX_VALUE);
+        this.cbTrim = new VisCheckBox("Trim Cells To Content");
         this.lblExportFormat = new VisLabel("Export Format");
         this.lblExportFormat.setAlignment(Align.center);
         this.sbExportFormat = new VisSelectBox<>();
         this.sbExportFormat.setAlignment(Align.center);
         this.sbExportFormat.setItems(ExportFormat.values());
+        this.cbDeduplicate = new VisCheckBox("Skip Duplicate Frames");
+        this.cbIndexed = new VisCheckBox("Use Shared Palette");
         this.lblExportDirectory = new VisLabel("Export Directory Location");
         this.lblExportDirectory.setAlignment(Align.center);
         this.tfExportDirectory = new VisTextField();
@@ -67,7 +116,24 @@ public class SideBar extends VisTable {
         this.fcExportDirectory = new FileChooser(FileChooser.Mode.OPEN);
         this.fcExportDirectory.setMultiSelectionEnabled(false);
         this.fcExportDirectory.setSelectionMode(FileChooser.SelectionMode.DIRECTORIES);
+        this.lblExportTarget = new VisLabel("Export To");
+        this.lblExportTarget.setAlignment(Align.center);
+        this.sbExportTarget = new VisSelectBox<>();
+        this.sbExportTarget.setAlignment(Align.center);
+        this.sbExportTarget.setItems(ExportTarget.values());
         this.btnExport = new VisTextButton("Export");
+        this.cbDumpMetrics = new VisCheckBox("Save Metrics JSON");
+        this.lblProgress = new VisLabel();
+        this.lblProgress.setAlignment(Align.center);
+        this.lblProgress.setVisible(false);
+        this.pbProgress = new VisProgressBar(0, 1, 0.01f, false);
+        this.pbProgress.setVisible(false);
+        this.lblSelection = new VisLabel();
+        this.lblSelection.setAlignment(Align.left);
+        this.lblSelection.setWrap(true);
+        this.lblStats = new VisLabel();
+        this.lblStats.setAlignment(Align.left);
+        this.lblStats.setWrap(true);
         this.initialize();
     }
 
@@ -79,14 +145,49 @@ public class SideBar extends VisTable {
         }
     }
 
+    public void setWatch(boolean watch) {
+        this.cbWatch.setChecked(watch);
+    }
+
     public void setBackgroundColor(Color color) {
         this.btnBackground.setColor(color);
     }
 
+    public void setBackgroundKey(BackgroundKey.Mode mode, int threshold) {
+        this.smBackgroundThreshold.setValue(threshold, false);
+        this.sbBackgroundMode.setSelected(mode);
+        this.spBackgroundThreshold.setVisible(mode != BackgroundKey.Mode.EXACT);
+    }
+
+    public void setDetectionMode(DetectionMode mode) {
+        this.sbDetectionMode.setSelected(mode);
+        this.tblGrid.setVisible(mode == DetectionMode.GRID);
+    }
+
+    public void setGrid(GridSpec spec, boolean trim) {
+        this.smCellWidth.setValue(spec.getCellWidth(), false);
+        this.smCellHeight.setValue(spec.getCellHeight(), false);
+        this.smOffsetX.setValue(spec.getOffsetX(), false);
+        this.smOffsetY.setValue(spec.getOffsetY(), false);
+        this.smSpacingX.setValue(spec.getSpacingX(), false);
+        this.smSpacingY.setValue(spec.getSpacingY(), false);
+        this.cbTrim.setProgrammaticChangeEvents(false);
+        this.cbTrim.setChecked(trim);
+        this.cbTrim.setProgrammaticChangeEvents(true);
+    }
+
     public void setExportFormat(ExportFormat format) {
         this.sbExportFormat.setSelected(format);
     }
 
+    public void setDeduplicate(boolean deduplicate) {
+        this.cbDeduplicate.setChecked(deduplicate);
+    }
+
+    public void setIndexed(boolean indexed) {
+        this.cbIndexed.setChecked(indexed);
+    }
+
     public void setExportDirectory(FileHandle handle) {
         if (handle == null) {
             this.tfExportDirectory.setText(null);
@@ -96,13 +197,49 @@ public class SideBar extends VisTable {
         }
     }
 
+    public void setExportTarget(ExportTarget target) {
+        this.sbExportTarget.setSelected(target);
+    }
+
+    public void showProgress(String task, float progress) {
+        this.lblProgress.setText(task);
+        this.lblProgress.setVisible(true);
+        this.pbProgress.setValue(progress);
+        this.pbProgress.setVisible(true);
+    }
+
+    public void hideProgress() {
+        this.lblProgress.setVisible(false);
+        this.pbProgress.setVisible(false);
+    }
+
+    public void setDumpMetrics(boolean dumpMetrics) {
+        this.cbDumpMetrics.setChecked(dumpMetrics);
+    }
+
+    public void setSelection(String selection) {
+        this.lblSelection.setText(selection);
+    }
+
+    public void setStats(String stats) {
+        this.lblStats.setText(stats);
+    }
+
     private void initialize() {
         this.addChildrenToParent();
         this.addInputFileListener();
+        this.addWatchListener();
         this.addBackgroundColorListener();
+        this.addBackgroundKeyListener();
+        this.addDetectionModeListener();
+        this.addGridListener();
         this.addExportFormatListener();
+        this.addDeduplicateListener();
+        this.addIndexedListener();
         this.addExportDirectoryListener();
+        this.addExportTargetListener();
         this.addExportButtonListener();
+        this.addDumpMetricsListener();
     }
 
     private void addChildrenToParent() {
@@ -111,14 +248,39 @@ public class SideBar extends VisTable {
         this.add(this.lblInputFile).row();
         this.add(this.tfInputFile).row();
         this.add(this.btnInputFile).row();
+        this.add(this.cbWatch).row();
         this.add(this.lblBackground).row();
         this.add(this.btnBackground).height(this.tfInputFile.getHeight()).row();
+        this.add(this.sbBackgroundMode).row();
+        this.spBackgroundThreshold.setVisible(false);
+        this.add(this.spBackgroundThreshold).row();
+        this.add(this.lblDetectionMode).row();
+        this.add(this.sbDetectionMode).row();
+        this.tblGrid.defaults().growX();
+        this.tblGrid.add(new Spinner("W", this.smCellWidth));
+        this.tblGrid.add(new Spinner("H", this.smCellHeight)).row();
+        this.tblGrid.add(new Spinner("X", this.smOffsetX));
+        this.tblGrid.add(new Spinner("Y", this.smOffsetY)).row();
+        this.tblGrid.add(new Spinner("Gap X", this.smSpacingX));
+        this.tblGrid.add(new Spinner("Gap Y", this.smSpacingY)).row();
+        this.tblGrid.add(this.cbTrim).colspan(2).row();
+        this.tblGrid.setVisible(false);
+        this.add(this.tblGrid).row();
         this.add(this.lblExportFormat).row();
         this.add(this.sbExportFormat).row();
+        this.add(this.cbDeduplicate).row();
+        this.add(this.cbIndexed).row();
         this.add(this.lblExportDirectory).row();
         this.add(this.tfExportDirectory).row();
         this.add(this.btnExportDirectory).row();
+        this.add(this.lblExportTarget).row();
+        this.add(this.sbExportTarget).row();
         this.add(this.btnExport).row();
+        this.add(this.cbDumpMetrics).row();
+        this.add(this.lblProgress).row();
+        this.add(this.pbProgress).row();
+        this.add(this.lblSelection).row();
+        this.add(this.lblStats).row();
     }
 
     private void addInputFileListener() {
@@ -126,6 +288,11 @@ public class SideBar extends VisTable {
             @Override
             public void selected(Array<FileHandle> files) {
                 FileHandle handle = files.first();
+                if (files.size > 1 || handle.isDirectory()) {
+                    listener.onBatchSelected(files);
+                    return;
+                }
+
                 tfInputFile.setText(handle.path());
                 listener.onInputFileChanged(handle);
             }
@@ -139,6 +306,15 @@ public class SideBar extends VisTable {
         });
     }
 
+    private void addWatchListener() {
+        this.cbWatch.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                listener.onWatchChanged(cbWatch.isChecked());
+            }
+        });
+    }
+
     private void addBackgroundColorListener() {
         this.colorPicker.setListener(new ColorPickerAdapter() {
             @Override
@@ -156,6 +332,46 @@ public class SideBar extends VisTable {
         });
     }
 
+    private void addBackgroundKeyListener() {
+        ChangeListener backgroundKeyListener = new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                BackgroundKey.Mode mode = sbBackgroundMode.getSelected();
+                spBackgroundThreshold.setVisible(mode != BackgroundKey.Mode.EXACT);
+                listener.onBackgroundKeyChanged(mode, smBackgroundThreshold.getValue());
+            }
+        };
+
+        this.sbBackgroundMode.addListener(backgroundKeyListener);
+        this.spBackgroundThreshold.addListener(backgroundKeyListener);
+    }
+
+    private void addDetectionModeListener() {
+        this.sbDetectionMode.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                DetectionMode mode = sbDetectionMode.getSelected();
+                tblGrid.setVisible(mode == DetectionMode.GRID);
+                listener.onDetectionModeChanged(mode);
+            }
+        });
+    }
+
+    private void addGridListener() {
+        ChangeListener gridListener = new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                listener.onGridChanged(new GridSpec(smCellWidth.getValue(), smCellHeight.getValue(),
+                        smOffsetX.getValue(), smOffsetY.getValue(), smSpacingX.getValue(), smSpacingY.getValue()),
+                        cbTrim.isChecked());
+            }
+        };
+
+        for (Actor actor : this.tblGrid.getChildren()) {
+            actor.addListener(gridListener);
+        }
+    }
+
     private void addExportFormatListener() {
         this.sbExportFormat.addListener(new ChangeListener() {
             @Override
@@ -166,6 +382,24 @@ public class SideBar extends VisTable {
         });
     }
 
+    private void addDeduplicateListener() {
+        this.cbDeduplicate.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                listener.onDeduplicateChanged(cbDeduplicate.isChecked());
+            }
+        });
+    }
+
+    private void addIndexedListener() {
+        this.cbIndexed.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                listener.onIndexedChanged(cbIndexed.isChecked());
+            }
+        });
+    }
+
     private void addExportDirectoryListener() {
         this.fcExportDirectory.setListener(new FileChooserAdapter() {
             @Override
@@ -184,6 +418,15 @@ public class SideBar extends VisTable {
         });
     }
 
+    private void addExportTargetListener() {
+        this.sbExportTarget.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                listener.onExportTargetChanged(sbExportTarget.getSelected());
+            }
+        });
+    }
+
     private void addExportButtonListener() {
         this.btnExport.addListener(new ChangeListener() {
             @Override
@@ -192,4 +435,13 @@ public class SideBar extends VisTable {
             }
         });
     }
+
+    private void addDumpMetricsListener() {
+        this.cbDumpMetrics.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                listener.onDumpMetricsChanged(cbDumpMetrics.isChecked());
+            }
+        });
+    }
 }
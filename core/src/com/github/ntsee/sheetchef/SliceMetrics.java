@@ -0,0 +1,190 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.utils.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class SliceMetrics {
+
+    private static final double NANOS_PER_MILLISECOND = 1e6;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray phaseCounts = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray bytesWritten = new AtomicLongArray(ExportFormat.values().length);
+    private final AtomicLong pixelsScanned = new AtomicLong();
+    private final AtomicLong boxesFound = new AtomicLong();
+    private final AtomicLong framesExported = new AtomicLong();
+    private final AtomicLong framesSkipped = new AtomicLong();
+    private final AtomicLong framesIndexed = new AtomicLong();
+    private final AtomicLong framesCached = new AtomicLong();
+    private volatile long lastExportFrames;
+    private volatile long lastExportNanos;
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void record(Phase phase, long start) {
+        this.phaseNanos.addAndGet(phase.ordinal(), System.nanoTime() - start);
+        this.phaseCounts.incrementAndGet(phase.ordinal());
+    }
+
+    public void addPixelsScanned(long pixels) {
+        this.pixelsScanned.addAndGet(pixels);
+    }
+
+    public void addBoxesFound(long boxes) {
+        this.boxesFound.addAndGet(boxes);
+    }
+
+    public void addBytesWritten(ExportFormat format, long bytes) {
+        this.bytesWritten.addAndGet(format.ordinal(), bytes);
+    }
+
+    public void addFramesSkipped(long frames) {
+        this.framesSkipped.addAndGet(frames);
+    }
+
+    public void addFramesIndexed(long frames) {
+        this.framesIndexed.addAndGet(frames);
+    }
+
+    public void addFramesCached(long frames) {
+        this.framesCached.addAndGet(frames);
+    }
+
+    public void recordExport(long frames, long start) {
+        this.lastExportFrames = frames;
+        this.lastExportNanos = System.nanoTime() - start;
+        this.framesExported.addAndGet(frames);
+        this.record(Phase.EXPORT, start);
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return this.phaseNanos.get(phase.ordinal());
+    }
+
+    public long getPhaseCount(Phase phase) {
+        return this.phaseCounts.get(phase.ordinal());
+    }
+
+    public long getPixelsScanned() {
+        return this.pixelsScanned.get();
+    }
+
+    public long getBoxesFound() {
+        return this.boxesFound.get();
+    }
+
+    public long getBytesWritten(ExportFormat format) {
+        return this.bytesWritten.get(format.ordinal());
+    }
+
+    public long getFramesExported() {
+        return this.framesExported.get();
+    }
+
+    public long getFramesSkipped() {
+        return this.framesSkipped.get();
+    }
+
+    public long getFramesIndexed() {
+        return this.framesIndexed.get();
+    }
+
+    public long getFramesCached() {
+        return this.framesCached.get();
+    }
+
+    public double getExportFramesPerSecond() {
+        return this.lastExportNanos == 0 ? 0 : this.lastExportFrames * NANOS_PER_SECOND / this.lastExportNanos;
+    }
+
+    public String toJson() {
+        StringWriter output = new StringWriter();
+        JsonWriter json = new JsonWriter(output);
+        json.setOutputType(JsonWriter.OutputType.json);
+        try {
+            json.object();
+            json.object("phases");
+            for (Phase phase : Phase.values()) {
+                json.object(phase.name().toLowerCase(Locale.ROOT));
+                json.set("millis", this.getPhaseNanos(phase) / NANOS_PER_MILLISECOND);
+                json.set("count", this.getPhaseCount(phase));
+                json.pop();
+            }
+
+            json.pop();
+            json.object("bytesWritten");
+            for (ExportFormat format : ExportFormat.values()) {
+                json.set(format.name(), this.getBytesWritten(format));
+            }
+
+            json.pop();
+            json.set("pixelsScanned", this.getPixelsScanned());
+            json.set("boxesFound", this.getBoxesFound());
+            json.set("framesExported", this.getFramesExported());
+            json.set("framesSkipped", this.getFramesSkipped());
+            json.set("framesIndexed", this.getFramesIndexed());
+            json.set("framesCached", this.getFramesCached());
+            json.set("exportFramesPerSecond", this.getExportFramesPerSecond());
+            json.pop();
+            json.close();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        return output.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Phase phase : Phase.values()) {
+            text.append(String.format("%s: %.1f ms%n", phase.getLabel(), this.getPhaseNanos(phase)
+                    / NANOS_PER_MILLISECOND));
+        }
+
+        text.append(String.format("Pixels scanned: %,d%n", this.getPixelsScanned()));
+        text.append(String.format("Boxes found: %,d%n", this.getBoxesFound()));
+        for (ExportFormat format : ExportFormat.values()) {
+            long bytes = this.getBytesWritten(format);
+            if (bytes > 0) {
+                text.append(String.format("%s written: %,d bytes%n", format.name(), bytes));
+            }
+        }
+
+        text.append(String.format("Frames skipped: %,d%n", this.getFramesSkipped()));
+        text.append(String.format("Frames indexed: %,d%n", this.getFramesIndexed()));
+        text.append(String.format("Frames cached: %,d%n", this.getFramesCached()));
+        text.append(String.format("Export rate: %.0f frames/s", this.getExportFramesPerSecond()));
+        return text.toString();
+    }
+
+    public enum Phase {
+
+        DECODE("Decode"),
+        DETECTION("Detection"),
+        PREVIEW("Preview"),
+        PALETTE("Palette"),
+        EXTRACT("Extract"),
+        ENCODE("Encode"),
+        WRITE("Write"),
+        EXPORT("Export");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return this.label;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class StreamingExtractor {
+
+    private StreamingExtractor() {
+
+    }
+
+    public static void extract(RowSource source, List<Rectangle> boxes, int imageType, FrameConsumer consumer)
+            throws IOException {
+        Integer[] order = new Integer[boxes.size()];
+        for (int i=0; i<order.length; i++) {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, (a, b) -> Float.compare(boxes.get(a).y, boxes.get(b).y));
+        List<Integer> active = new ArrayList<>();
+        List<BufferedImage> images = new ArrayList<>();
+        int[] row = new int[source.getWidth()];
+        int next = 0;
+        for (int y=0; next < order.length || !active.isEmpty(); y++) {
+            if (!source.readRow(row)) {
+                throw new EOFException("Image ends before row " + y);
+            }
+
+            while (next < order.length && (int)boxes.get(order[next]).y == y) {
+                Rectangle box = boxes.get(order[next]);
+                active.add(order[next]);
+                images.add(new BufferedImage((int)box.width, (int)box.height, imageType));
+                next++;
+            }
+
+            int kept = 0;
+            for (int i=0; i<active.size(); i++) {
+                int index = active.get(i);
+                Rectangle box = boxes.get(index);
+                BufferedImage image = images.get(i);
+                FrameExtractor.copyRow(row, (int)box.x, image, y - (int)box.y);
+                if (y == (int)box.y + (int)box.height - 1) {
+                    consumer.accept(index, image);
+                } else {
+                    active.set(kept, index);
+                    images.set(kept, image);
+                    kept++;
+                }
+            }
+
+            active.subList(kept, active.size()).clear();
+            images.subList(kept, images.size()).clear();
+        }
+    }
+
+    public interface FrameConsumer {
+
+        void accept(int index, BufferedImage frame) throws IOException;
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+
+public final class SummedAreaTable {
+
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final int[] sums;
+
+    private SummedAreaTable(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.stride = width + 1;
+        this.sums = new int[this.stride * (height + 1)];
+    }
+
+    public static SummedAreaTable of(ForegroundMask mask) {
+        int width = mask.getWidth();
+        int height = mask.getHeight();
+        SummedAreaTable table = new SummedAreaTable(width, height);
+        int[] sums = table.sums;
+        long[] words = mask.getWords();
+        for (int y=0; y<height; y++) {
+            int above = y * table.stride + 1;
+            int current = above + table.stride;
+            int offset = mask.getRowOffset(y);
+            int running = 0;
+            for (int i=0; i<mask.getStride(); i++) {
+                long word = words[offset + i];
+                int start = i << 6;
+                int end = Math.min(start + 64, width);
+                if (word == 0) {
+                    for (int x=start; x<end; x++) {
+                        sums[current + x] = sums[above + x] + running;
+                    }
+                } else {
+                    for (int x=start; x<end; x++) {
+                        running += (int)(word >>> x) & 1;
+                        sums[current + x] = sums[above + x] + running;
+                    }
+                }
+            }
+        }
+
+        return table;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+    public int sum(int x, int y, int width, int height) {
+        int top = y * this.stride + x;
+        int bottom = (y + height) * this.stride + x;
+        return this.sums[bottom + width] - this.sums[bottom] - this.sums[top + width] + this.sums[top];
+    }
+
+    public boolean isEmpty(int x, int y, int width, int height) {
+        return this.sum(x, y, width, height) == 0;
+    }
+
+    public Rectangle getBounds(int x, int y, int width, int height) {
+        if (this.isEmpty(x, y, width, height)) {
+            return null;
+        }
+
+        int low = 0;
+        int high = height - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.isEmpty(x, y, width, middle + 1)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        int top = low;
+        high = height - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (this.isEmpty(x, y + middle, width, height - middle)) {
+                high = middle - 1;
+            } else {
+                low = middle;
+            }
+        }
+
+        int bottom = low;
+        int rows = bottom - top + 1;
+        low = 0;
+        high = width - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.isEmpty(x, y + top, middle + 1, rows)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        int left = low;
+        high = width - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (this.isEmpty(x + middle, y + top, width - middle, rows)) {
+                high = middle - 1;
+            } else {
+                low = middle;
+            }
+        }
+
+        return new Rectangle(x + left, y + top, low - left + 1, rows);
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.ntsee.sheetchef;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class TarArchiveWriter extends ArchiveWriter {
+
+    private static final int BLOCK_SIZE = 512;
+    private static final int NAME_LENGTH = 100;
+    private static final int MODE_OFFSET = 100;
+    private static final int OWNER_OFFSET = 108;
+    private static final int GROUP_OFFSET = 116;
+    private static final int SIZE_OFFSET = 124;
+    private static final int TIME_OFFSET = 136;
+    private static final int CHECKSUM_OFFSET = 148;
+    private static final int CHECKSUM_LENGTH = 8;
+    private static final int TYPE_OFFSET = 156;
+    private static final int MAGIC_OFFSET = 257;
+    private static final int FILE_MODE = 0644;
+    private static final byte[] MAGIC = "ustar\u000000".getBytes(StandardCharsets.US_ASCII);
+
+    private final long modified = System.currentTimeMillis() / 1000;
+
+    public TarArchiveWriter(OutputStream output) {
+        super(output);
+    }
+
+    @Override
+    protected void writeEntry(String name, byte[] data, boolean compress) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > NAME_LENGTH) {
+            throw new IOException("Entry name too long for TAR: " + name);
+        }
+
+        byte[] header = new byte[BLOCK_SIZE];
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        putOctal(header, MODE_OFFSET, 8, FILE_MODE);
+        putOctal(header, OWNER_OFFSET, 8, 0);
+        putOctal(header, GROUP_OFFSET, 8, 0);
+        putOctal(header, SIZE_OFFSET, 12, data.length);
+        putOctal(header, TIME_OFFSET, 12, this.modified);
+        header[TYPE_OFFSET] = '0';
+        System.arraycopy(MAGIC, 0, header, MAGIC_OFFSET, MAGIC.length);
+        Arrays.fill(header, CHECKSUM_OFFSET, CHECKSUM_OFFSET + CHECKSUM_LENGTH, (byte)' ');
+        long checksum = 0;
+        for (byte value : header) {
+            checksum += value & 0xFF;
+        }
+
+        putOctal(header, CHECKSUM_OFFSET, CHECKSUM_LENGTH - 1, checksum);
+        this.output.write(header);
+        this.output.write(data);
+        this.output.write(new byte[-data.length & (BLOCK_SIZE - 1)]);
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        this.output.write(new byte[BLOCK_SIZE * 2]);
+    }
+
+    private static void putOctal(byte[] header, int offset, int length, long value) {
+        String digits = Long.toOctalString(value);
+        int padding = length - 1 - digits.length();
+        for (int i=0; i<length-1; i++) {
+            header[offset + i] = (byte)(i < padding ? '0' : digits.charAt(i - padding));
+        }
+
+        header[offset + length - 1] = 0;
+    }
+}
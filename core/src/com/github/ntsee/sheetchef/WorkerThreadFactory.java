@@ -0,0 +1,21 @@
+package com.github.ntsee.sheetchef;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class WorkerThreadFactory implements ThreadFactory {
+
+    private final String prefix;
+    private final AtomicInteger count = new AtomicInteger();
+
+    WorkerThreadFactory(String prefix) {
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, this.prefix + this.count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
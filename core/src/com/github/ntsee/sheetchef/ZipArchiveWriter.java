@@ -0,0 +1,39 @@
+package com.github.ntsee.sheetchef;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ZipArchiveWriter extends ArchiveWriter {
+
+    private final ZipOutputStream zip;
+
+    public ZipArchiveWriter(OutputStream output) {
+        super(output);
+        this.zip = new ZipOutputStream(output);
+    }
+
+    @Override
+    protected void writeEntry(String name, byte[] data, boolean compress) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        if (!compress) {
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(data.length);
+            entry.setCompressedSize(data.length);
+            entry.setCrc(crc.getValue());
+        }
+
+        this.zip.putNextEntry(entry);
+        this.zip.write(data);
+        this.zip.closeEntry();
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        this.zip.finish();
+    }
+}
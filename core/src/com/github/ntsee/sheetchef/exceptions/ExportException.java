@@ -0,0 +1,48 @@
+package com.github.ntsee.sheetchef.exceptions;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+public class ExportException extends IOException {
+
+    private static final int MAX_LISTED_FRAMES = 10;
+
+    private final int frameCount;
+    private final SortedMap<Integer, IOException> failures;
+
+    public ExportException(int frameCount, SortedMap<Integer, IOException> failures) {
+        super(createMessage(frameCount, failures), failures.isEmpty() ? null : failures.get(failures.firstKey()));
+        this.frameCount = frameCount;
+        this.failures = Collections.unmodifiableSortedMap(new TreeMap<>(failures));
+    }
+
+    public int getFrameCount() {
+        return this.frameCount;
+    }
+
+    public SortedMap<Integer, IOException> getFailures() {
+        return this.failures;
+    }
+
+    private static String createMessage(int frameCount, SortedMap<Integer, IOException> failures) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("Failed to export %d of %d frames: ", failures.size(), frameCount));
+        Iterator<Integer> frames = failures.keySet().iterator();
+        for (int i=0; i<MAX_LISTED_FRAMES && frames.hasNext(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+
+            builder.append(frames.next());
+        }
+
+        if (frames.hasNext()) {
+            builder.append(", ...");
+        }
+
+        return builder.toString();
+    }
+}
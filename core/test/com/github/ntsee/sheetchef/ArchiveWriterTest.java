@@ -0,0 +1,131 @@
+package com.github.ntsee.sheetchef;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ArchiveWriterTest {
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    @Test
+    public void writesEntriesInSequenceOrder() throws IOException {
+        RecordingWriter writer = new RecordingWriter(ArchiveWriter.DEFAULT_MAX_PENDING);
+        writer.write(3, "3", new byte[0], true);
+        writer.write(1, "1", new byte[0], true);
+        assertEquals(Collections.emptyList(), writer.names);
+        assertEquals(2, writer.getPendingCount());
+        writer.write(0, "0", new byte[0], true);
+        assertEquals(Arrays.asList("0", "1"), writer.names);
+        writer.write("manifest", new byte[0], true);
+        writer.write(2, "2", new byte[0], true);
+        writer.close();
+        assertEquals(Arrays.asList("0", "1", "manifest", "2", "3"), writer.names);
+        assertTrue(writer.finished);
+    }
+
+    @Test
+    public void skippedSequencesReleaseLaterEntries() throws IOException {
+        RecordingWriter writer = new RecordingWriter(ArchiveWriter.DEFAULT_MAX_PENDING);
+        writer.write(2, "2", new byte[0], true);
+        writer.skip(1);
+        assertEquals(2, writer.getPendingCount());
+        writer.skip(0);
+        assertEquals(0, writer.getPendingCount());
+        writer.write(3, "3", new byte[0], true);
+        writer.close();
+        assertEquals(Arrays.asList("2", "3"), writer.names);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRepeatedSequence() throws IOException {
+        RecordingWriter writer = new RecordingWriter(ArchiveWriter.DEFAULT_MAX_PENDING);
+        writer.write(0, "0", new byte[0], true);
+        writer.skip(0);
+    }
+
+    @Test
+    public void pendingCapBlocksUntilGapIsFilled() throws Exception {
+        int maxPending = 4;
+        RecordingWriter writer = new RecordingWriter(maxPending);
+        for (int i=1; i<=maxPending; i++) {
+            writer.write(i, Integer.toString(i), new byte[0], true);
+        }
+
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread blocked = new Thread(() -> {
+            try {
+                writer.write(maxPending + 1, Integer.toString(maxPending + 1), new byte[0], true);
+            } catch (IOException e) {
+                failure.set(e);
+            }
+        });
+        blocked.start();
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (blocked.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+
+        assertEquals(Thread.State.WAITING, blocked.getState());
+        assertEquals(maxPending, writer.getPendingCount());
+        assertEquals(Collections.emptyList(), writer.names);
+        writer.write(0, "0", new byte[0], true);
+        blocked.join(TIMEOUT_MILLIS);
+        assertFalse(blocked.isAlive());
+        assertNull(failure.get());
+        assertEquals(0, writer.getPendingCount());
+        assertEquals(Arrays.asList("0", "1", "2", "3", "4", "5"), writer.names);
+        writer.close();
+    }
+
+    @Test
+    public void abortDeletesPartialArchive() throws IOException {
+        File directory = Files.createTempDirectory("sheetchef").toFile();
+        for (ExportTarget target : Arrays.asList(ExportTarget.ZIP, ExportTarget.TAR)) {
+            File location = ExportWriter.getLocation(target, directory, "sheet");
+            ExportWriter writer = ExportWriter.open(target, location);
+            writer.write(0, "0.png", new byte[64], false);
+            writer.write(2, "2.png", new byte[64], false);
+            assertTrue(location.isFile());
+            IOException cause = new IOException("failed");
+            writer.abort(cause);
+            assertFalse(target + " archive kept", location.exists());
+            assertEquals(0, cause.getSuppressed().length);
+        }
+
+        assertTrue(directory.delete());
+    }
+
+    private static class RecordingWriter extends ArchiveWriter {
+
+        private final List<String> names = new ArrayList<>();
+        private boolean finished;
+
+        RecordingWriter(int maxPending) {
+            super(new ByteArrayOutputStream(), maxPending);
+        }
+
+        @Override
+        protected void writeEntry(String name, byte[] data, boolean compress) {
+            this.names.add(name);
+        }
+
+        @Override
+        protected void finish() {
+            this.finished = true;
+        }
+    }
+}
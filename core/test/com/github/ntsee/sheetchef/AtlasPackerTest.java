@@ -0,0 +1,161 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AtlasPackerTest {
+
+    private static final int SIZE = 512;
+    private static final int BACKGROUND = 0x00000000;
+    private static final int MAX_PAGE_SIZE = 256;
+    private static final int PADDING = 2;
+
+    @Test
+    public void regionsFitPagesWithoutOverlap() {
+        PixelBuffer pixels = SyntheticSheet.create(SIZE, 0.9f, BACKGROUND, SIZE);
+        List<Rectangle> boxes = new ArrayList<>(new ComponentDetector().detect(pixels, BACKGROUND));
+        boxes.add(new Rectangle(0, 0, MAX_PAGE_SIZE + 10, 40));
+        List<AtlasPacker.Page> pages = new AtlasPacker(MAX_PAGE_SIZE, PADDING).pack(boxes);
+        assertTrue(pages.size() > 1);
+        int[] placed = new int[boxes.size()];
+        for (AtlasPacker.Page page : pages) {
+            assertEquals(Integer.highestOneBit(page.getWidth()), page.getWidth());
+            assertEquals(Integer.highestOneBit(page.getHeight()), page.getHeight());
+            List<AtlasPacker.Region> regions = page.getRegions();
+            for (int i=0; i<regions.size(); i++) {
+                AtlasPacker.Region region = regions.get(i);
+                Rectangle box = boxes.get(region.getIndex());
+                placed[region.getIndex()]++;
+                assertEquals((int)box.width, region.getWidth());
+                assertEquals((int)box.height, region.getHeight());
+                assertTrue(region.getX() >= 0 && region.getX() + region.getWidth() <= page.getWidth());
+                assertTrue(region.getY() >= 0 && region.getY() + region.getHeight() <= page.getHeight());
+                Rectangle padded = new Rectangle(region.getX(), region.getY(), region.getWidth() + PADDING,
+                        region.getHeight() + PADDING);
+                for (int j=i + 1; j<regions.size(); j++) {
+                    AtlasPacker.Region other = regions.get(j);
+                    assertFalse(padded.overlaps(new Rectangle(other.getX(), other.getY(), other.getWidth(),
+                            other.getHeight())));
+                }
+            }
+        }
+
+        for (int i=0; i<placed.length; i++) {
+            assertEquals("box " + i, 1, placed[i]);
+        }
+    }
+
+    @Test
+    public void duplicatesShareRegions() {
+        PixelBuffer pixels = SyntheticSheet.create(SIZE, 0.5f, BACKGROUND, SIZE + 1);
+        List<Rectangle> boxes = new ArrayList<>(new ComponentDetector().detect(pixels, BACKGROUND));
+        int frames = boxes.size();
+        boxes.add(new Rectangle(boxes.get(0)));
+        boxes.add(new Rectangle(boxes.get(frames - 1)));
+        int[] originals = FrameDeduplicator.findOriginals(pixels, boxes);
+        assertEquals(0, originals[frames]);
+        assertEquals(frames - 1, originals[frames + 1]);
+
+        Map<Integer, AtlasPacker.Region> regions = new HashMap<>();
+        Map<Integer, AtlasPacker.Page> pages = new HashMap<>();
+        for (AtlasPacker.Page page : new AtlasPacker(MAX_PAGE_SIZE, PADDING).pack(boxes, originals)) {
+            for (AtlasPacker.Region region : page.getRegions()) {
+                assertNull(regions.put(region.getIndex(), region));
+                pages.put(region.getIndex(), page);
+            }
+        }
+
+        assertEquals(boxes.size(), regions.size());
+        for (int i=frames; i<boxes.size(); i++) {
+            AtlasPacker.Region region = regions.get(i);
+            AtlasPacker.Region original = regions.get(originals[i]);
+            assertSame(pages.get(originals[i]), pages.get(i));
+            assertEquals(original.getX(), region.getX());
+            assertEquals(original.getY(), region.getY());
+        }
+    }
+
+    @Test
+    public void exportWritesPagesAndIndex() throws IOException {
+        PixelBuffer pixels = SyntheticSheet.create(SIZE, 0.9f, BACKGROUND, SIZE + 2);
+        List<Rectangle> boxes = new ComponentDetector().detect(pixels, BACKGROUND);
+        AtlasExporter exporter = new AtlasExporter(new AtlasPacker(MAX_PAGE_SIZE, PADDING));
+        Map<String, byte[]> files = new HashMap<>();
+        exporter.export(pixels, boxes, "sheet", new FrameExporter(2), (fileName, bytes) -> {
+            synchronized (files) {
+                files.put(fileName, bytes);
+            }
+        }, ProgressMonitor.NONE);
+
+        byte[] index = files.remove("sheet.atlas");
+        assertNotNull(index);
+        String[] lines = new String(index, StandardCharsets.UTF_8).split("\n");
+        BufferedImage page = null;
+        int regions = 0;
+        for (int i=0; i<lines.length; i++) {
+            String line = lines[i];
+            if (line.endsWith(".png")) {
+                byte[] bytes = files.remove(line);
+                assertNotNull(line, bytes);
+                page = ImageIO.read(new ByteArrayInputStream(bytes));
+                assertEquals("size: " + page.getWidth() + ", " + page.getHeight(), lines[i + 1]);
+            } else if (line.equals("sheet")) {
+                int[] xy = parsePair(lines[i + 2], "  xy: ");
+                int[] size = parsePair(lines[i + 3], "  size: ");
+                Rectangle box = boxes.get(Integer.parseInt(lines[i + 6].substring("  index: ".length())));
+                assertEquals((int)box.width, size[0]);
+                assertEquals((int)box.height, size[1]);
+                assertNotNull(page);
+                assertArrayEquals(box.toString(), getPixels(pixels, box), getPixels(page, xy[0], xy[1], size[0],
+                        size[1]));
+                regions++;
+            }
+        }
+
+        assertEquals(boxes.size(), regions);
+        assertTrue(files.isEmpty());
+    }
+
+    private static int[] parsePair(String line, String prefix) {
+        assertTrue(line, line.startsWith(prefix));
+        String[] values = line.substring(prefix.length()).split(", ");
+        return new int[] {Integer.parseInt(values[0]), Integer.parseInt(values[1])};
+    }
+
+    private static int[] getPixels(PixelBuffer pixels, Rectangle box) {
+        int width = (int)box.width;
+        int[] rgba = new int[width * (int)box.height];
+        for (int y=0; y<box.height; y++) {
+            pixels.getRow((int)box.x, (int)box.y + y, width, rgba, y * width);
+        }
+
+        return rgba;
+    }
+
+    private static int[] getPixels(BufferedImage image, int x, int y, int width, int height) {
+        int[] rgba = image.getRGB(x, y, width, height, null, 0, width);
+        for (int i=0; i<rgba.length; i++) {
+            rgba[i] = rgba[i] << 8 | rgba[i] >>> 24;
+        }
+
+        return rgba;
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BoxIndexTest {
+
+    private static final int SIZE = 1024;
+    private static final int BACKGROUND = 0xFFFFFFFF;
+    private static final int QUERIES = 2000;
+
+    @Test
+    public void queryVisitsEachOverlappingBoxOnce() {
+        for (long seed=0; seed<4; seed++) {
+            BoxStore boxes = createBoxes(seed);
+            BoxIndex index = BoxIndex.of(boxes);
+            Random random = new Random(seed);
+            for (int i=0; i<QUERIES; i++) {
+                float x = random.nextFloat() * SIZE * 1.2f - SIZE * 0.1f;
+                float y = random.nextFloat() * SIZE * 1.2f - SIZE * 0.1f;
+                float width = random.nextFloat() * SIZE / (1 + random.nextInt(8));
+                float height = random.nextFloat() * SIZE / (1 + random.nextInt(8));
+                int[] expected = new int[boxes.size()];
+                for (int box=0; box<boxes.size(); box++) {
+                    expected[box] = boxes.overlaps(box, x, y, width, height) ? 1 : 0;
+                }
+
+                int[] visits = new int[boxes.size()];
+                index.query(x, y, width, height, box -> visits[box]++);
+                assertArrayEquals(x + "," + y + " " + width + "x" + height, expected, visits);
+            }
+        }
+    }
+
+    @Test
+    public void findReturnsSmallestContainingBox() {
+        for (long seed=0; seed<4; seed++) {
+            BoxStore boxes = createBoxes(seed);
+            BoxIndex index = BoxIndex.of(boxes);
+            Random random = new Random(seed);
+            for (int i=0; i<QUERIES; i++) {
+                float x = random.nextFloat() * SIZE * 1.2f - SIZE * 0.1f;
+                float y = random.nextFloat() * SIZE * 1.2f - SIZE * 0.1f;
+                assertEquals(x + "," + y, find(boxes, x, y), index.find(x, y));
+            }
+
+            for (int box=0; box<boxes.size(); box++) {
+                int found = index.find(boxes.getX(box), boxes.getY(box));
+                assertTrue(found >= 0);
+                assertTrue(boxes.contains(found, boxes.getX(box), boxes.getY(box)));
+            }
+        }
+    }
+
+    @Test
+    public void emptyStoreFindsNothing() {
+        BoxIndex index = BoxIndex.of(BoxStore.EMPTY);
+        assertEquals(-1, index.find(0, 0));
+        index.query(-10, -10, 100, 100, box -> {
+            throw new AssertionError("Visited " + box);
+        });
+    }
+
+    private static BoxStore createBoxes(long seed) {
+        List<Rectangle> boxes = new ArrayList<>(new ComponentDetector().detect(
+                SyntheticSheet.create(SIZE, 0.7f, BACKGROUND, seed), BACKGROUND));
+        Random random = new Random(seed);
+        for (int i=0; i<32; i++) {
+            int width = 1 + random.nextInt(SIZE / 2);
+            int height = 1 + random.nextInt(SIZE / 2);
+            boxes.add(new Rectangle(random.nextInt(SIZE - width), random.nextInt(SIZE - height), width, height));
+        }
+
+        return BoxStore.of(boxes);
+    }
+
+    private static int find(BoxStore boxes, float x, float y) {
+        int found = -1;
+        long foundArea = Long.MAX_VALUE;
+        for (int box=0; box<boxes.size(); box++) {
+            long area = (long)boxes.getWidth(box) * boxes.getHeight(box);
+            if (boxes.contains(box, x, y) && area < foundArea) {
+                found = box;
+                foundArea = area;
+            }
+        }
+
+        return found;
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class ComponentDetectorTest {
+
+    private static final int SIZE = 1024;
+    private static final int BACKGROUND = 0xFFFFFFFF;
+    private static final int EDITS = 200;
+
+    @Test
+    public void bandedDetectionMatchesSequential() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (Connectivity connectivity : Connectivity.values()) {
+                ComponentDetector sequential = createDetector(connectivity, null);
+                ComponentDetector banded = createDetector(connectivity, pool);
+                for (long seed=0; seed<4; seed++) {
+                    PixelBuffer pixels = createSheet(seed);
+                    List<Rectangle> expected = sequential.detect(pixels, BACKGROUND);
+                    assertNotEquals(0, expected.size());
+                    assertEquals(expected, banded.detect(pixels, BACKGROUND));
+                    assertEquals(expected, sequential.detect(SyntheticSheet.rows(pixels), BACKGROUND));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void rescanMatchesFullDetection() {
+        BackgroundKey key = BackgroundKey.exact(BACKGROUND);
+        for (Connectivity connectivity : Connectivity.values()) {
+            ComponentDetector detector = createDetector(connectivity, null);
+            Random random = new Random(connectivity.ordinal());
+            int[] rgba = SyntheticSheet.toArray(createSheet(connectivity.ordinal()));
+            PixelBuffer previous = SyntheticSheet.of(rgba, SIZE, SIZE);
+            List<Rectangle> boxes = detector.detect(previous, key);
+            for (int i=0; i<EDITS; i++) {
+                edit(rgba, random);
+                PixelBuffer pixels = SyntheticSheet.of(rgba, SIZE, SIZE);
+                Rectangle changed = pixels.getChangedRegion(previous);
+                if (changed != null) {
+                    boxes = detector.rescan(pixels, key, boxes,
+                            detector.getRescanRegion(pixels, key, boxes, changed), ProgressMonitor.NONE);
+                }
+
+                assertEquals(detector.detect(pixels, key), boxes);
+                previous = pixels;
+            }
+        }
+    }
+
+    private static ComponentDetector createDetector(Connectivity connectivity, ForkJoinPool pool) {
+        ComponentDetector detector = new ComponentDetector();
+        detector.setConnectivity(connectivity);
+        detector.setPool(pool);
+        return detector;
+    }
+
+    private static PixelBuffer createSheet(long seed) {
+        int[] rgba = SyntheticSheet.toArray(SyntheticSheet.create(SIZE, 0.6f, BACKGROUND, seed));
+        Random random = new Random(seed);
+        for (int i=0; i<24; i++) {
+            int x = random.nextInt(SIZE);
+            int y = random.nextInt(SIZE);
+            int length = 64 + random.nextInt(SIZE / 2);
+            int color = createColor(random);
+            for (int j=0; j<length && x + j < SIZE && y + j < SIZE; j++) {
+                if (i % 3 == 0) {
+                    rgba[(y + j) * SIZE + x] = color;
+                } else if (i % 3 == 1) {
+                    rgba[y * SIZE + x + j] = color;
+                } else {
+                    rgba[(y + j) * SIZE + x + j] = color;
+                }
+            }
+        }
+
+        return SyntheticSheet.of(rgba, SIZE, SIZE);
+    }
+
+    private static void edit(int[] rgba, Random random) {
+        int width = 1 + random.nextInt(48);
+        int height = 1 + random.nextInt(48);
+        int left = random.nextInt(SIZE - width);
+        int top = random.nextInt(SIZE - height);
+        int color = random.nextBoolean() ? BACKGROUND : createColor(random);
+        for (int y=0; y<height; y++) {
+            for (int x=0; x<width; x++) {
+                rgba[(top + y) * SIZE + left + x] = color;
+            }
+        }
+    }
+
+    private static int createColor(Random random) {
+        int color;
+        do {
+            color = random.nextInt() | 0xFF;
+        } while (color == BACKGROUND);
+
+        return color;
+    }
+}
@@ -0,0 +1,175 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExportManifestTest {
+
+    private static final int SIZE = 512;
+    private static final int BACKGROUND = 0xFFFFFFFF;
+
+    @Test
+    public void csvRoundTrips() throws IOException {
+        ExportManifest manifest = new ExportManifest(ExportManifest.describe(ExportFormat.PNG, new PngEncoder(),
+                true));
+        manifest.put("0.png", new Rectangle(1, 2, 3, 4), 0x8000000000000001L);
+        manifest.put("1.png", new Rectangle(5, 6, 7, 8), 42);
+        File file = Files.createTempFile("manifest", ".csv").toFile();
+        try {
+            Files.write(file.toPath(), manifest.toCsv().getBytes(StandardCharsets.UTF_8));
+            ExportManifest read = ExportManifest.read(file);
+            assertNotNull(read);
+            assertEquals(manifest.getSettings(), read.getSettings());
+            assertEquals(2, read.size());
+            assertTrue(read.contains("0.png", new Rectangle(1, 2, 3, 4), 0x8000000000000001L));
+            assertFalse(read.contains("0.png", new Rectangle(1, 2, 3, 5), 0x8000000000000001L));
+            assertFalse(read.contains("1.png", new Rectangle(5, 6, 7, 8), 43));
+            assertEquals(manifest.toCsv(), read.toCsv());
+            Files.write(file.toPath(), "file,x,y\n".getBytes(StandardCharsets.UTF_8));
+            assertNull(ExportManifest.read(file));
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void unchangedFramesAreSkipped() throws IOException {
+        int[] rgba = SyntheticSheet.toArray(SyntheticSheet.create(SIZE, 0.5f, BACKGROUND, SIZE));
+        PixelBuffer pixels = SyntheticSheet.of(rgba, SIZE, SIZE);
+        List<Rectangle> boxes = new ComponentDetector().detect(pixels, BACKGROUND);
+        File directory = Files.createTempDirectory("sheetchef").toFile();
+        try {
+            RecordingWriter first = export(pixels, boxes, directory);
+            assertEquals(boxes.size(), first.written.size());
+            assertEquals(0, first.skipped);
+            assertTrue(new File(directory, ExportManifest.FILE_NAME).isFile());
+
+            RecordingWriter second = export(pixels, boxes, directory);
+            assertEquals(new ArrayList<String>(), second.written);
+            assertEquals(boxes.size(), second.skipped);
+
+            Rectangle box = boxes.get(0);
+            rgba[(int)box.y * SIZE + (int)box.x] ^= 0xFFFFFF00;
+            RecordingWriter third = export(SyntheticSheet.of(rgba, SIZE, SIZE), boxes, directory);
+            assertEquals(1, third.written.size());
+            assertEquals(FrameEncoder.getFileName(0, ExportFormat.BMP), third.written.get(0));
+            assertEquals(boxes.size() - 1, third.skipped);
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void removedFramesAreDeleted() throws IOException {
+        PixelBuffer pixels = SyntheticSheet.create(SIZE, 0.5f, BACKGROUND, SIZE + 1);
+        List<Rectangle> boxes = new ComponentDetector().detect(pixels, BACKGROUND);
+        assertTrue(boxes.size() > 2);
+        File directory = Files.createTempDirectory("sheetchef").toFile();
+        try {
+            export(pixels, boxes, directory);
+            File last = new File(directory, FrameEncoder.getFileName(boxes.size() - 1, ExportFormat.BMP));
+            assertTrue(last.isFile());
+
+            List<Rectangle> remaining = boxes.subList(0, boxes.size() - 1);
+            RecordingWriter writer = export(pixels, remaining, directory);
+            assertEquals(remaining.size(), writer.skipped);
+            assertFalse(last.exists());
+            ExportManifest manifest = ExportManifest.read(new File(directory, ExportManifest.FILE_NAME));
+            assertNotNull(manifest);
+            assertEquals(remaining.size(), manifest.size());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void changedSettingsRewriteEveryFrame() throws IOException {
+        PixelBuffer pixels = SyntheticSheet.create(SIZE, 0.5f, BACKGROUND, SIZE + 2);
+        List<Rectangle> boxes = new ComponentDetector().detect(pixels, BACKGROUND);
+        File directory = Files.createTempDirectory("sheetchef").toFile();
+        try {
+            SheetExporter exporter = createExporter();
+            exporter.setFormat(ExportFormat.PNG);
+            RecordingWriter writer = new RecordingWriter(directory);
+            exporter.export(pixels, boxes, "sheet", writer, directory, new FrameExporter(1), ProgressMonitor.NONE);
+            assertEquals(boxes.size(), writer.written.size());
+
+            exporter.setPngEncoder(new PngEncoder(1, PngEncoder.Filter.NONE));
+            writer = new RecordingWriter(directory);
+            exporter.export(pixels, boxes, "sheet", writer, directory, new FrameExporter(1), ProgressMonitor.NONE);
+            assertEquals(0, writer.skipped);
+            assertEquals(boxes.size(), writer.written.size());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static SheetExporter createExporter() {
+        SheetExporter exporter = new SheetExporter();
+        exporter.setFormat(ExportFormat.BMP);
+        exporter.setIncremental(true);
+        return exporter;
+    }
+
+    private static RecordingWriter export(PixelBuffer pixels, List<Rectangle> boxes, File directory)
+            throws IOException {
+        RecordingWriter writer = new RecordingWriter(directory);
+        createExporter().export(pixels, boxes, "sheet", writer, directory, new FrameExporter(2),
+                ProgressMonitor.NONE);
+        writer.close();
+        return writer;
+    }
+
+    private static void delete(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                assertTrue(file.delete());
+            }
+        }
+
+        assertTrue(directory.delete());
+    }
+
+    private static class RecordingWriter extends ExportWriter {
+
+        private final File directory;
+        private final List<String> written = new ArrayList<>();
+        private int skipped;
+
+        RecordingWriter(File directory) {
+            this.directory = directory;
+        }
+
+        @Override
+        public synchronized void write(String name, byte[] data, boolean compress) throws IOException {
+            Files.write(new File(this.directory, name).toPath(), data);
+            if (!name.equals(ExportManifest.FILE_NAME)) {
+                this.written.add(name);
+            }
+        }
+
+        @Override
+        public synchronized void skip(int sequence) {
+            this.skipped++;
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FrameCacheTest {
+
+    private static final int SIZE = 256;
+    private static final int BACKGROUND = 0x00000000;
+    private static final int[] IMAGE_TYPES = {
+            BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR
+    };
+
+    @Test
+    public void admitsFramesUntilBudgetIsFull() {
+        PixelBuffer pixels = SyntheticSheet.create(SIZE, 1, BACKGROUND, SIZE);
+        List<Rectangle> boxes = new ComponentDetector().detect(pixels, BACKGROUND);
+        assertTrue(boxes.size() > 3);
+        long budget = getByteCount(boxes.get(0)) + getByteCount(boxes.get(1));
+        FrameCache cache = new FrameCache(budget);
+        for (Rectangle box : boxes) {
+            cache.extract(pixels, box, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        assertEquals(2, cache.getFrameCount());
+        assertEquals(budget, cache.getSize());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(boxes.size(), cache.getMissCount());
+
+        cache.extract(pixels, boxes.get(1), BufferedImage.TYPE_INT_ARGB);
+        cache.extract(pixels, boxes.get(0), BufferedImage.TYPE_3BYTE_BGR);
+        cache.extract(pixels, boxes.get(2), BufferedImage.TYPE_INT_ARGB);
+        assertEquals(2, cache.getHitCount());
+        assertEquals(boxes.size() + 1, cache.getMissCount());
+        assertEquals(2, cache.getFrameCount());
+    }
+
+    @Test
+    public void shrinkingBudgetEvictsFrames() {
+        PixelBuffer pixels = SyntheticSheet.create(SIZE, 1, BACKGROUND, SIZE + 1);
+        List<Rectangle> boxes = new ComponentDetector().detect(pixels, BACKGROUND);
+        FrameCache cache = new FrameCache();
+        for (Rectangle box : boxes) {
+            cache.extract(pixels, box, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        assertEquals(boxes.size(), cache.getFrameCount());
+        long budget = cache.getSize() / 2;
+        cache.setBudget(budget);
+        assertTrue(cache.getSize() <= budget);
+        assertTrue(cache.getFrameCount() < boxes.size());
+        cache.setBudget(0);
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getFrameCount());
+        cache.extract(pixels, boxes.get(0), BufferedImage.TYPE_INT_ARGB);
+        assertEquals(0, cache.getFrameCount());
+    }
+
+    @Test
+    public void cachedFramesMatchExtractedFrames() {
+        PixelBuffer pixels = SyntheticSheet.create(SIZE, 1, BACKGROUND, SIZE + 2);
+        List<Rectangle> boxes = new ComponentDetector().detect(pixels, BACKGROUND);
+        FrameCache cache = new FrameCache();
+        for (int pass=0; pass<2; pass++) {
+            for (Rectangle box : boxes) {
+                for (int imageType : IMAGE_TYPES) {
+                    BufferedImage expected = FrameExtractor.extract(pixels, box, imageType);
+                    BufferedImage actual = cache.extract(pixels, box, imageType);
+                    assertEquals(imageType, actual.getType());
+                    assertArrayEquals(box + " type " + imageType, getRgb(expected), getRgb(actual));
+                }
+            }
+        }
+
+        assertEquals(boxes.size(), cache.getMissCount());
+        assertEquals(boxes.size() * (IMAGE_TYPES.length * 2L - 1), cache.getHitCount());
+    }
+
+    private static long getByteCount(Rectangle box) {
+        return (long)box.width * (long)box.height * 4;
+    }
+
+    private static int[] getRgb(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class FrameDeduplicatorTest {
+
+    private static final int SIZE = 256;
+    private static final int HEIGHT = SIZE + SyntheticSheet.CELL_SIZE;
+    private static final int BACKGROUND = 0x00000000;
+
+    @Test
+    public void duplicatesMapToFirstOccurrence() {
+        int[] rgba = new int[SIZE * HEIGHT];
+        PixelBuffer source = SyntheticSheet.create(SIZE, 1, BACKGROUND, SIZE);
+        System.arraycopy(SyntheticSheet.toArray(source), 0, rgba, 0, SIZE * SIZE);
+        List<Rectangle> boxes = new ArrayList<>(new ComponentDetector().detect(source, BACKGROUND));
+        int frames = boxes.size();
+        Rectangle first = boxes.get(0);
+        Rectangle second = boxes.get(1);
+        boxes.add(copy(rgba, first, 0, SIZE));
+        boxes.add(copy(rgba, second, SIZE - (int)second.width, SIZE));
+        boxes.add(new Rectangle(first.x, first.y, first.width, first.height));
+        PixelBuffer pixels = SyntheticSheet.of(rgba, SIZE, HEIGHT);
+
+        long[] hashes = new long[boxes.size()];
+        int[] originals = FrameDeduplicator.findOriginals(pixels, boxes, hashes);
+        int[] expected = new int[boxes.size()];
+        for (int i=0; i<frames; i++) {
+            expected[i] = i;
+        }
+
+        expected[frames] = 0;
+        expected[frames + 1] = 1;
+        expected[frames + 2] = 0;
+        assertArrayEquals(expected, originals);
+        assertEquals(hashes[0], hashes[frames]);
+        assertEquals(hashes[1], hashes[frames + 1]);
+        assertNotEquals(hashes[0], hashes[1]);
+        assertArrayEquals(originals, FrameDeduplicator.findOriginals(pixels, boxes));
+
+        int[] unique = FrameDeduplicator.getUniqueFrames(originals);
+        assertEquals(frames, unique.length);
+        for (int i=0; i<unique.length; i++) {
+            assertEquals(i, unique[i]);
+        }
+    }
+
+    @Test
+    public void framesOfDifferentSizesAreNotDuplicates() {
+        int[] rgba = new int[8 * 4];
+        rgba[8 * 3 + 7] = 0xFF0000FF;
+        PixelBuffer pixels = SyntheticSheet.of(rgba, 8, 4);
+        List<Rectangle> boxes = new ArrayList<>();
+        boxes.add(new Rectangle(0, 0, 2, 2));
+        boxes.add(new Rectangle(0, 0, 4, 1));
+        boxes.add(new Rectangle(0, 0, 1, 4));
+        boxes.add(new Rectangle(4, 0, 2, 2));
+        boxes.add(new Rectangle(6, 2, 2, 2));
+        assertArrayEquals(new int[] {0, 1, 2, 0, 4}, FrameDeduplicator.findOriginals(pixels, boxes));
+    }
+
+    @Test
+    public void mappingListsFileForEveryFrame() {
+        int[] originals = {0, 1, 0, 3, 1};
+        assertEquals("frame,file\n"
+                + "0," + FrameEncoder.getFileName(0, ExportFormat.PNG) + "\n"
+                + "1," + FrameEncoder.getFileName(1, ExportFormat.PNG) + "\n"
+                + "2," + FrameEncoder.getFileName(0, ExportFormat.PNG) + "\n"
+                + "3," + FrameEncoder.getFileName(3, ExportFormat.PNG) + "\n"
+                + "4," + FrameEncoder.getFileName(1, ExportFormat.PNG) + "\n",
+                FrameDeduplicator.createMapping(originals, ExportFormat.PNG));
+        assertArrayEquals(new int[] {0, 1, 3}, FrameDeduplicator.getUniqueFrames(originals));
+    }
+
+    private static Rectangle copy(int[] rgba, Rectangle box, int x, int y) {
+        for (int row=0; row<box.height; row++) {
+            System.arraycopy(rgba, ((int)box.y + row) * SIZE + (int)box.x, rgba, (y + row) * SIZE + x,
+                    (int)box.width);
+        }
+
+        return new Rectangle(x, y, box.width, box.height);
+    }
+}
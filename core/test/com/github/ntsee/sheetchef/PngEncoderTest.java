@@ -0,0 +1,128 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class PngEncoderTest {
+
+    private static final int SIZE = 256;
+    private static final int BACKGROUND = 0x00000000;
+
+    @Test
+    public void encodedFramesDecodeToSourcePixels() throws IOException {
+        PixelBuffer pixels = createSheet();
+        List<Rectangle> boxes = getBoxes(pixels);
+        for (PngEncoder.Filter filter : PngEncoder.Filter.values()) {
+            PngEncoder encoder = new PngEncoder(PngEncoder.DEFAULT_LEVEL, filter);
+            for (Rectangle box : boxes) {
+                byte[] bytes = encoder.encode(pixels, box);
+                int[] expected = getPixels(pixels, box, false);
+                assertArrayEquals(filter + " " + box, expected, readImage(bytes, box));
+                assertArrayEquals(filter + " " + box, expected, readRows(bytes, box));
+            }
+        }
+    }
+
+    @Test
+    public void indexedFramesDecodeToSourcePixels() throws IOException {
+        PixelBuffer pixels = createSheet();
+        List<Rectangle> boxes = getBoxes(pixels);
+        SheetPalette palette = SheetPalette.of(pixels, boxes);
+        PngEncoder encoder = new PngEncoder();
+        int indexed = 0;
+        for (int i=0; i<boxes.size(); i++) {
+            int colors = palette.getColorCount(i, ExportFormat.PNG);
+            if (colors == 0) {
+                continue;
+            }
+
+            Rectangle box = boxes.get(i);
+            byte[] bytes = encoder.encode(pixels, box, palette, colors);
+            int[] expected = getPixels(pixels, box, true);
+            assertArrayEquals(box.toString(), expected, readImage(bytes, box));
+            assertArrayEquals(box.toString(), expected, readRows(bytes, box));
+            indexed++;
+        }
+
+        assertTrue(indexed > 0);
+    }
+
+    private static PixelBuffer createSheet() {
+        int[] rgba = SyntheticSheet.toArray(SyntheticSheet.create(SIZE, 0.8f, BACKGROUND, SIZE));
+        for (int i=0; i<rgba.length; i+=7) {
+            if (rgba[i] != BACKGROUND) {
+                rgba[i] = rgba[i] & 0xFFFFFF00 | 0x80;
+            }
+        }
+
+        return SyntheticSheet.of(rgba, SIZE, SIZE);
+    }
+
+    private static List<Rectangle> getBoxes(PixelBuffer pixels) {
+        List<Rectangle> boxes = new ArrayList<>(new ComponentDetector().detect(pixels, BackgroundKey.alpha(0)));
+        assertFalse(boxes.isEmpty());
+        boxes.add(new Rectangle(0, 0, SIZE, SIZE));
+        boxes.add(new Rectangle(3, 5, 1, 1));
+        boxes.add(new Rectangle(17, 9, 131, 67));
+        return boxes;
+    }
+
+    private static int[] getPixels(PixelBuffer pixels, Rectangle box, boolean indexed) {
+        int width = (int)box.width;
+        int[] rgba = new int[width * (int)box.height];
+        for (int y=0; y<box.height; y++) {
+            pixels.getRow((int)box.x, (int)box.y + y, width, rgba, y * width);
+        }
+
+        if (indexed) {
+            for (int i=0; i<rgba.length; i++) {
+                if ((rgba[i] & 0xFF) == 0) {
+                    rgba[i] = 0;
+                }
+            }
+        }
+
+        return rgba;
+    }
+
+    private static int[] readImage(byte[] bytes, Rectangle box) throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+        assertNotNull(image);
+        assertEquals((int)box.width, image.getWidth());
+        assertEquals((int)box.height, image.getHeight());
+        int[] rgba = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+        for (int i=0; i<rgba.length; i++) {
+            rgba[i] = rgba[i] << 8 | rgba[i] >>> 24;
+        }
+
+        return rgba;
+    }
+
+    private static int[] readRows(byte[] bytes, Rectangle box) throws IOException {
+        try (PngRowReader reader = new PngRowReader(new ByteArrayInputStream(bytes))) {
+            int width = reader.getWidth();
+            assertEquals((int)box.width, width);
+            assertEquals((int)box.height, reader.getHeight());
+            int[] rgba = new int[width * reader.getHeight()];
+            int[] row = new int[width];
+            for (int y=0; reader.readRow(row); y++) {
+                System.arraycopy(row, 0, rgba, y * width, width);
+            }
+
+            return rgba;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SheetPaletteTest {
+
+    private static final int SIZE = 256;
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 32;
+    private static final int RED = 0xFF0000FF;
+    private static final int GREEN = 0x00FF00FF;
+    private static final int BLUE = 0x0000FFFF;
+
+    @Test
+    public void indexesEveryFramePixel() {
+        PixelBuffer pixels = SyntheticSheet.create(SIZE, 1, 0x00000000, SIZE);
+        List<Rectangle> boxes = new ComponentDetector().detect(pixels, BackgroundKey.alpha(0));
+        SheetPalette palette = SheetPalette.of(pixels, boxes);
+        assertEquals(boxes.size(), palette.getIndexedCount());
+        int[] row = new int[SIZE];
+        for (int i=0; i<boxes.size(); i++) {
+            Rectangle box = boxes.get(i);
+            int colors = palette.getColorCount(i);
+            assertTrue(colors > 0 && colors <= palette.size());
+            assertFalse(palette.isTranslucent(i));
+            for (int y=0; y<box.height; y++) {
+                pixels.getRow((int)box.x, (int)box.y + y, (int)box.width, row, 0);
+                for (int x=0; x<box.width; x++) {
+                    int index = palette.indexOf(row[x]);
+                    assertTrue(index >= 0 && index < colors);
+                    assertEquals((row[x] & 0xFF) == 0 ? 0 : row[x], palette.getColor(index));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void framesOverPaletteLimitFallBack() {
+        int[] rgba = new int[WIDTH * HEIGHT];
+        fill(rgba, 0, 0, 8, 8, RED, GREEN);
+        for (int i=0; i<20 * 20; i++) {
+            rgba[(i / 20) * WIDTH + 8 + i % 20] = i << 8 | 0xFF;
+        }
+
+        fill(rgba, 28, 0, 8, 8, GREEN, BLUE);
+        List<Rectangle> boxes = new ArrayList<>();
+        boxes.add(new Rectangle(0, 0, 8, 8));
+        boxes.add(new Rectangle(8, 0, 20, 20));
+        boxes.add(new Rectangle(28, 0, 8, 8));
+        SheetPalette palette = SheetPalette.of(SyntheticSheet.of(rgba, WIDTH, HEIGHT), boxes);
+
+        assertTrue(palette.isIndexed(0));
+        assertFalse(palette.isIndexed(1));
+        assertEquals(0, palette.getColorCount(1, ExportFormat.PNG));
+        assertTrue(palette.isIndexed(2));
+        assertEquals(2, palette.getIndexedCount());
+        assertEquals(3, palette.size());
+        assertEquals(0, palette.indexOf(RED));
+        assertEquals(1, palette.indexOf(GREEN));
+        assertEquals(2, palette.indexOf(BLUE));
+        assertEquals(-1, palette.indexOf(7 << 8 | 0xFF));
+        assertEquals(2, palette.getColorCount(0));
+        assertEquals(3, palette.getColorCount(2));
+    }
+
+    @Test
+    public void translucentFramesSkipGif() {
+        int[] rgba = new int[WIDTH * HEIGHT];
+        fill(rgba, 0, 0, 8, 8, RED, GREEN & 0xFFFFFF00 | 0x80);
+        rgba[WIDTH + 1] = 0x12345600;
+        List<Rectangle> boxes = new ArrayList<>();
+        boxes.add(new Rectangle(0, 0, 8, 8));
+        boxes.add(new Rectangle(0, 8, 8, 8));
+        SheetPalette palette = SheetPalette.of(SyntheticSheet.of(rgba, WIDTH, HEIGHT), boxes);
+
+        assertTrue(palette.isTranslucent(0));
+        assertEquals(0, palette.getColorCount(0, ExportFormat.GIF));
+        assertEquals(3, palette.getColorCount(0, ExportFormat.PNG));
+        assertEquals(palette.indexOf(0), palette.indexOf(0x12345600));
+        assertFalse(palette.isTranslucent(1));
+        assertEquals(palette.getColorCount(1, ExportFormat.PNG), palette.getColorCount(1, ExportFormat.GIF));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void indexRejectsUnknownColor() {
+        int[] rgba = new int[WIDTH * HEIGHT];
+        fill(rgba, 0, 0, 8, 8, RED, GREEN);
+        List<Rectangle> boxes = new ArrayList<>();
+        boxes.add(new Rectangle(0, 0, 8, 8));
+        SheetPalette palette = SheetPalette.of(SyntheticSheet.of(rgba, WIDTH, HEIGHT), boxes);
+        palette.index(new int[] {RED, BLUE}, 0, 2, new byte[2], 0);
+    }
+
+    private static void fill(int[] rgba, int x, int y, int width, int height, int first, int second) {
+        for (int row=0; row<height; row++) {
+            for (int column=0; column<width; column++) {
+                rgba[(y + row) * WIDTH + x + column] = (row + column) % 2 == 0 ? first : second;
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.math.Rectangle;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SummedAreaTableTest {
+
+    private static final int SIZE = 320;
+    private static final int BACKGROUND = 0xFFFFFFFF;
+    private static final int WINDOWS = 2000;
+
+    @Test
+    public void boundsMatchBruteForce() {
+        for (long seed=0; seed<4; seed++) {
+            int[] rgba = SyntheticSheet.toArray(SyntheticSheet.create(SIZE, 0.4f, BACKGROUND, seed));
+            Random random = new Random(seed);
+            for (int i=0; i<16; i++) {
+                rgba[random.nextInt(rgba.length)] = 0x000000FF;
+            }
+
+            ForegroundMask mask = ForegroundMask.of(SyntheticSheet.of(rgba, SIZE, SIZE),
+                    BackgroundKey.exact(BACKGROUND));
+            SummedAreaTable table = SummedAreaTable.of(mask);
+            assertEquals(mask.countForeground(), table.sum(0, 0, SIZE, SIZE));
+            assertEquals(mask.getBounds(), table.getBounds(0, 0, SIZE, SIZE));
+            for (int j=0; j<WINDOWS; j++) {
+                int width = 1 + random.nextInt(SIZE / 2);
+                int height = 1 + random.nextInt(SIZE / 2);
+                int x = random.nextInt(SIZE - width + 1);
+                int y = random.nextInt(SIZE - height + 1);
+                Rectangle expected = getBounds(rgba, x, y, width, height);
+                assertEquals(x + "," + y + " " + width + "x" + height, expected,
+                        table.getBounds(x, y, width, height));
+            }
+        }
+    }
+
+    @Test
+    public void singlePixelBounds() {
+        int size = 67;
+        for (int i=0; i<size * size; i+=13) {
+            int[] rgba = new int[size * size];
+            rgba[i] = 0xFF;
+            SummedAreaTable table = SummedAreaTable.of(ForegroundMask.of(SyntheticSheet.of(rgba, size, size),
+                    BackgroundKey.alpha(0)));
+            assertEquals(new Rectangle(i % size, i / size, 1, 1), table.getBounds(0, 0, size, size));
+            assertNull(table.getBounds(0, 0, size, i / size));
+        }
+    }
+
+    private static Rectangle getBounds(int[] rgba, int x, int y, int width, int height) {
+        int left = Integer.MAX_VALUE;
+        int top = Integer.MAX_VALUE;
+        int right = -1;
+        int bottom = -1;
+        for (int row=y; row<y + height; row++) {
+            for (int column=x; column<x + width; column++) {
+                if (rgba[row * SIZE + column] != BACKGROUND) {
+                    left = Math.min(left, column);
+                    top = Math.min(top, row);
+                    right = Math.max(right, column);
+                    bottom = Math.max(bottom, row);
+                }
+            }
+        }
+
+        return right < 0 ? null : new Rectangle(left, top, right - left + 1, bottom - top + 1);
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.ntsee.sheetchef;
+
+import com.badlogic.gdx.graphics.Color;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Random;
+
+public final class SyntheticSheet {
+
+    public static final int CELL_SIZE = 64;
+    private static final int MIN_SPRITE_SIZE = 8;
+
+    private SyntheticSheet() {
+
+    }
+
+    public static PixelBuffer create(int size, float density, int background, long seed) {
+        ByteBuffer bytes = ByteBuffer.allocate(size * size * 4);
+        int[] row = new int[size];
+        for (int x=0; x<size; x++) {
+            row[x] = background;
+        }
+
+        IntBuffer ints = bytes.asIntBuffer();
+        for (int y=0; y<size; y++) {
+            ints.put(row);
+        }
+
+        Random random = new Random(seed);
+        int cells = size / CELL_SIZE;
+        for (int cellY=0; cellY<cells; cellY++) {
+            for (int cellX=0; cellX<cells; cellX++) {
+                if (random.nextFloat() < density) {
+                    drawSprite(bytes, size, cellX * CELL_SIZE, cellY * CELL_SIZE, background, random);
+                }
+            }
+        }
+
+        return new PixelBuffer(bytes, size, size);
+    }
+
+    public static PixelBuffer of(int[] rgba, int width, int height) {
+        ByteBuffer bytes = ByteBuffer.allocate(width * height * 4);
+        bytes.asIntBuffer().put(rgba, 0, width * height);
+        return new PixelBuffer(bytes, width, height);
+    }
+
+    public static int[] toArray(PixelBuffer pixels) {
+        int width = pixels.getWidth();
+        int[] rgba = new int[width * pixels.getHeight()];
+        for (int y=0; y<pixels.getHeight(); y++) {
+            pixels.getRow(0, y, width, rgba, y * width);
+        }
+
+        return rgba;
+    }
+
+    public static int parseColor(String hex) {
+        return Color.rgba8888(Color.valueOf(hex));
+    }
+
+    public static RowSource rows(PixelBuffer pixels) {
+        return new RowSource() {
+            private int y;
+
+            @Override
+            public int getWidth() {
+                return pixels.getWidth();
+            }
+
+            @Override
+            public int getHeight() {
+                return pixels.getHeight();
+            }
+
+            @Override
+            public boolean readRow(int[] rgba) {
+                if (this.y == pixels.getHeight()) {
+                    return false;
+                }
+
+                pixels.getRow(this.y++, rgba);
+                return true;
+            }
+        };
+    }
+
+    private static void drawSprite(ByteBuffer bytes, int size, int cellX, int cellY, int background,
+                                   Random random) {
+        int width = MIN_SPRITE_SIZE + random.nextInt(CELL_SIZE - MIN_SPRITE_SIZE - 1);
+        int height = MIN_SPRITE_SIZE + random.nextInt(CELL_SIZE - MIN_SPRITE_SIZE - 1);
+        int left = cellX + 1 + random.nextInt(CELL_SIZE - width - 1);
+        int top = cellY + 1 + random.nextInt(CELL_SIZE - height - 1);
+        int[] palette = new int[4];
+        for (int i=0; i<palette.length; i++) {
+            do {
+                palette[i] = random.nextInt() | 0xFF;
+            } while (palette[i] == background);
+        }
+
+        float radiusX = width / 2f;
+        float radiusY = height / 2f;
+        for (int y=0; y<height; y++) {
+            for (int x=0; x<width; x++) {
+                float dx = (x + 0.5f - radiusX) / radiusX;
+                float dy = (y + 0.5f - radiusY) / radiusY;
+                if (dx * dx + dy * dy <= 1) {
+                    bytes.putInt(((top + y) * size + left + x) * 4, palette[(x / 4 + y / 4) % palette.length]);
+                }
+            }
+        }
+    }
+}